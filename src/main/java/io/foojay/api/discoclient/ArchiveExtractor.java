@@ -0,0 +1,502 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import eu.hansolo.jdktools.ArchiveType;
+import eu.hansolo.jdktools.HashAlgorithm;
+import io.foojay.api.discoclient.event.DownloadEvt;
+import io.foojay.api.discoclient.event.EvtPriority;
+import io.foojay.api.discoclient.util.Constants;
+import io.foojay.api.discoclient.util.DownloadDigest;
+import io.foojay.api.discoclient.util.Helper;
+import io.foojay.api.discoclient.util.ProgressThrottle;
+import io.foojay.api.discoclient.util.TokenBucket;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.LinkOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+
+/**
+ * Downloads tar, tar.gz/tgz and zip archives and extracts them while the bytes arrive, so the archive
+ * is never written to disk. The checksum is computed from the same stream. Entries are extracted into
+ * a staging folder next to the target folder which replaces the target folder once the archive was
+ * extracted completely and the checksum matched. Entries are never written through a symbolic link that
+ * points outside of the staging folder. Extractions share the limits of concurrent downloads of the
+ * DownloadManager and the bandwidth limit of the Downloader.
+ */
+public class ArchiveExtractor {
+    public  static final String          STAGING_SUFFIX = ".staging";
+    private static final String          OLD_SUFFIX     = ".old";
+    private static final int             BLOCK_SIZE     = 512;
+    private static final int             BUFFER_SIZE    = 64 * 1024;
+    private static final ExecutorService EXECUTOR       = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "discoclient-extractor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private        final DiscoClient     discoClient;
+
+
+    public ArchiveExtractor(final DiscoClient discoClient) {
+        if (null == discoClient) { throw new IllegalArgumentException("discoClient cannot be null"); }
+        this.discoClient = discoClient;
+    }
+
+
+    public static boolean isSupported(final ArchiveType archiveType) {
+        switch (archiveType) {
+            case TAR   :
+            case TAR_GZ:
+            case TGZ   :
+            case ZIP   : return true;
+            default    : return false;
+        }
+    }
+
+    /**
+     * Downloads the given archive and extracts it into the given folder, an existing folder will be replaced.
+     * @param uri Uri of the archive
+     * @param targetFolder Folder the content of the archive will be placed in
+     * @param archiveType Type of the archive, one of TAR, TAR_GZ, TGZ or ZIP
+     * @param hashAlgorithm Algorithm of the given checksum, NONE disables the verification
+     * @param checksum Expected hex encoded checksum of the archive, empty disables the verification
+     * @return Future with the target folder or null if the download, the extraction or the verification failed
+     */
+    public CompletableFuture<Path> downloadAndExtract(final String uri, final Path targetFolder, final ArchiveType archiveType, final HashAlgorithm hashAlgorithm, final String checksum) {
+        return downloadAndExtract(uri, targetFolder, archiveType, hashAlgorithm, checksum, EvtPriority.NORMAL, null);
+    }
+    /**
+     * Queues the download of the given archive in the DownloadManager and extracts it into the given folder,
+     * an existing folder will be replaced.
+     * @param uri Uri of the archive
+     * @param targetFolder Folder the content of the archive will be placed in
+     * @param archiveType Type of the archive, one of TAR, TAR_GZ, TGZ or ZIP
+     * @param hashAlgorithm Algorithm of the given checksum, NONE disables the verification
+     * @param checksum Expected hex encoded checksum of the archive, empty disables the verification
+     * @param priority Downloads with a higher priority are started first
+     * @param limit Bandwidth limit of this download in addition to the global limit, may be null
+     * @return Future with the target folder or null if the download, the extraction or the verification failed
+     */
+    public CompletableFuture<Path> downloadAndExtract(final String uri, final Path targetFolder, final ArchiveType archiveType, final HashAlgorithm hashAlgorithm, final String checksum, final EvtPriority priority, final TokenBucket limit) {
+        if (null == uri || uri.isEmpty()) { throw new IllegalArgumentException("uri cannot be null or empty"); }
+        if (null == targetFolder) { throw new IllegalArgumentException("targetFolder cannot be null"); }
+        if (null == archiveType || !isSupported(archiveType)) { throw new IllegalArgumentException("Unsupported archive type " + archiveType); }
+        final Path target = targetFolder.toAbsolutePath().normalize();
+        return discoClient.getDownloadManager().submit(uri, target, priority, cancelled -> transfer(uri, target, archiveType, new DownloadDigest(hashAlgorithm, checksum), limit, cancelled));
+    }
+
+    private CompletableFuture<Path> transfer(final String uri, final Path target, final ArchiveType archiveType, final DownloadDigest digest, final TokenBucket limit, final AtomicBoolean cancelled) {
+        final Path staging = target.resolveSibling(target.getFileName() + STAGING_SUFFIX);
+        return Helper.getHttpClient().sendAsync(requestBuilder(uri).GET().build(), BodyHandlers.ofInputStream())
+                     .thenApplyAsync(response -> extract(uri, response, archiveType, digest, limit, cancelled, staging, target), EXECUTOR)
+                     .handle((path, throwable) -> {
+                         if (null == throwable) { return path; }
+                         deleteRecursively(staging);
+                         discoClient.fireEvt(new DownloadEvt(discoClient, DownloadEvt.DOWNLOAD_FAILED, 0));
+                         return null;
+                     });
+    }
+
+    private Path extract(final String uri, final HttpResponse<InputStream> response, final ArchiveType archiveType, final DownloadDigest digest, final TokenBucket limit, final AtomicBoolean cancelled, final Path staging, final Path target) {
+        final long size = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        try (CountingInputStream in = new CountingInputStream(response.body(), digest, size, limit, cancelled)) {
+            if (200 != response.statusCode()) { throw new IOException("Download of " + uri + " failed with status " + response.statusCode()); }
+            discoClient.fireEvt(new DownloadEvt(discoClient, DownloadEvt.DOWNLOAD_STARTED, size));
+            deleteRecursively(staging);
+            Files.createDirectories(staging);
+            // Entries are checked against the real path, the staging folder itself might be reached through a link
+            final Path folder = staging.toRealPath();
+            switch (archiveType) {
+                case TAR_GZ:
+                case TGZ   : extractTar(new GZIPInputStream(in, BUFFER_SIZE), folder); break;
+                case TAR   : extractTar(in, folder); break;
+                case ZIP   : extractZip(new ZipInputStream(in), folder); break;
+                default    : throw new IOException("Unsupported archive type " + archiveType);
+            }
+            // Trailing bytes like the central directory of a zip file are part of the checksum
+            in.transferTo(OutputStream.nullOutputStream());
+            if (!digest.finish()) { throw new IOException("Checksum " + digest.getChecksum() + " of " + uri + " does not match"); }
+            moveIntoPlace(staging, target);
+            discoClient.fireEvt(new DownloadEvt(discoClient, DownloadEvt.DOWNLOAD_FINISHED, in.position, digest.getChecksum()));
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void extractTar(final InputStream in, final Path folder) throws IOException {
+        final byte[]        header  = new byte[BLOCK_SIZE];
+        Map<String, String> pax     = new HashMap<>();
+        String              gnuName = null;
+        String              gnuLink = null;
+        while (readBlock(in, header)) {
+            if (isZeroBlock(header)) { break; }
+            final char type = (char) header[156];
+            final long size = pax.containsKey("size") ? Long.parseLong(pax.get("size")) : parseNumber(header, 124, 12);
+            switch (type) {
+                case 'L': gnuName = readString(in, size); continue;
+                case 'K': gnuLink = readString(in, size); continue;
+                case 'x': pax     = readPax(in, size);    continue;
+                case 'g': skipEntry(in, size);            continue;
+                default : break;
+            }
+            final String name = pax.getOrDefault("path", null != gnuName ? gnuName : entryName(header));
+            final String link = pax.getOrDefault("linkpath", null != gnuLink ? gnuLink : readField(header, 157, 100));
+            final Path   path = resolve(folder, name);
+            pax     = new HashMap<>();
+            gnuName = null;
+            gnuLink = null;
+            switch (type) {
+                case '5':
+                    createDirectories(folder, path);
+                    break;
+                case '2':
+                    createDirectories(folder, path.getParent());
+                    resolve(folder, folder.relativize(path.getParent()).resolve(link).toString());
+                    Files.deleteIfExists(path);
+                    Files.createSymbolicLink(path, Paths.get(link));
+                    break;
+                case '1':
+                    createDirectories(folder, path.getParent());
+                    final Path existing = resolve(folder, link);
+                    if (!existing.toRealPath().startsWith(folder)) { throw new IOException("Entry " + link + " points outside of the archive"); }
+                    Files.deleteIfExists(path);
+                    Files.createLink(path, existing);
+                    break;
+                case '0':
+                case '7':
+                case '\0':
+                    createDirectories(folder, path.getParent());
+                    copy(in, path, size);
+                    setPermissions(path, (int) parseNumber(header, 100, 8));
+                    skipPadding(in, size);
+                    break;
+                default:
+                    skipEntry(in, size);
+                    break;
+            }
+        }
+    }
+
+    private static void extractZip(final ZipInputStream in, final Path folder) throws IOException {
+        ZipEntry entry;
+        while (null != (entry = in.getNextEntry())) {
+            final Path path = resolve(folder, entry.getName());
+            if (entry.isDirectory()) {
+                createDirectories(folder, path);
+            } else {
+                createDirectories(folder, path.getParent());
+                copy(in, path, Long.MAX_VALUE);
+            }
+            in.closeEntry();
+        }
+    }
+
+    /**
+     * Resolves the given entry name in the given folder and rejects names that point outside of the folder
+     */
+    private static Path resolve(final Path folder, final String name) throws IOException {
+        final Path path = folder.resolve(name).normalize();
+        if (!path.startsWith(folder)) { throw new IOException("Entry " + name + " points outside of the archive"); }
+        return path;
+    }
+
+    /**
+     * Creates the missing directories of the given path one by one and rejects existing parts that are
+     * links to a location outside of the folder, so no entry can be written through such a link
+     */
+    private static void createDirectories(final Path folder, final Path directory) throws IOException {
+        Path current = folder;
+        for (Path name : folder.relativize(directory)) {
+            current = current.resolve(name);
+            if (!Files.exists(current, LinkOption.NOFOLLOW_LINKS)) {
+                Files.createDirectory(current);
+            } else if (!current.toRealPath().startsWith(folder) || !Files.isDirectory(current)) {
+                throw new IOException("Entry " + folder.relativize(directory) + " points outside of the archive");
+            }
+        }
+    }
+
+    private static String entryName(final byte[] header) {
+        final String name   = readField(header, 0, 100);
+        final String magic  = readField(header, 257, 6);
+        final String prefix = magic.startsWith("ustar") ? readField(header, 345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    private static String readField(final byte[] header, final int offset, final int length) {
+        int end = offset;
+        while (end < offset + length && 0 != header[end]) { end++; }
+        return new String(header, offset, end - offset, UTF_8);
+    }
+
+    private static long parseNumber(final byte[] header, final int offset, final int length) {
+        // Large values are stored big endian in base 256 with the highest bit of the first byte set
+        if (0 != (header[offset] & 0x80)) {
+            long value = header[offset] & 0x7F;
+            for (int i = offset + 1 ; i < offset + length ; i++) { value = (value << 8) | (header[i] & 0xFF); }
+            return value;
+        }
+        final String octal = readField(header, offset, length).trim();
+        return octal.isEmpty() ? 0 : Long.parseLong(octal, 8);
+    }
+
+    private static boolean readBlock(final InputStream in, final byte[] block) throws IOException {
+        final int count = in.readNBytes(block, 0, block.length);
+        if (0 == count) { return false; }
+        if (count < block.length) { throw new IOException("Truncated tar archive"); }
+        return true;
+    }
+
+    private static boolean isZeroBlock(final byte[] block) {
+        for (byte b : block) { if (0 != b) { return false; } }
+        return true;
+    }
+
+    private static String readString(final InputStream in, final long size) throws IOException {
+        final byte[] bytes = in.readNBytes((int) size);
+        skipPadding(in, size);
+        int end = bytes.length;
+        while (end > 0 && 0 == bytes[end - 1]) { end--; }
+        return new String(bytes, 0, end, UTF_8);
+    }
+
+    /**
+     * Pax records have the form "length key=value\n"
+     */
+    private static Map<String, String> readPax(final InputStream in, final long size) throws IOException {
+        final Map<String, String> records = new HashMap<>();
+        final byte[]              bytes   = in.readNBytes((int) size);
+        skipPadding(in, size);
+        int position = 0;
+        while (position < bytes.length) {
+            int space = position;
+            while (space < bytes.length && ' ' != bytes[space]) { space++; }
+            if (space == bytes.length) { break; }
+            final int length = Integer.parseInt(new String(bytes, position, space - position, UTF_8));
+            if (length <= 0) { break; }
+            final String record = new String(bytes, space + 1, position + length - space - 2, UTF_8);
+            final int    equals = record.indexOf('=');
+            if (equals > 0) { records.put(record.substring(0, equals), record.substring(equals + 1)); }
+            position += length;
+        }
+        return records;
+    }
+
+    /**
+     * Copies the given number of bytes into a new file, Long.MAX_VALUE copies until the end of the stream.
+     * An existing file or link is replaced and never followed.
+     */
+    private static void copy(final InputStream in, final Path path, final long size) throws IOException {
+        Files.deleteIfExists(path);
+        try (OutputStream out = Files.newOutputStream(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, LinkOption.NOFOLLOW_LINKS)) {
+            final byte[] buffer    = new byte[BUFFER_SIZE];
+            long         remaining = size;
+            while (remaining > 0) {
+                final int count = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (count < 0) {
+                    if (Long.MAX_VALUE == size) { break; }
+                    throw new IOException("Truncated entry " + path);
+                }
+                out.write(buffer, 0, count);
+                remaining -= count;
+            }
+        }
+    }
+
+    private static void skipEntry(final InputStream in, final long size) throws IOException {
+        skipFully(in, size);
+        skipPadding(in, size);
+    }
+
+    private static void skipPadding(final InputStream in, final long size) throws IOException {
+        skipFully(in, (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE);
+    }
+
+    private static void skipFully(final InputStream in, final long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            final long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) { throw new IOException("Truncated tar archive"); }
+                remaining--;
+            } else {
+                remaining -= skipped;
+            }
+        }
+    }
+
+    private static void setPermissions(final Path path, final int mode) throws IOException {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) { return; }
+        final Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+        final PosixFilePermission[]    bits        = { PosixFilePermission.OTHERS_EXECUTE, PosixFilePermission.OTHERS_WRITE, PosixFilePermission.OTHERS_READ,
+                                                       PosixFilePermission.GROUP_EXECUTE, PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_READ,
+                                                       PosixFilePermission.OWNER_EXECUTE, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_READ };
+        for (int i = 0 ; i < bits.length ; i++) {
+            if (0 != (mode & (1 << i))) { permissions.add(bits[i]); }
+        }
+        // Never lock the owner out of the extracted files
+        permissions.add(PosixFilePermission.OWNER_READ);
+        permissions.add(PosixFilePermission.OWNER_WRITE);
+        Files.setPosixFilePermissions(path, permissions);
+    }
+
+    private static void moveIntoPlace(final Path staging, final Path target) throws IOException {
+        final Path old = target.resolveSibling(target.getFileName() + OLD_SUFFIX);
+        if (Files.exists(target)) {
+            deleteRecursively(old);
+            move(target, old);
+        }
+        move(staging, target);
+        deleteRecursively(old);
+    }
+
+    private static void move(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target);
+        }
+    }
+
+    private static void deleteRecursively(final Path folder) {
+        if (!Files.exists(folder)) { return; }
+        try (Stream<Path> paths = Files.walk(folder)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    // Removed with the next attempt
+                }
+            });
+        } catch (IOException e) {
+            // Removed with the next attempt
+        }
+    }
+
+    private HttpRequest.Builder requestBuilder(final String uri) {
+        final String userAgent     = discoClient.getUserAgent();
+        final String userAgentText = (null == userAgent || userAgent.isEmpty()) ? "DiscoClient" : "DiscoClient (" + userAgent + ")";
+        return HttpRequest.newBuilder().uri(URI.create(uri)).setHeader("User-Agent", userAgentText).timeout(Duration.ofMinutes(30));
+    }
+
+
+    // ******************** Inner Classes *************************************
+    /**
+     * Feeds all bytes read from the response into the digest, reports the progress and waits as long as
+     * the global or the given bandwidth limit requires. Reading fails once the extraction was cancelled.
+     * The stream is only read on the extractor threads.
+     */
+    private final class CountingInputStream extends FilterInputStream {
+        private final DownloadDigest   digest;
+        private final ProgressThrottle throttle;
+        private final TokenBucket      bandwidth;
+        private final TokenBucket      limit;
+        private final AtomicBoolean    cancelled;
+        private final long             size;
+        private       long             position;
+
+
+        CountingInputStream(final InputStream in, final DownloadDigest digest, final long size, final TokenBucket limit, final AtomicBoolean cancelled) {
+            super(in);
+            this.digest    = digest;
+            this.throttle  = new ProgressThrottle(discoClient.getDownloader().getProgressInterval(), TimeUnit.MILLISECONDS, discoClient.getDownloader().getProgressMinBytes());
+            this.bandwidth = discoClient.getDownloader().getBandwidth();
+            this.limit     = limit;
+            this.cancelled = cancelled;
+            this.size      = size;
+            this.position  = 0;
+        }
+
+
+        @Override public int read() throws IOException {
+            final byte[] single = new byte[1];
+            return -1 == read(single, 0, 1) ? -1 : single[0] & 0xFF;
+        }
+
+        @Override public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (cancelled.get()) { throw new InterruptedIOException("Extraction cancelled"); }
+            final int count = super.read(bytes, offset, length);
+            if (count > 0) {
+                digest.update(position, ByteBuffer.wrap(bytes, offset, count));
+                position += count;
+                if (throttle.update(position, size) && discoClient.hasObservers(DownloadEvt.DOWNLOAD_PROGRESS)) {
+                    discoClient.fireEvt(new DownloadEvt(discoClient, DownloadEvt.DOWNLOAD_PROGRESS, size, position, throttle.getBytesPerSecond(), throttle.getEta(position, size), TokenBucket.effectiveRate(bandwidth, limit)));
+                }
+                throttle(count);
+            }
+            return count;
+        }
+
+        private void throttle(final int count) throws IOException {
+            final long wait = Math.max(bandwidth.take(count), null == limit ? 0 : limit.take(count));
+            if (0 == wait) { return; }
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Extraction interrupted");
+            }
+        }
+
+        @Override public long skip(final long count) throws IOException {
+            final byte[] buffer    = new byte[(int) Math.min(BUFFER_SIZE, Math.max(1, count))];
+            long         remaining = count;
+            while (remaining > 0) {
+                final int read = read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) { break; }
+                remaining -= read;
+            }
+            return count - remaining;
+        }
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import eu.hansolo.jdktools.HashAlgorithm;
+import io.foojay.api.discoclient.util.Constants;
+import io.foojay.api.discoclient.util.Helper;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Content addressed cache of downloaded artifacts. Entries are keyed by the checksum of the artifact
+ * (or by its id if no checksum is known). Entries are made read only and handed out as hard links, so a
+ * target shares the entry's data but cannot be modified in place. If an entry cannot be made read only or
+ * the target is on another file store, a copy is handed out instead. An entry whose size changed anyway
+ * is dropped instead of being served. The least recently used entries are evicted once the total size
+ * exceeds the maximum size. The last access of an entry is the last modified time of its .access sidecar
+ * file, so the order survives restarts without touching the data that is shared with the targets.
+ * Loading an artifact through fetch() is guarded by a lock file per key, so if several threads or processes
+ * ask for the same artifact at the same time only one of them downloads it and the others reuse the result.
+ * The loader writes into a file in the cache folder that becomes the entry, so a miss writes the artifact
+ * only once and the target is linked to the entry like on a hit.
+ */
+public class ArtifactCache {
+    private static final String                                TMP_SUFFIX    = ".tmp";
+    private static final String                                LOCK_SUFFIX   = ".lock";
+    private static final String                                ACCESS_SUFFIX = ".access";
+    private static final String                                LOAD_SUFFIX   = ".load";
+    private static final ExecutorService                       LOCK_POOL     = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "discoclient-cache-lock");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // File locks are held per process, so loads within this process are coordinated across all instances
+    private static final Map<Path, CompletableFuture<Void>>    IN_FLIGHT     = new ConcurrentHashMap<>();
+    private        final Path                                  folder;
+    private        final Map<String, Long>                     entries;
+    private              long                                  maxSize;
+    private              long                                  totalSize;
+
+
+    public ArtifactCache() {
+        this(Paths.get(Constants.HOME_FOLDER, Constants.CACHE_FOLDER_NAME), Constants.DEFAULT_CACHE_SIZE);
+    }
+    public ArtifactCache(final Path folder, final long maxSize) {
+        if (null == folder) { throw new IllegalArgumentException("folder cannot be null"); }
+        if (maxSize <= 0) { throw new IllegalArgumentException("maxSize must be larger than 0"); }
+        this.folder    = folder;
+        this.entries   = new LinkedHashMap<>(16, 0.75f, true);
+        this.maxSize   = maxSize;
+        this.totalSize = 0;
+        scan();
+    }
+
+
+    /**
+     * Returns the key of an artifact, the checksum if available, otherwise a hash of the given id
+     * @param hashAlgorithm Algorithm of the checksum
+     * @param checksum Hex encoded checksum of the artifact, may be empty
+     * @param id Id of the artifact, e.g. the ephemeral id of the package
+     * @return Key of the artifact that can be used as file name
+     */
+    public static String key(final HashAlgorithm hashAlgorithm, final String checksum, final String id) {
+        if (null != hashAlgorithm && HashAlgorithm.NONE != hashAlgorithm && HashAlgorithm.NOT_FOUND != hashAlgorithm && null != checksum && checksum.matches("[0-9a-fA-F]+")) {
+            return hashAlgorithm.getApiString() + "-" + checksum.toLowerCase();
+        }
+        return "id-" + Helper.getSHA256(null == id ? "" : id);
+    }
+
+    public Path getFolder() { return folder; }
+
+    public synchronized long getMaxSize() { return maxSize; }
+    public synchronized void setMaxSize(final long maxSize) {
+        if (maxSize <= 0) { throw new IllegalArgumentException("maxSize must be larger than 0"); }
+        this.maxSize = maxSize;
+        evict(null);
+    }
+
+    public synchronized long getTotalSize() { return totalSize; }
+
+    public synchronized int size() { return entries.size(); }
+
+    public synchronized boolean contains(final String key) { return entries.containsKey(key); }
+
+    /**
+     * Places the artifact with the given key at the given target. If it is not cached yet, the loader is
+     * called with a file in the cache folder while holding the lock of the key, that file becomes the entry.
+     * Concurrent calls for the same key in this or another process wait for that and are then served from the cache.
+     * @param key Key of the artifact
+     * @param target File the artifact will be placed at
+     * @param loader Downloads the artifact to the given file and returns that file or null if that failed
+     * @return Future with the target or null if the artifact could not be loaded
+     */
+    public CompletableFuture<Path> fetch(final String key, final Path target, final Function<Path, CompletableFuture<Path>> loader) {
+        final Path                    lockFile = folder.resolve(key + LOCK_SUFFIX).toAbsolutePath().normalize();
+        final CompletableFuture<Void> leader   = new CompletableFuture<>();
+        final CompletableFuture<Void> other    = IN_FLIGHT.putIfAbsent(lockFile, leader);
+        if (null != other) {
+            // Same artifact is loaded by another thread of this process, use its result
+            return other.handle((v, throwable) -> null)
+                        .thenComposeAsync(v -> get(key, target).isPresent() ? CompletableFuture.completedFuture(target) : fetch(key, target, loader), LOCK_POOL);
+        }
+        return CompletableFuture.supplyAsync(() -> lock(lockFile), LOCK_POOL)
+                                .thenCompose(lock -> {
+                                    final CompletableFuture<Path> result;
+                                    try {
+                                        result = get(key, target).isPresent() ? CompletableFuture.completedFuture(target) : loader.apply(folder.resolve(key + LOAD_SUFFIX)).thenApplyAsync(path -> null == path ? null : place(key, path, target), LOCK_POOL);
+                                    } catch (RuntimeException e) {
+                                        release(lock);
+                                        throw e;
+                                    }
+                                    return result.whenComplete((path, throwable) -> release(lock));
+                                })
+                                .whenComplete((path, throwable) -> {
+                                    IN_FLIGHT.remove(lockFile, leader);
+                                    leader.complete(null);
+                                });
+    }
+
+    /**
+     * Places the cached artifact with the given key at the given target.
+     * @param key Key of the artifact
+     * @param target File the artifact will be linked or copied to
+     * @return The target or an empty optional if the artifact is not cached
+     */
+    public Optional<Path> get(final String key, final Path target) {
+        final Path entry = folder.resolve(key);
+        final long size;
+        synchronized (this) {
+            final Long indexedSize = entries.get(key);
+            if (null == indexedSize) {
+                // Might have been added by another process
+                if (!Files.isRegularFile(entry)) { return Optional.empty(); }
+                try {
+                    size = Files.size(entry);
+                    entries.put(key, size);
+                    totalSize += size;
+                } catch (IOException e) {
+                    return Optional.empty();
+                }
+            } else {
+                size = indexedSize;
+            }
+        }
+        try {
+            if (Files.size(entry) != size) {
+                // Modified through a target or by hand, never serve it again
+                remove(key);
+                return Optional.empty();
+            }
+            if (!Files.exists(target) || !Files.isSameFile(entry, target)) {
+                Files.deleteIfExists(target);
+                if (isReadOnly(entry)) {
+                    linkOrCopy(entry, target);
+                } else {
+                    copy(entry, target);
+                }
+            }
+            touch(key);
+            return Optional.of(target);
+        } catch (IOException e) {
+            if (!Files.exists(entry)) { remove(key); }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Adds a read only copy of the given file to the cache, the file itself stays untouched.
+     * @param key Key of the artifact
+     * @param source Downloaded artifact
+     * @return True if the artifact is in the cache afterwards
+     */
+    public boolean put(final String key, final Path source) {
+        final Path tmp = folder.resolve(key + TMP_SUFFIX);
+        try {
+            Files.createDirectories(folder);
+            Files.deleteIfExists(tmp);
+            copy(source, tmp);
+            adopt(key, tmp);
+            return true;
+        } catch (IOException e) {
+            try { Files.deleteIfExists(tmp); } catch (IOException ex) { /* Removed with the next put */ }
+            return false;
+        }
+    }
+
+    /**
+     * Turns a file in the cache folder into the entry of the given key.
+     */
+    private void adopt(final String key, final Path file) throws IOException {
+        final Path entry = folder.resolve(key);
+        makeReadOnly(file);
+        try {
+            Files.move(file, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(file, entry, StandardCopyOption.REPLACE_EXISTING);
+        }
+        final long size = Files.size(entry);
+        touch(key);
+        synchronized (this) {
+            final Long previous = entries.put(key, size);
+            totalSize += size - (null == previous ? 0 : previous);
+            evict(key);
+        }
+    }
+
+    /**
+     * Adds a loaded artifact to the cache and places it at the target, if it cannot be cached
+     * the loaded file is moved to the target instead.
+     */
+    private Path place(final String key, final Path loaded, final Path target) {
+        try {
+            final Path parent = target.toAbsolutePath().getParent();
+            if (null != parent) { Files.createDirectories(parent); }
+            try {
+                adopt(key, loaded);
+            } catch (IOException e) {
+                Files.move(loaded, target, StandardCopyOption.REPLACE_EXISTING);
+                return target;
+            }
+            return get(key, target).orElse(null);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public synchronized void remove(final String key) {
+        final Long size = entries.remove(key);
+        if (null != size) { totalSize -= size; }
+        try {
+            Files.deleteIfExists(folder.resolve(key));
+            Files.deleteIfExists(folder.resolve(key + ACCESS_SUFFIX));
+        } catch (IOException e) {
+            // Entry is not indexed anymore
+        }
+    }
+
+    public synchronized void clear() {
+        List.copyOf(entries.keySet()).forEach(this::remove);
+    }
+
+    private synchronized void scan() {
+        if (!Files.isDirectory(folder)) { return; }
+        try (Stream<Path> files = Files.list(folder)) {
+            final List<Path> cached = files.filter(Files::isRegularFile)
+                                           .filter(file -> !file.getFileName().toString().endsWith(TMP_SUFFIX))
+                                           .filter(file -> !file.getFileName().toString().endsWith(LOCK_SUFFIX))
+                                           .filter(file -> !file.getFileName().toString().endsWith(ACCESS_SUFFIX))
+                                           .filter(file -> !file.getFileName().toString().contains(LOAD_SUFFIX))
+                                           .sorted(Comparator.comparingLong(ArtifactCache::lastAccess))
+                                           .collect(Collectors.toList());
+            for (Path file : cached) {
+                final long size = Files.size(file);
+                entries.put(file.getFileName().toString(), size);
+                totalSize += size;
+            }
+        } catch (IOException e) {
+            // Start with what was found so far
+        }
+        evict(null);
+    }
+
+    private void evict(final String keep) {
+        final Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalSize > maxSize && iterator.hasNext()) {
+            final Map.Entry<String, Long> entry = iterator.next();
+            if (entry.getKey().equals(keep)) { continue; }
+            try {
+                Files.deleteIfExists(folder.resolve(entry.getKey()));
+                Files.deleteIfExists(folder.resolve(entry.getKey() + ACCESS_SUFFIX));
+            } catch (IOException e) {
+                continue;
+            }
+            totalSize -= entry.getValue();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Blocks until the given lock file is locked, returns null if the lock file cannot be used,
+     * in that case the artifact is loaded without coordination with other processes.
+     */
+    private FileLock lock(final Path lockFile) {
+        try {
+            Files.createDirectories(folder);
+            final FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                return channel.lock();
+            } catch (IOException | OverlappingFileLockException e) {
+                channel.close();
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void release(final FileLock lock) {
+        if (null == lock) { return; }
+        try {
+            lock.release();
+            lock.channel().close();
+        } catch (IOException e) {
+            // Released when the process ends
+        }
+    }
+
+    /**
+     * Records the access in the sidecar file, the entry itself shares its inode with the targets
+     */
+    private void touch(final String key) {
+        final Path access = folder.resolve(key + ACCESS_SUFFIX);
+        try {
+            if (!Files.exists(access)) { Files.createFile(access); }
+            Files.setLastModifiedTime(access, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Only affects the eviction order
+        }
+    }
+
+    private static long lastAccess(final Path entry) {
+        final Path access = entry.resolveSibling(entry.getFileName() + ACCESS_SUFFIX);
+        try {
+            return Files.getLastModifiedTime(Files.exists(access) ? access : entry).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void makeReadOnly(final Path file) throws IOException {
+        if (!file.getFileSystem().supportedFileAttributeViews().contains("posix")) { return; }
+        Files.setPosixFilePermissions(file, EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.GROUP_READ, PosixFilePermission.OTHERS_READ));
+    }
+
+    private static boolean isReadOnly(final Path file) {
+        if (!file.getFileSystem().supportedFileAttributeViews().contains("posix")) { return false; }
+        try {
+            final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+            return !permissions.contains(PosixFilePermission.OWNER_WRITE) && !permissions.contains(PosixFilePermission.GROUP_WRITE) && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void linkOrCopy(final Path source, final Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (IOException | UnsupportedOperationException e) {
+            copy(source, target);
+        }
+    }
+
+    private static void copy(final Path source, final Path target) throws IOException {
+        try (FileChannel in  = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final long size     = in.size();
+            long       position = 0;
+            while (position < size) { position += in.transferTo(position, size - position, out); }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import io.foojay.api.discoclient.event.CatalogEvt;
+import io.foojay.api.discoclient.pkg.CatalogDelta;
+import io.foojay.api.discoclient.pkg.Pkg;
+import io.foojay.api.discoclient.pkg.PkgTable;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+
+/**
+ * Local mirror of the package catalog that is kept up to date by applying the differences between
+ * the mirror and the latest catalog. Only packages with an unknown id are materialized and only the
+ * changed entries of the indexes are touched, observers of {@link CatalogEvt#CATALOG_UPDATED} on the
+ * DiscoClient receive the changes. Removed packages are dropped from the package caches of the DiscoClient.
+ */
+public class CatalogSync {
+    private final    DiscoClient               discoClient;
+    private final    Map<String, Pkg>          pkgs;
+    private final    Map<String, Set<String>>  idsPerDistribution;
+    private final    Map<Integer, Set<String>> idsPerMajorVersion;
+    private volatile long                      lastSync;
+
+
+    public CatalogSync(final DiscoClient discoClient) {
+        if (null == discoClient) { throw new IllegalArgumentException("discoClient cannot be null"); }
+        this.discoClient        = discoClient;
+        this.pkgs               = new ConcurrentHashMap<>();
+        this.idsPerDistribution = new ConcurrentHashMap<>();
+        this.idsPerMajorVersion = new ConcurrentHashMap<>();
+        this.lastSync           = 0;
+    }
+
+
+    /**
+     * Fetches the catalog and applies the differences to the mirror.
+     * If the fetched catalog is empty the mirror is left untouched, because an empty
+     * result means the request failed rather than all packages were removed.
+     * @return The changes that have been applied
+     */
+    public CatalogDelta sync() { return applyFetched(discoClient.getAllPackagesAsTable()); }
+
+    public CompletableFuture<CatalogDelta> syncAsync() { return discoClient.getAllPackagesAsTableAsync().thenApply(this::applyFetched); }
+
+    /**
+     * Applies the differences between the mirror and the given table to the mirror and fires a
+     * CatalogEvt if something changed.
+     * @param table Latest state of the catalog
+     * @return The changes that have been applied
+     */
+    public CatalogDelta apply(final PkgTable table) { return apply(table, true); }
+    /**
+     * Applies the differences between the mirror and the given table to the mirror.
+     * @param table Latest state of the catalog
+     * @param notify If true a CatalogEvt will be fired if something changed
+     * @return The changes that have been applied
+     */
+    public synchronized CatalogDelta apply(final PkgTable table, final boolean notify) {
+        final Set<String> idsFound = new HashSet<>(table.size() * 2);
+        final List<Pkg>   added    = new ArrayList<>();
+        for (int row = 0 ; row < table.size() ; row++) {
+            final String id = table.getId(row);
+            if (!idsFound.add(id) || pkgs.containsKey(id)) { continue; }
+            added.add(table.getPkg(row));
+        }
+
+        final List<Pkg> removed = pkgs.values().stream().filter(pkg -> !idsFound.contains(pkg.getId())).collect(Collectors.toList());
+        removed.forEach(this::remove);
+        added.forEach(this::insert);
+        if (!removed.isEmpty()) { discoClient.invalidatePkgs(removed); }
+        lastSync = Instant.now().getEpochSecond();
+
+        final CatalogDelta delta = new CatalogDelta(added, removed, lastSync);
+        if (notify && !delta.isEmpty()) { discoClient.fireEvt(new CatalogEvt(this, CatalogEvt.CATALOG_UPDATED, delta)); }
+        return delta;
+    }
+
+    public Pkg getPkg(final String id) { return null == id ? null : pkgs.get(id); }
+
+    public Collection<Pkg> getPkgs() { return Collections.unmodifiableCollection(pkgs.values()); }
+
+    public List<Pkg> getPkgsOfDistribution(final String apiString) { return lookup(idsPerDistribution.get(apiString)); }
+
+    public List<Pkg> getPkgsOfMajorVersion(final int majorVersion) { return lookup(idsPerMajorVersion.get(majorVersion)); }
+
+    public int size() { return pkgs.size(); }
+
+    /**
+     * Returns the time of the last sync in seconds since the epoch.
+     * @return Time of the last sync in epoch seconds or 0 if the mirror was never synced
+     */
+    public long getLastSync() { return lastSync; }
+
+
+    private CatalogDelta applyFetched(final PkgTable table) {
+        if (null == table || (table.isEmpty() && !pkgs.isEmpty())) { return new CatalogDelta(List.of(), List.of()); }
+        return apply(table);
+    }
+
+    private void insert(final Pkg pkg) {
+        pkgs.put(pkg.getId(), pkg);
+        if (null != pkg.getDistribution()) {
+            idsPerDistribution.computeIfAbsent(pkg.getDistribution().getApiString(), key -> ConcurrentHashMap.newKeySet()).add(pkg.getId());
+        }
+        idsPerMajorVersion.computeIfAbsent(pkg.getMajorVersion().getAsInt(), key -> ConcurrentHashMap.newKeySet()).add(pkg.getId());
+    }
+
+    private void remove(final Pkg pkg) {
+        pkgs.remove(pkg.getId());
+        if (null != pkg.getDistribution()) {
+            final Set<String> ids = idsPerDistribution.get(pkg.getDistribution().getApiString());
+            if (null != ids) { ids.remove(pkg.getId()); }
+        }
+        final Set<String> ids = idsPerMajorVersion.get(pkg.getMajorVersion().getAsInt());
+        if (null != ids) { ids.remove(pkg.getId()); }
+    }
+
+    private List<Pkg> lookup(final Set<String> ids) {
+        if (null == ids) { return new ArrayList<>(); }
+        return ids.stream().map(pkgs::get).filter(pkg -> null != pkg).collect(Collectors.toList());
+    }
+}
@@ -34,55 +34,81 @@ import eu.hansolo.jdktools.TermOfSupport;
 import eu.hansolo.jdktools.util.OutputFormat;
 import eu.hansolo.jdktools.versioning.Semver;
 import eu.hansolo.jdktools.versioning.VersionNumber;
+import io.foojay.api.discoclient.event.CatalogEvt;
 import io.foojay.api.discoclient.event.DCEvt;
 import io.foojay.api.discoclient.event.DownloadEvt;
 import io.foojay.api.discoclient.event.Evt;
 import io.foojay.api.discoclient.event.EvtObserver;
+import io.foojay.api.discoclient.event.EvtPriority;
 import io.foojay.api.discoclient.event.EvtType;
+import io.foojay.api.discoclient.pkg.CatalogDelta;
+import io.foojay.api.discoclient.pkg.CatalogSnapshot;
 import io.foojay.api.discoclient.pkg.Distribution;
+import io.foojay.api.discoclient.pkg.FacetCounts;
+import io.foojay.api.discoclient.pkg.JdkInstallation;
 import io.foojay.api.discoclient.pkg.Feature;
 import io.foojay.api.discoclient.pkg.MajorVersion;
 import io.foojay.api.discoclient.pkg.Pkg;
+import io.foojay.api.discoclient.pkg.PkgPublisher;
+import io.foojay.api.discoclient.pkg.PkgReader;
+import io.foojay.api.discoclient.pkg.PkgTable;
 import io.foojay.api.discoclient.pkg.Scope;
+import io.foojay.api.discoclient.util.BulkResult;
+import io.foojay.api.discoclient.util.CompactIdSet;
 import io.foojay.api.discoclient.util.Constants;
 import io.foojay.api.discoclient.util.Helper;
 import io.foojay.api.discoclient.util.PkgInfo;
-import io.foojay.api.discoclient.util.ReadableConsumerByteChannel;
+import io.foojay.api.discoclient.util.TokenBucket;
+import io.foojay.api.discoclient.util.TtlCache;
+import io.foojay.api.discoclient.util.UpdateResult;
 
 import java.io.BufferedReader;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.UncheckedIOException;
 import java.net.http.HttpResponse;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static io.foojay.api.discoclient.util.Constants.API_VERSION_V3;
 import static io.foojay.api.discoclient.util.Constants.PROPERTY_KEY_DISCO_VERSION;
@@ -91,33 +117,98 @@ import static io.foojay.api.discoclient.util.Constants.PROPERTY_KEY_DISTRIBUTION
 
 public class DiscoClient {
     public static final  ConcurrentHashMap<String, List<Scope>> SCOPE_LOOKUP         = new ConcurrentHashMap<>();
-    private static final Map<String, Distribution>              DISTRIBUTIONS        = new ConcurrentHashMap<>();
+    private static volatile Map<String, Distribution>           DISTRIBUTIONS        = Map.of();
     private static final String[]                               DETECT_ALPINE_CMDS   = { "/bin/sh", "-c", "cat /etc/os-release | grep 'NAME=' | grep -ic 'Alpine'" };
     private static final String[]                               UX_DETECT_ARCH_CMDS  = { "/bin/sh", "-c", "uname -m" };
     private static final String[]                               WIN_DETECT_ARCH_CMDS = { "cmd", "-c", "echo %PROCESSOR_ARCHITECTURE%" };
     private final        Map<String, List<EvtObserver>>         observers            = new ConcurrentHashMap<>();
-    private final        List<MajorVersion>                     majorVersions        = new CopyOnWriteArrayList<>();
+    private volatile     List<MajorVersion>                     majorVersions        = List.of();
     private static       AtomicBoolean                          initialized          = new AtomicBoolean(false);
     private              String                                 userAgent            = "";
-    private              long                                   lastUpdate           = Instant.now().getEpochSecond();
+    private volatile     long                                   lastUpdate           = Instant.now().getEpochSecond();
+    private volatile     long                                   majorVersionsMaxAge  = Constants.SECONDS_PER_HOUR;
+    private final        AtomicBoolean                          majorVersionsRefresh = new AtomicBoolean(false);
+    private              ScheduledExecutorService               catalogWatcher       = null;
+    private final        TtlCache<String, PkgInfo>              pkgInfoCache         = new TtlCache<>(Constants.SECONDS_PER_HOUR, Constants.NEGATIVE_CACHE_TTL, TimeUnit.SECONDS);
+    private final        TtlCache<String, PkgInfo>              pkgInfoByIdCache     = new TtlCache<>(Constants.SECONDS_PER_HOUR, Constants.NEGATIVE_CACHE_TTL, TimeUnit.SECONDS);
+    private final        TtlCache<String, Pkg>                  pkgCache             = new TtlCache<>(Constants.SECONDS_PER_HOUR, Constants.NEGATIVE_CACHE_TTL, TimeUnit.SECONDS);
+    private volatile     CatalogSnapshot                        snapshot             = null;
+    private final        Downloader                             downloader           = new Downloader(this);
+    private final        DownloadManager                        downloadManager      = new DownloadManager(downloader);
+    private final        ArchiveExtractor                       archiveExtractor     = new ArchiveExtractor(this);
+    private volatile     ArtifactCache                          artifactCache        = null;
+    private volatile     LocalCatalog                           localCatalog         = null;
+    private volatile     long                                   maxSnapshotAge       = Constants.SECONDS_PER_DAY;
+    private final        Path                                   snapshotPath;
 
 
     public DiscoClient() {
         this("");
     }
     public DiscoClient(final String userAgent) {
-        this.userAgent = userAgent;
+        this(userAgent, false);
+    }
+    /**
+     * Creates a client that takes the distributions, major versions and packages from the
+     * snapshot file in the home folder if startFromSnapshot is true and a valid snapshot exists.
+     * In this case no request is made in the constructor and the snapshot is refreshed in the background.
+     * @param userAgent User agent that will be used for the requests
+     * @param startFromSnapshot If true the client will be initialized from the last saved snapshot
+     */
+    public DiscoClient(final String userAgent, final boolean startFromSnapshot) {
+        this(userAgent, startFromSnapshot, false);
+    }
+    /**
+     * Creates a client that answers all queries from the snapshot file in the home folder if offline is true.
+     * In offline mode no request will be made, neither in the constructor nor in the query methods. If no
+     * snapshot exists, the distributions bundled with the library are used and all package queries return
+     * empty results. Use {@link #getSnapshotAgeInSeconds()} and {@link #isSnapshotStale()} to find out how
+     * old the data is.
+     * @param userAgent User agent that will be used for the requests
+     * @param startFromSnapshot If true the client will be initialized from the last saved snapshot
+     * @param offline If true all queries will be answered from the snapshot without network access
+     */
+    public DiscoClient(final String userAgent, final boolean startFromSnapshot, final boolean offline) {
+        this(userAgent, startFromSnapshot, offline, Paths.get(Constants.HOME_FOLDER, Constants.SNAPSHOT_FILE_NAME));
+    }
+    /**
+     * Creates a client that loads and saves its snapshot at the given path instead of the home folder.
+     * @param userAgent User agent that will be used for the requests
+     * @param startFromSnapshot If true the client will be initialized from the last saved snapshot
+     * @param offline If true all queries will be answered from the snapshot without network access
+     * @param snapshotPath File the snapshot will be loaded from and saved to
+     */
+    public DiscoClient(final String userAgent, final boolean startFromSnapshot, final boolean offline, final Path snapshotPath) {
+        if (null == snapshotPath) { throw new IllegalArgumentException("snapshotPath cannot be null"); }
+        this.userAgent    = userAgent;
+        this.snapshotPath = snapshotPath;
         PropertyManager.INSTANCE.set(PROPERTY_KEY_DISCO_VERSION, API_VERSION_V3);
+        if (startFromSnapshot || offline) {
+            final Optional<CatalogSnapshot> snapshotFound = loadSnapshot();
+            if (snapshotFound.isPresent()) {
+                applySnapshot(snapshotFound.get());
+                if (offline) {
+                    setOffline(true);
+                } else {
+                    refreshSnapshotAsync();
+                }
+                return;
+            }
+        }
+        if (offline) {
+            preloadBundledDistributions();
+            setOffline(true);
+            return;
+        }
         preloadDistributions();
-        this.majorVersions.addAll(getAllMajorVersions(Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE),Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE)));
+        this.majorVersions = List.copyOf(getAllMajorVersions(Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE),Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE)));
     }
 
 
     private static void preloadDistributions() {
         Helper.preloadDistributions().thenAccept(distros -> {
-            DISTRIBUTIONS.putAll(distros);
-            DISTRIBUTIONS.entrySet().stream().forEach(entry -> SCOPE_LOOKUP.put(entry.getKey(), entry.getValue().getScopes()));
-            Helper.getAsync(PropertyManager.INSTANCE.getString(PROPERTY_KEY_DISTRIBUTION_JSON_URL), "").thenAccept(response -> {
+            setDistributions(distros);
+            Helper.getAsync(PropertyManager.INSTANCE.getString(PROPERTY_KEY_DISTRIBUTION_JSON_URL), "").whenComplete((response, throwable) -> {
                 if (null != response) {
                     if (response.statusCode() == 200) {
                         String                    jsonText           = response.body();
@@ -125,10 +216,7 @@ public class DiscoClient {
                         if (!jsonText.isEmpty()) {
                             distributionsFound.putAll(Helper.getDistributionsFromJsonText(jsonText));
                         }
-                        if (!distributionsFound.isEmpty()) {
-                            DISTRIBUTIONS.clear();
-                            DISTRIBUTIONS.putAll(distributionsFound);
-                        }
+                        if (!distributionsFound.isEmpty()) { setDistributions(distributionsFound); }
                     }
                 }
                 initialized.set(true);
@@ -136,10 +224,71 @@ public class DiscoClient {
         });
     }
 
+    private static void preloadBundledDistributions() {
+        if (!DISTRIBUTIONS.isEmpty()) { return; }
+        setDistributions(Helper.preloadDistributions().join());
+        initialized.set(true);
+    }
+
+    /**
+     * Replaces the known distributions, readers always see either the old or the new map.
+     */
+    private static void setDistributions(final Map<String, Distribution> distributions) {
+        final Map<String, Distribution> distributionsFound = Map.copyOf(distributions);
+        distributionsFound.forEach((apiString, distribution) -> SCOPE_LOOKUP.put(apiString, distribution.getScopes()));
+        DISTRIBUTIONS = distributionsFound;
+    }
+
     public boolean isInitialzed() { return initialized.get(); }
 
 
+    /**
+     * Returns true if all queries are answered from the local snapshot without network access.
+     * @return True if the client is in offline mode
+     */
+    public boolean isOffline() { return null != localCatalog; }
+    /**
+     * Switches the offline mode on or off. When switched on, the last loaded or saved snapshot will be used
+     * to answer the queries. If there is no snapshot, the currently known distributions and major versions are used.
+     * @param offline If true all queries will be answered from the local snapshot
+     */
+    public void setOffline(final boolean offline) {
+        if (offline) {
+            final CatalogSnapshot current = snapshot;
+            localCatalog = new LocalCatalog(null == current ? new CatalogSnapshot(0, DISTRIBUTIONS.values(), majorVersions, null) : current);
+        } else {
+            localCatalog = null;
+        }
+    }
+
+    /**
+     * Returns the age of the data the client works with in offline mode or that was loaded from the snapshot.
+     * @return Age of the snapshot in seconds or -1 if there is no snapshot
+     */
+    public long getSnapshotAgeInSeconds() {
+        final CatalogSnapshot current = snapshot;
+        return null == current ? -1 : current.getAgeInSeconds();
+    }
+
+    /**
+     * Returns true if there is no snapshot or if the snapshot is older than the max snapshot age (one day by default).
+     * @return True if the snapshot is missing or older than the max snapshot age
+     */
+    public boolean isSnapshotStale() {
+        final long age = getSnapshotAgeInSeconds();
+        return age < 0 || age > maxSnapshotAge;
+    }
+
+    public long getMaxSnapshotAge() { return maxSnapshotAge; }
+    public void setMaxSnapshotAge(final long seconds) {
+        if (seconds < 0) { throw new IllegalArgumentException("Max snapshot age cannot be negative"); }
+        this.maxSnapshotAge = seconds;
+    }
+
+
     public Queue<Pkg> getAllPackages() {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return new ConcurrentLinkedQueue<>(local.getAllPackages()); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getPackagesPath())
                                                         .append("?release_status=ea")
@@ -167,6 +316,8 @@ public class DiscoClient {
         return pkgs;
     }
     public CompletableFuture<Queue<Pkg>> getAllPackagesAsync() {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(new ConcurrentLinkedQueue<>(local.getAllPackages())); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getPackagesPath())
                                                         .append("?release_status=ea")
@@ -190,6 +341,328 @@ public class DiscoClient {
         return future;
     }
 
+    /**
+     * Returns a publisher that parses the packages while the response is still being received
+     * and only reads as many packages as the subscriber requested.
+     * @return Publisher of all ea and ga packages
+     */
+    public Flow.Publisher<Pkg> getAllPackagesPublisher() {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return new PkgPublisher(() -> local.getAllPackages().iterator()); }
+        StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
+                                                        .append(PropertyManager.INSTANCE.getPackagesPath())
+                                                        .append("?release_status=ea")
+                                                        .append("&release_status=ga");
+        String query = queryBuilder.toString();
+        return new PkgPublisher(() -> openPkgReader(query));
+    }
+
+    /**
+     * Opens a reader on the response of the given query, failed requests and error status codes are
+     * thrown instead of producing an empty result.
+     */
+    private PkgReader openPkgReader(final String query) throws IOException {
+        final HttpResponse<InputStream> response;
+        try {
+            response = Helper.getAsync(query, BodyHandlers.ofInputStream(), userAgent).join();
+        } catch (CompletionException e) {
+            throw new IOException("Request " + query + " failed", null == e.getCause() ? e : e.getCause());
+        }
+        final PkgReader reader = new PkgReader(response.body());
+        if (200 != response.statusCode()) {
+            reader.close();
+            throw new IOException("Request " + query + " failed with status " + response.statusCode());
+        }
+        return reader;
+    }
+
+    public Stream<Pkg> getAllPackagesStream() { return getAllPackagesStream(true); }
+    /**
+     * Returns a lazy stream of all ea and ga packages that parses the packages while they are consumed,
+     * so the catalog is never held in memory as a whole. The stream has to be closed to release the connection.
+     * @param distinct If true packages are deduplicated on their id by using a CompactIdSet
+     * @return Lazy stream of all ea and ga packages
+     * @throws UncheckedIOException if the request failed or was answered with an error status
+     */
+    public Stream<Pkg> getAllPackagesStream(final boolean distinct) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return local.getAllPackages().stream(); }
+        StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
+                                                        .append(PropertyManager.INSTANCE.getPackagesPath())
+                                                        .append("?release_status=ea")
+                                                        .append("&release_status=ga");
+        String query = queryBuilder.toString();
+        // A failed request must not look like an empty catalog
+        final PkgReader reader;
+        try {
+            reader = openPkgReader(query);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final Stream<Pkg> pkgs = StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(reader::close);
+        if (distinct) {
+            final CompactIdSet idsFound = new CompactIdSet();
+            return pkgs.filter(pkg -> idsFound.add(pkg.getId()));
+        }
+        return pkgs;
+    }
+
+    public PkgTable getAllPackagesAsTable() {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return local.getSnapshot().getPkgTable(); }
+        StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
+                                                        .append(PropertyManager.INSTANCE.getPackagesPath())
+                                                        .append("?release_status=ea")
+                                                        .append("&release_status=ga");
+        HttpResponse<String> response = Helper.get(queryBuilder.toString(), userAgent);
+        if (null == response) { return PkgTable.fromJson(""); }
+        return PkgTable.fromJson(response.body());
+    }
+    public CompletableFuture<PkgTable> getAllPackagesAsTableAsync() {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getSnapshot().getPkgTable()); }
+        StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
+                                                        .append(PropertyManager.INSTANCE.getPackagesPath())
+                                                        .append("?release_status=ea")
+                                                        .append("&release_status=ga");
+        return Helper.getAsync(queryBuilder.toString(), userAgent).thenApply(response -> PkgTable.fromJson(response.body()));
+    }
+
+    public Path getCatalogPath() { return Paths.get(Constants.HOME_FOLDER, Constants.CATALOG_FILE_NAME); }
+
+    /**
+     * Saves the given table as catalog file in the home folder, so that it can
+     * be opened by other processes via {@link #openCatalog()}.
+     * @param table Table to save
+     * @return true if the catalog file was written
+     */
+    public boolean saveCatalog(final PkgTable table) {
+        if (null == table) { return false; }
+        try {
+            table.save(getCatalogPath());
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens the catalog file in the home folder as memory mapped table.
+     * The values of the packages are read from the mapped file on access and
+     * are shared with all other processes that opened the same catalog.
+     * @return The memory mapped table or an empty optional if no valid catalog file exists
+     */
+    public Optional<PkgTable> openCatalog() {
+        final Path catalogPath = getCatalogPath();
+        if (!Files.exists(catalogPath)) { return Optional.empty(); }
+        try {
+            return Optional.of(PkgTable.map(catalogPath));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    public Path getSnapshotPath() { return snapshotPath; }
+
+    public Optional<CatalogSnapshot> getSnapshot() { return Optional.ofNullable(snapshot); }
+
+    /**
+     * Returns the facet counts of the current snapshot, they are computed once per snapshot.
+     * @return Number of packages per distribution, major version and enum column value of the current snapshot
+     */
+    public Optional<FacetCounts> getFacetCounts() { return getSnapshot().map(CatalogSnapshot::getFacetCounts); }
+
+    /**
+     * Creates a snapshot of the currently known distributions and major versions.
+     * @param includePackages If true all packages will be fetched and added to the snapshot
+     * @return Snapshot of the current state of the client
+     */
+    public CatalogSnapshot createSnapshot(final boolean includePackages) {
+        return new CatalogSnapshot(DISTRIBUTIONS.values(), majorVersions, includePackages ? getAllPackagesAsTable() : null, getKnownPkgInfos());
+    }
+
+    /**
+     * Fetches the package infos (download uris and checksums) for the given package ids, so that they
+     * will be part of the next snapshot and can be looked up in offline mode.
+     * @param pkgIds Ids of the packages that should be available in offline mode
+     * @return Number of package infos that could be fetched
+     */
+    public int capturePkgInfos(final Collection<String> pkgIds) {
+        if (null == pkgIds || isOffline()) { return 0; }
+        final CatalogSnapshot current = snapshot;
+        final PkgTable        table   = null == current ? null : current.getPkgTable();
+        int captured = 0;
+        for (String pkgId : pkgIds) {
+            final int    row         = null == table ? -1 : table.indexOf(pkgId);
+            final Semver javaVersion = row < 0 ? Optional.ofNullable(getPkg(pkgId)).map(Pkg::getJavaVersion).orElse(null) : Semver.fromText(table.getJavaVersion(row)).getSemver1();
+            if (null == javaVersion) { continue; }
+            if (null != getPkgInfoByPkgId(pkgId, javaVersion)) { captured++; }
+        }
+        return captured;
+    }
+
+    private Map<String, PkgInfo> getKnownPkgInfos() {
+        final CatalogSnapshot      current    = snapshot;
+        final Map<String, PkgInfo> knownInfos = new HashMap<>();
+        if (null != current) { knownInfos.putAll(current.getPkgInfos()); }
+        knownInfos.putAll(pkgInfoCache.getValues());
+        knownInfos.putAll(pkgInfoByIdCache.getValues());
+        return knownInfos;
+    }
+
+    public boolean saveSnapshot(final CatalogSnapshot snapshot) {
+        if (null == snapshot) { return false; }
+        try {
+            snapshot.save(getSnapshotPath());
+            this.snapshot = snapshot;
+            if (isOffline()) { localCatalog = new LocalCatalog(snapshot); }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public Optional<CatalogSnapshot> loadSnapshot() {
+        final Path snapshotPath = getSnapshotPath();
+        if (!Files.exists(snapshotPath)) { return Optional.empty(); }
+        try {
+            return Optional.of(CatalogSnapshot.load(snapshotPath));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Fetches the distributions and major versions (and the packages if the current snapshot contains packages),
+     * updates the client with the results and saves them as new snapshot.
+     * @return The new snapshot
+     */
+    public CompletableFuture<CatalogSnapshot> refreshSnapshotAsync() {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getSnapshot()); }
+        final CatalogSnapshot                              current             = snapshot;
+        final CompletableFuture<Map<String, Distribution>> distributionsFuture = Helper.getAsync(PropertyManager.INSTANCE.getString(PROPERTY_KEY_DISTRIBUTION_JSON_URL), "").thenApply(response -> {
+            if (null == response || response.statusCode() != 200 || response.body().isEmpty()) { return Map.of(); }
+            return Helper.getDistributionsFromJsonText(response.body());
+        });
+        final CompletableFuture<List<MajorVersion>>        majorVersionsFuture = getAllMajorVersionsAsync(Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE));
+        final CompletableFuture<PkgTable>                  pkgTableFuture      = (null != current && !current.getPkgTable().isEmpty()) ? getAllPackagesAsTableAsync() : CompletableFuture.completedFuture(null);
+
+        return CompletableFuture.allOf(distributionsFuture, majorVersionsFuture, pkgTableFuture).thenApply(v -> {
+            final Map<String, Distribution> distributionsFound = distributionsFuture.join();
+            if (!distributionsFound.isEmpty()) { setDistributions(distributionsFound); }
+            final List<MajorVersion> majorVersionsFound = majorVersionsFuture.join();
+            if (!majorVersionsFound.isEmpty()) {
+                majorVersions = List.copyOf(majorVersionsFound);
+                lastUpdate    = Instant.now().getEpochSecond();
+            }
+            PkgTable pkgTable = pkgTableFuture.join();
+            if ((null == pkgTable || pkgTable.isEmpty()) && null != current) { pkgTable = current.getPkgTable(); }
+
+            final CatalogSnapshot refreshedSnapshot = new CatalogSnapshot(DISTRIBUTIONS.values(), majorVersions, pkgTable, getKnownPkgInfos());
+            if (!saveSnapshot(refreshedSnapshot)) { snapshot = refreshedSnapshot; }
+            return refreshedSnapshot;
+        });
+    }
+
+    private void applySnapshot(final CatalogSnapshot snapshot) {
+        if (!snapshot.getDistributions().isEmpty()) {
+            setDistributions(snapshot.getDistributionsByApiString());
+            initialized.set(true);
+        }
+        if (!snapshot.getMajorVersions().isEmpty()) { majorVersions = List.copyOf(snapshot.getMajorVersions()); }
+        lastUpdate    = snapshot.getCreatedAt();
+        this.snapshot = snapshot;
+        if (isOffline()) { localCatalog = new LocalCatalog(snapshot); }
+    }
+
+    /**
+     * Fetches all packages, saves them as catalog file and returns the memory mapped catalog.
+     * @return The memory mapped catalog or the fetched table if the catalog could not be saved
+     */
+    public PkgTable updateCatalog() {
+        final PkgTable table = getAllPackagesAsTable();
+        if (table.isEmpty() || !saveCatalog(table)) { return table; }
+        return openCatalog().orElse(table);
+    }
+
+
+    /**
+     * Starts a background watcher that checks the distributions, the major versions and the packages
+     * in the given interval and fires CatalogEvt events for the changes it finds (DISTRIBUTIONS_CHANGED,
+     * NEW_MAJOR_VERSION, CATALOG_UPDATED, PKG_ADDED and PKG_REMOVED). All observers registered with
+     * setOnEvt() share this one watcher. The first check only records the current state, unless a
+     * snapshot with packages is available which is then used as the starting point.
+     * A running watcher will be replaced. In offline mode the watcher does nothing.
+     * @param interval Time between two checks
+     * @param timeUnit Unit of the interval
+     */
+    public synchronized void startCatalogWatcher(final long interval, final TimeUnit timeUnit) {
+        if (interval <= 0 || null == timeUnit) { throw new IllegalArgumentException("Interval must be larger than 0"); }
+        stopCatalogWatcher();
+        final CatalogSync     sync    = new CatalogSync(this);
+        final CatalogSnapshot current = snapshot;
+        if (null != current && !current.getPkgTable().isEmpty()) { sync.apply(current.getPkgTable(), false); }
+        catalogWatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "discoclient-catalog-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        catalogWatcher.scheduleWithFixedDelay(() -> checkCatalog(sync), 0, interval, timeUnit);
+    }
+
+    public synchronized void stopCatalogWatcher() {
+        if (null == catalogWatcher) { return; }
+        catalogWatcher.shutdownNow();
+        catalogWatcher = null;
+    }
+
+    public synchronized boolean isCatalogWatcherRunning() { return null != catalogWatcher; }
+
+    private void checkCatalog(final CatalogSync sync) {
+        if (isOffline()) { return; }
+        try {
+            checkDistributions();
+            checkMajorVersions();
+
+            final boolean  baseline = 0 == sync.size();
+            final PkgTable table    = getAllPackagesAsTable();
+            if (table.isEmpty()) { return; }
+            final CatalogDelta delta = sync.apply(table, false);
+            if (baseline || delta.isEmpty()) { return; }
+            fireEvt(new CatalogEvt(this, CatalogEvt.CATALOG_UPDATED, delta));
+            if (!delta.getAdded().isEmpty()) {
+                fireEvt(new CatalogEvt(this, CatalogEvt.PKG_ADDED, new CatalogDelta(delta.getAdded(), List.of(), delta.getTimestamp())));
+            }
+            if (!delta.getRemoved().isEmpty()) {
+                fireEvt(new CatalogEvt(this, CatalogEvt.PKG_REMOVED, new CatalogDelta(List.of(), delta.getRemoved(), delta.getTimestamp())));
+            }
+        } catch (RuntimeException e) {
+            // Keep the watcher alive, the next check will try again
+        }
+    }
+
+    private void checkDistributions() {
+        final HttpResponse<String> response = Helper.get(PropertyManager.INSTANCE.getString(PROPERTY_KEY_DISTRIBUTION_JSON_URL), userAgent);
+        if (null == response || response.statusCode() != 200 || response.body().isEmpty()) { return; }
+        final Map<String, Distribution> distributionsFound = Helper.getDistributionsFromJsonText(response.body());
+        if (distributionsFound.isEmpty() || distributionsFound.keySet().equals(DISTRIBUTIONS.keySet())) { return; }
+        setDistributions(distributionsFound);
+        fireEvt(new CatalogEvt(this, CatalogEvt.DISTRIBUTIONS_CHANGED, null, List.of(), new ArrayList<>(distributionsFound.values())));
+    }
+
+    private void checkMajorVersions() {
+        final List<MajorVersion> majorVersionsFound = getAllMajorVersions(Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE));
+        if (majorVersionsFound.isEmpty()) { return; }
+        final Set<Integer>       knownFeatureVersions = majorVersions.stream().map(MajorVersion::getAsInt).collect(Collectors.toSet());
+        final List<MajorVersion> newMajorVersions     = majorVersionsFound.stream().filter(majorVersion -> !knownFeatureVersions.contains(majorVersion.getAsInt())).collect(Collectors.toList());
+        majorVersions = List.copyOf(majorVersionsFound);
+        lastUpdate    = Instant.now().getEpochSecond();
+        if (!knownFeatureVersions.isEmpty() && !newMajorVersions.isEmpty()) {
+            fireEvt(new CatalogEvt(this, CatalogEvt.NEW_MAJOR_VERSION, null, newMajorVersions, List.of()));
+        }
+    }
+
 
     public List<Pkg> getPkgs(final List<Distribution> distributions, final VersionNumber versionNumber, final Latest latest, final OperatingSystem operatingSystem,
                              final LibCType libcType, final Architecture architecture, final Bitness bitness, final ArchiveType archiveType, final PackageType packageType,
@@ -199,7 +672,111 @@ public class DiscoClient {
     public List<Pkg> getPkgs(final List<Distribution> distributions, final VersionNumber versionNumber, final Latest latest, final OperatingSystem operatingSystem,
                              final LibCType libcType, final Architecture architecture, final Bitness bitness, final ArchiveType archiveType, final PackageType packageType,
                              final Boolean javafxBundled, final Boolean directlyDownloadable, final List<ReleaseStatus> releaseStatus, final TermOfSupport termOfSupport, final List<String> ftrs, final List<Scope> scopes, final Match match) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return local.getPkgs(distributions, versionNumber, latest, operatingSystem, libcType, architecture, bitness, archiveType, packageType, javafxBundled, directlyDownloadable, releaseStatus, termOfSupport, ftrs, scopes, match); }
+
+        String query = createPkgsQuery(distributions, versionNumber, latest, operatingSystem, libcType, architecture, bitness, archiveType, packageType, javafxBundled, directlyDownloadable, releaseStatus, termOfSupport, ftrs, scopes, match);
+        if (query.isEmpty()) { return new ArrayList(); }
+
+        HttpResponse<String> response = Helper.get(query, userAgent);
+        if (null == response || null == response.body()) { return new LinkedList<>(); }
+        return parsePkgs(response.body());
+    }
+
+    public CompletableFuture<List<Pkg>> getPkgsAsync(final List<Distribution> distributions, final VersionNumber versionNumber, final Latest latest, final OperatingSystem operatingSystem,
+                                                     final LibCType libCType, final Architecture architecture, final Bitness bitness, final ArchiveType archiveType, final PackageType packageType,
+                                                     final Boolean javafxBundled, final Boolean directlyDownloadable, final List<ReleaseStatus> releaseStatus, final TermOfSupport termOfSupport, final List<Scope> scopes, final Match match) {
+        return getPkgsAsync(distributions, versionNumber, latest, operatingSystem, libCType, architecture, bitness, archiveType, packageType, javafxBundled, directlyDownloadable, releaseStatus, termOfSupport, new ArrayList<>(), scopes, match);
+    }
+    public CompletableFuture<List<Pkg>> getPkgsAsync(final List<Distribution> distributions, final VersionNumber versionNumber, final Latest latest, final OperatingSystem operatingSystem,
+                                                 final LibCType libCType, final Architecture architecture, final Bitness bitness, final ArchiveType archiveType, final PackageType packageType,
+                                                 final Boolean javafxBundled, final Boolean directlyDownloadable, final List<ReleaseStatus> releaseStatus, final TermOfSupport termOfSupport, final List<String> ftrs, final List<Scope> scopes, final Match match) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getPkgs(distributions, versionNumber, latest, operatingSystem, libCType, architecture, bitness, archiveType, packageType, javafxBundled, directlyDownloadable, releaseStatus, termOfSupport, ftrs, scopes, match)); }
+
+        String query = createPkgsQuery(distributions, versionNumber, latest, operatingSystem, libCType, architecture, bitness, archiveType, packageType, javafxBundled, directlyDownloadable, releaseStatus, termOfSupport, ftrs, scopes, match);
+        if (query.isEmpty()) { return new CompletableFuture<>(); }
+
+        return Helper.getAsync(query, userAgent).thenApply(response -> parsePkgs(response.body()));
+    }
+
+    /**
+     * Returns a publisher that parses the packages while the response is still being received
+     * and only reads as many packages as the subscriber requested.
+     * @return Publisher of the packages that match the given parameters
+     */
+    public Flow.Publisher<Pkg> getPkgsPublisher(final List<Distribution> distributions, final VersionNumber versionNumber, final Latest latest, final OperatingSystem operatingSystem,
+                                                final LibCType libCType, final Architecture architecture, final Bitness bitness, final ArchiveType archiveType, final PackageType packageType,
+                                                final Boolean javafxBundled, final Boolean directlyDownloadable, final List<ReleaseStatus> releaseStatus, final TermOfSupport termOfSupport, final List<String> ftrs, final List<Scope> scopes, final Match match) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return new PkgPublisher(() -> local.getPkgs(distributions, versionNumber, latest, operatingSystem, libCType, architecture, bitness, archiveType, packageType, javafxBundled, directlyDownloadable, releaseStatus, termOfSupport, ftrs, scopes, match).iterator()); }
+
+        String query = createPkgsQuery(distributions, versionNumber, latest, operatingSystem, libCType, architecture, bitness, archiveType, packageType, javafxBundled, directlyDownloadable, releaseStatus, termOfSupport, ftrs, scopes, match);
+        return new PkgPublisher(() -> openPkgReader(query));
+    }
+
+    /**
+     * Splits the query into one request per distribution (or per release status if only one distribution is given)
+     * and runs them in parallel. Each response is parsed as soon as it arrives and the packages that were not seen
+     * before are handed to the given consumer. Queries for the latest packages across distributions or release
+     * status are not split because the partitions would not see each others packages.
+     * If a partition fails, the packages of the other partitions are still handed to the consumer but the
+     * returned future completes exceptionally with an IOException that carries the failures as suppressed exceptions.
+     * @return Future with all packages found, deduplicated on the package id
+     */
+    public CompletableFuture<List<Pkg>> getPkgsFanOutAsync(final List<Distribution> distributions, final VersionNumber versionNumber, final Latest latest, final OperatingSystem operatingSystem,
+                                                           final LibCType libCType, final Architecture architecture, final Bitness bitness, final ArchiveType archiveType, final PackageType packageType,
+                                                           final Boolean javafxBundled, final Boolean directlyDownloadable, final List<ReleaseStatus> releaseStatus, final TermOfSupport termOfSupport, final List<String> ftrs, final List<Scope> scopes, final Match match,
+                                                           final Consumer<List<Pkg>> consumer) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) {
+            final List<Pkg> pkgs = local.getPkgs(distributions, versionNumber, latest, operatingSystem, libCType, architecture, bitness, archiveType, packageType, javafxBundled, directlyDownloadable, releaseStatus, termOfSupport, ftrs, scopes, match);
+            if (null != consumer && !pkgs.isEmpty()) { consumer.accept(pkgs); }
+            return CompletableFuture.completedFuture(pkgs);
+        }
+
+        final boolean             noLatest             = null == latest || Latest.NONE == latest || Latest.NOT_FOUND == latest;
+        final List<Distribution>  distributionsToQuery = null == distributions ? List.of() : distributions.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        final List<ReleaseStatus> releaseStatusToQuery = null == releaseStatus ? List.of() : releaseStatus.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        final List<String>        queries              = new ArrayList<>();
+        if ((noLatest || Latest.PER_DISTRIBUTION == latest) && distributionsToQuery.size() > 1) {
+            distributionsToQuery.forEach(distribution -> queries.add(createPkgsQuery(List.of(distribution), versionNumber, latest, operatingSystem, libCType, architecture, bitness, archiveType, packageType, javafxBundled, directlyDownloadable, releaseStatus, termOfSupport, ftrs, scopes, match)));
+        } else if (noLatest && releaseStatusToQuery.size() > 1) {
+            releaseStatusToQuery.forEach(rs -> queries.add(createPkgsQuery(distributions, versionNumber, latest, operatingSystem, libCType, architecture, bitness, archiveType, packageType, javafxBundled, directlyDownloadable, List.of(rs), termOfSupport, ftrs, scopes, match)));
+        } else {
+            queries.add(createPkgsQuery(distributions, versionNumber, latest, operatingSystem, libCType, architecture, bitness, archiveType, packageType, javafxBundled, directlyDownloadable, releaseStatus, termOfSupport, ftrs, scopes, match));
+        }
+
+        final Map<String, Pkg>       pkgsFound  = new LinkedHashMap<>();
+        final Map<String, Throwable> failures   = new ConcurrentHashMap<>();
+        final CompletableFuture<?>[] partitions = queries.stream()
+                                                         .map(query -> Helper.getAsync(query, userAgent)
+                                                                             .thenApplyAsync(response -> parsePkgs(successfulBody(response, query)))
+                                                                             .thenAccept(pkgs -> {
+                                                                                 final List<Pkg> newPkgs = new ArrayList<>();
+                                                                                 synchronized (pkgsFound) {
+                                                                                     pkgs.forEach(pkg -> { if (null == pkgsFound.putIfAbsent(pkg.getId(), pkg)) { newPkgs.add(pkg); } });
+                                                                                 }
+                                                                                 if (null != consumer && !newPkgs.isEmpty()) { consumer.accept(newPkgs); }
+                                                                             })
+                                                                             .whenComplete((v, throwable) -> {
+                                                                                 if (null != throwable) { failures.put(query, throwable instanceof CompletionException && null != throwable.getCause() ? throwable.getCause() : throwable); }
+                                                                             }))
+                                                         .toArray(CompletableFuture<?>[]::new);
+        return CompletableFuture.allOf(partitions).handle((v, throwable) -> {
+            if (!failures.isEmpty()) {
+                final IOException exception = new IOException(failures.size() + " of " + queries.size() + " partitions failed");
+                failures.values().forEach(exception::addSuppressed);
+                throw new CompletionException(exception);
+            }
+            synchronized (pkgsFound) { return new ArrayList<>(pkgsFound.values()); }
+        });
+    }
 
+
+    private String createPkgsQuery(final List<Distribution> distributions, final VersionNumber versionNumber, final Latest latest, final OperatingSystem operatingSystem,
+                                   final LibCType libcType, final Architecture architecture, final Bitness bitness, final ArchiveType archiveType, final PackageType packageType,
+                                   final Boolean javafxBundled, final Boolean directlyDownloadable, final List<ReleaseStatus> releaseStatus, final TermOfSupport termOfSupport, final List<String> ftrs, final List<Scope> scopes, final Match match) {
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getPackagesPath());
         final int initialLength = queryBuilder.length();
@@ -316,166 +893,18 @@ public class DiscoClient {
             });
         }
 
-        String query = queryBuilder.toString();
-        if (query.isEmpty()) { return new ArrayList(); }
-
-        List<Pkg>            pkgs     = new LinkedList<>();
-
-        HttpResponse<String> response = Helper.get(query, userAgent);
-        if (null == response.body()) { return pkgs; }
-
-        String      bodyText = response.body();
-        Set<Pkg>    pkgsFound = new HashSet<>();
-        Gson        gson      = new Gson();
-        JsonElement element   = gson.fromJson(bodyText, JsonElement.class);
-        if (element instanceof JsonObject) {
-            JsonObject jsonObject = element.getAsJsonObject();
-            JsonArray jsonArray = jsonObject.getAsJsonArray("result");
-            for (int i = 0; i < jsonArray.size(); i++) {
-                JsonObject pkgJsonObj = jsonArray.get(i).getAsJsonObject();
-                pkgsFound.add(new Pkg(pkgJsonObj.toString()));
-            }
-        }
-        pkgs.addAll(pkgsFound);
-        return pkgs;
-    }
-
-    public CompletableFuture<List<Pkg>> getPkgsAsync(final List<Distribution> distributions, final VersionNumber versionNumber, final Latest latest, final OperatingSystem operatingSystem,
-                                                     final LibCType libCType, final Architecture architecture, final Bitness bitness, final ArchiveType archiveType, final PackageType packageType,
-                                                     final Boolean javafxBundled, final Boolean directlyDownloadable, final List<ReleaseStatus> releaseStatus, final TermOfSupport termOfSupport, final List<Scope> scopes, final Match match) {
-        return getPkgsAsync(distributions, versionNumber, latest, operatingSystem, libCType, architecture, bitness, archiveType, packageType, javafxBundled, directlyDownloadable, releaseStatus, termOfSupport, new ArrayList<>(), scopes, match);
-    }
-    public CompletableFuture<List<Pkg>> getPkgsAsync(final List<Distribution> distributions, final VersionNumber versionNumber, final Latest latest, final OperatingSystem operatingSystem,
-                                                 final LibCType libCType, final Architecture architecture, final Bitness bitness, final ArchiveType archiveType, final PackageType packageType,
-                                                 final Boolean javafxBundled, final Boolean directlyDownloadable, final List<ReleaseStatus> releaseStatus, final TermOfSupport termOfSupport, final List<String> ftrs, final List<Scope> scopes, final Match match) {
-
-    StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
-                                                    .append(PropertyManager.INSTANCE.getPackagesPath());
-    final int initialLength = queryBuilder.length();
-
-    if (null != distributions && !distributions.isEmpty()) {
-        distributions.forEach(distribution -> {
-            if (null != distribution) {
-                queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-                queryBuilder.append(Constants.API_DISTRIBUTION).append("=").append(distribution.getApiString());
-            }
-        });
-    }
-
-    if (null != versionNumber) {
-        queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-        queryBuilder.append(Constants.API_VERSION).append("=").append(Helper.encodeValue(versionNumber.toString(OutputFormat.REDUCED_COMPRESSED, true, true)));
-    }
-
-    if (null != latest && Latest.NONE != latest && Latest.NOT_FOUND != latest) {
-        queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-        queryBuilder.append(Constants.API_LATEST).append("=").append(latest.getApiString());
-    }
-
-    if (null != operatingSystem && OperatingSystem.NONE != operatingSystem && OperatingSystem.NOT_FOUND != operatingSystem) {
-        queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-        queryBuilder.append(Constants.API_OPERATING_SYSTEM).append("=").append(operatingSystem.getApiString());
-    }
-
-    if (null != libCType && LibCType.NONE != libCType && LibCType.NOT_FOUND != libCType) {
-        queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-        queryBuilder.append(Constants.API_LIBC_TYPE).append("=").append(libCType.getApiString());
-    }
-
-    if (null != architecture && Architecture.NONE != architecture && Architecture.NOT_FOUND != architecture) {
-        queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-        queryBuilder.append(Constants.API_ARCHITECTURE).append("=").append(architecture.getApiString());
-    }
-
-    if (null != bitness && Bitness.NONE != bitness && Bitness.NOT_FOUND != bitness) {
-        queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-        queryBuilder.append(Constants.API_BITNESS).append("=").append(bitness.getApiString());
-    }
-
-    if (null != archiveType && ArchiveType.NONE != archiveType && ArchiveType.NOT_FOUND != archiveType) {
-        queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-        queryBuilder.append(Constants.API_ARCHIVE_TYPE).append("=").append(archiveType.getApiString());
-    }
-
-    if (null != packageType && PackageType.NONE != packageType && PackageType.NOT_FOUND != packageType) {
-        queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-        queryBuilder.append(Constants.API_PACKAGE_TYPE).append("=").append(packageType.getApiString());
-    }
-
-    if (null != scopes && !scopes.isEmpty()) {
-        scopes.forEach(scope -> {
-            if (null != scope && Scope.NONE != scope && Scope.NOT_FOUND != scope) {
-                queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-                queryBuilder.append(Constants.API_DISCOVERY_SCOPE_ID).append("=").append(scope.getApiString());
-            }
-        });
-    }
-
-    if (null != match && Match.NONE != match && Match.NOT_FOUND != match) {
-        queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-        queryBuilder.append(Constants.API_MATCH).append("=").append(match.getApiString());
-    }
-
-    if (null != javafxBundled) {
-        queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-        queryBuilder.append(Constants.API_JAVAFX_BUNDLED).append("=").append(javafxBundled);
+        return queryBuilder.toString();
     }
 
-    if (null != directlyDownloadable) {
-        queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-        queryBuilder.append(Constants.API_DIRECTLY_DOWNLOADABLE).append("=").append(directlyDownloadable);
-    }
-
-    if (null != releaseStatus && !releaseStatus.isEmpty()) {
-        releaseStatus.forEach(rs -> {
-            if (null != rs && ReleaseStatus.NONE != rs && ReleaseStatus.NOT_FOUND != rs) {
-                queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-                queryBuilder.append(Constants.API_RELEASE_STATUS).append("=").append(rs.getApiString());
-            }
-        });
-    }
-
-    if (null != termOfSupport && TermOfSupport.NONE != termOfSupport && TermOfSupport.NOT_FOUND != termOfSupport) {
-        queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-        queryBuilder.append(Constants.API_SUPPORT_TERM).append("=").append(termOfSupport.getApiString());
-    }
-
-    if (null != ftrs && !ftrs.isEmpty()) {
-        List<Feature> features;
-        if (ftrs.isEmpty()) {
-            features = new ArrayList<>();
-        } else {
-            Set<Feature> featuresFound = new HashSet<>();
-            for (String featureString : ftrs) {
-                Feature feat = Feature.fromText(featureString);
-                if (Feature.NOT_FOUND == feat || Feature.NONE == feat) {
-                    continue;
-                }
-                featuresFound.add(feat);
-            }
-            if (featuresFound.isEmpty()) {
-                features = new ArrayList();
-            } else {
-                features = new ArrayList<>(featuresFound);
-            }
-        }
-        features.forEach(feature -> {
-            queryBuilder.append(queryBuilder.length() == initialLength ? "?" : "&");
-            queryBuilder.append(Constants.API_FEATURE).append("=").append(feature.getApiString());
-        });
-    }
-
-    String query = queryBuilder.toString();
-    if (query.isEmpty()) { return new CompletableFuture<>(); }
-
-    return Helper.getAsync(query, userAgent).thenApply(response -> {
+    private List<Pkg> parsePkgs(final String bodyText) {
         List<Pkg>   pkgs      = new LinkedList<>();
         Set<Pkg>    pkgsFound = new HashSet<>();
         Gson        gson      = new Gson();
-        JsonElement element   = gson.fromJson(response.body(), JsonElement.class);
+        JsonElement element   = gson.fromJson(bodyText, JsonElement.class);
         if (element instanceof JsonObject) {
             JsonObject jsonObject = element.getAsJsonObject();
-            JsonArray jsonArray = jsonObject.getAsJsonArray("result");
+            JsonArray  jsonArray  = jsonObject.getAsJsonArray("result");
+            if (null == jsonArray) { return pkgs; }
             for (int i = 0; i < jsonArray.size(); i++) {
                 JsonObject pkgJsonObj = jsonArray.get(i).getAsJsonObject();
                 pkgsFound.add(new Pkg(pkgJsonObj.toString()));
@@ -483,8 +912,7 @@ public class DiscoClient {
         }
         pkgs.addAll(pkgsFound);
         return pkgs;
-    });
-}
+    }
 
 
     public String getPkgsAsJson(final List<Distribution> distributions, final VersionNumber versionNumber, final Latest latest, final OperatingSystem operatingSystem,
@@ -500,6 +928,8 @@ public class DiscoClient {
 
 
     public List<Pkg> getPkgsForFeatureVersion(final List<Distribution> distributions, final int featureVersion, final List<ReleaseStatus> releaseStatus, final Boolean directlyDownloadable, final List<Scope> scopes, final Match match) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return local.getPkgsForFeatureVersion(distributions, featureVersion, releaseStatus, directlyDownloadable, scopes, match); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getPackagesPath());
         final int initialLength = queryBuilder.length();
@@ -567,6 +997,8 @@ public class DiscoClient {
         return pkgs;
     }
     public CompletableFuture<List<Pkg>> getPkgsForFeatureVersionAsync(final List<Distribution> distributions, final int featureVersion, final List<ReleaseStatus> releaseStatus, final Boolean directlyDownloadable, final List<Scope> scopes, final Match match) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getPkgsForFeatureVersion(distributions, featureVersion, releaseStatus, directlyDownloadable, scopes, match)); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getPackagesPath());
         final int initialLength = queryBuilder.length();
@@ -632,6 +1064,8 @@ public class DiscoClient {
     }
 
     public final MajorVersion getMajorVersion(final String parameter) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return local.getMajorVersion(parameter); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getMajorVersionsPath());
         if (null != parameter || !parameter.isEmpty()) {
@@ -660,6 +1094,8 @@ public class DiscoClient {
         }
     }
     public final CompletableFuture<MajorVersion> getMajorVersionAsync(final String parameter) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getMajorVersion(parameter)); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getMajorVersionsPath());
         if (null != parameter || !parameter.isEmpty()) {
@@ -693,6 +1129,8 @@ public class DiscoClient {
     public final Queue<MajorVersion> getAllMajorVersions() { return getAllMajorVersions(false); }
     public final Queue<MajorVersion> getAllMajorVersions(final boolean include_ea) { return getAllMajorVersions(include_ea, true); }
     public final Queue<MajorVersion> getAllMajorVersions(final boolean include_ea, final boolean include_build) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return new ConcurrentLinkedQueue<>(local.getMajorVersions(null, include_ea, true)); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getMajorVersionsPath())
                                                         .append("?ea=")
@@ -716,6 +1154,8 @@ public class DiscoClient {
         return majorVersionsFound;
     }
     public final List<MajorVersion> getAllMajorVersions(final Optional<Boolean> maintained, final Optional<Boolean> include_ea, final Optional<Boolean> include_ga, final Optional<Boolean> include_build) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return local.getMajorVersions(null == maintained ? null : maintained.orElse(null), null != include_ea && include_ea.orElse(false), null == include_ga || include_ga.orElse(true)); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getMajorVersionsPath());
         int initialLength = queryBuilder.length();
@@ -754,10 +1194,7 @@ public class DiscoClient {
     }
 
     public final Optional<Semver> getLatestLts() {
-        if (Instant.now().getEpochSecond() - lastUpdate > Constants.SECONDS_PER_HOUR) {
-            this.majorVersions.clear();
-            this.majorVersions.addAll(getAllMajorVersions(Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE),Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE)));
-        }
+        refreshMajorVersionsIfStale();
         Optional<MajorVersion> latestLts = this.majorVersions.stream()
                                                              .filter(majorVersion -> TermOfSupport.LTS == majorVersion.getTermOfSupport())
                                                              .filter(majorVersion -> !majorVersion.getVersions().isEmpty())
@@ -768,10 +1205,7 @@ public class DiscoClient {
     }
 
     public final Optional<Semver> getLatestSts() {
-        if (Instant.now().getEpochSecond() - lastUpdate > Constants.SECONDS_PER_HOUR) {
-            this.majorVersions.clear();
-            this.majorVersions.addAll(getAllMajorVersions(Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE),Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE)));
-        }
+        refreshMajorVersionsIfStale();
         Optional<MajorVersion> latestSts = this.majorVersions.stream()
                                                              .filter(majorVersion -> TermOfSupport.STS == majorVersion.getTermOfSupport() || TermOfSupport.MTS == majorVersion.getTermOfSupport())
                                                              .filter(majorVersion -> !majorVersion.getVersions().isEmpty())
@@ -781,9 +1215,62 @@ public class DiscoClient {
         return latestSts.isPresent() ? Optional.of(latestSts.get().getVersions().get(0)) : Optional.empty();
     }
 
+    /**
+     * Returns the age of the cached major versions that are used by getLatestLts(), getLatestSts(),
+     * getMaintainedMajorVersions() and the like.
+     * @return Age of the cached major versions in seconds
+     */
+    public long getMajorVersionsAgeInSeconds() { return Instant.now().getEpochSecond() - lastUpdate; }
+
+    public long getMajorVersionsMaxAge() { return majorVersionsMaxAge; }
+    /**
+     * Sets the age after which the cached major versions will be refreshed in the background.
+     * The cached values will still be returned until the refresh is finished.
+     * @param seconds Max age of the cached major versions in seconds (default is one hour)
+     */
+    public void setMajorVersionsMaxAge(final long seconds) {
+        if (seconds < 0) { throw new IllegalArgumentException("Max age of major versions cannot be negative"); }
+        this.majorVersionsMaxAge = seconds;
+    }
+
+    /**
+     * Triggers a refresh of the cached major versions in the background if they are older than the max age.
+     * Only one refresh will run at a time and the cached values will only be replaced if the refresh was successful.
+     */
+    private void refreshMajorVersionsIfStale() {
+        if (isOffline() || getMajorVersionsAgeInSeconds() <= majorVersionsMaxAge) { return; }
+        if (!majorVersionsRefresh.compareAndSet(false, true)) { return; }
+        try {
+            getAllMajorVersionsAsync(Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE), Optional.of(Boolean.TRUE)).whenComplete((majorVersionsFound, throwable) -> {
+                if (null != majorVersionsFound && !majorVersionsFound.isEmpty()) {
+                    majorVersions = List.copyOf(majorVersionsFound);
+                    lastUpdate    = Instant.now().getEpochSecond();
+                }
+                majorVersionsRefresh.set(false);
+            });
+        } catch (RuntimeException e) {
+            majorVersionsRefresh.set(false);
+        }
+    }
+
+    /**
+     * Returns the maintained major versions from the cache (which also triggers a refresh in the background
+     * if needed). Only falls back to a request if the cache is empty or versions without builds are requested.
+     */
+    private List<MajorVersion> getCachedMajorVersions(final Boolean maintained, final boolean include_ea, final boolean include_build) {
+        final List<MajorVersion> cached = majorVersions;
+        if (include_build && !cached.isEmpty()) {
+            refreshMajorVersionsIfStale();
+            return LocalCatalog.filterMajorVersions(cached, maintained, include_ea, true);
+        }
+        return null;
+    }
+
     public final CompletableFuture<List<MajorVersion>> getAllMajorVersionsAsync() { return getAllMajorVersionsAsync(false); }
     public final CompletableFuture<List<MajorVersion>> getAllMajorVersionsAsync(final boolean include_ea) { return getAllMajorVersionsAsync(include_ea, true); }
     public final CompletableFuture<List<MajorVersion>> getAllMajorVersionsAsync(final boolean include_ea, final boolean include_build) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getMajorVersions(null, include_ea, true)); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getMajorVersionsPath())
                                                         .append("?ea=").append(include_ea)
@@ -805,6 +1292,8 @@ public class DiscoClient {
         });
     }
     public final CompletableFuture<List<MajorVersion>> getAllMajorVersionsAsync(final Optional<Boolean> maintained, final Optional<Boolean> include_ea, final Optional<Boolean> include_ga, final Optional<Boolean> include_build) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getMajorVersions(null == maintained ? null : maintained.orElse(null), null != include_ea && include_ea.orElse(false), null == include_ga || include_ga.orElse(true))); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getMajorVersionsPath());
         int initialLength = queryBuilder.length();
@@ -845,6 +1334,8 @@ public class DiscoClient {
 
     public final MajorVersion getMajorVersion(final int featureVersion, final boolean include_ea) { return getMajorVersion(featureVersion, include_ea, true); }
     public final MajorVersion getMajorVersion(final int featureVersion, final boolean include_ea, final boolean include_build) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return local.getMajorVersion(featureVersion, include_ea); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getMajorVersionsPath())
                                                         .append("?include_ea=").append(include_ea)
@@ -872,6 +1363,8 @@ public class DiscoClient {
     }
     public final CompletableFuture<MajorVersion> getMajorVersionAsync(final int featureVersion, final boolean include_ea) { return getMajorVersionAsync(featureVersion, include_ea, true); }
     public final CompletableFuture<MajorVersion> getMajorVersionAsync(final int featureVersion, final boolean include_ea, final boolean include_build) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getMajorVersion(featureVersion, include_ea)); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getMajorVersionsPath())
                                                         .append("?include_ea=").append(include_ea)
@@ -931,6 +1424,10 @@ public class DiscoClient {
     public final List<MajorVersion> getMaintainedMajorVersions() { return getMaintainedMajorVersions(false); }
     public final List<MajorVersion> getMaintainedMajorVersions(final boolean include_ea) { return getMaintainedMajorVersions(include_ea, true); }
     public final List<MajorVersion> getMaintainedMajorVersions(final boolean include_ea, final boolean include_build) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return local.getMajorVersions(Boolean.TRUE, include_ea, true); }
+        final List<MajorVersion> cached = getCachedMajorVersions(Boolean.TRUE, include_ea, include_build);
+        if (null != cached) { return cached; }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getMajorVersionsPath())
                                                         .append("?maintained=true&ga=true")
@@ -960,6 +1457,10 @@ public class DiscoClient {
         return getMaintainedMajorVersionsAsync(include_ea, true);
     }
     public final CompletableFuture<List<MajorVersion>> getMaintainedMajorVersionsAsync(final boolean include_ea, final boolean include_build) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getMajorVersions(Boolean.TRUE, include_ea, true)); }
+        final List<MajorVersion> cached = getCachedMajorVersions(Boolean.TRUE, include_ea, include_build);
+        if (null != cached) { return CompletableFuture.completedFuture(cached); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getMajorVersionsPath())
                                                         .append("?maintained=true&ga=true")
@@ -989,6 +1490,8 @@ public class DiscoClient {
         return getUsefulMajorVersions(true);
     }
     public final List<MajorVersion> getUsefulMajorVersions(final boolean include_build) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return local.getMajorVersions(Boolean.TRUE, true, true); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getMajorVersionsPath())
                                                         .append("/useful")
@@ -1016,6 +1519,8 @@ public class DiscoClient {
         return getUsefulMajorVersionsAsync(true);
     }
     public final CompletableFuture<List<MajorVersion>> getUsefulMajorVersionsAsync(final boolean include_build) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getMajorVersions(Boolean.TRUE, true, true)); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getMajorVersionsPath())
                                                         .append("/useful")
@@ -1046,6 +1551,8 @@ public class DiscoClient {
      * @return reverse ordered list of major versions for the given distribution
      */
     public final List<MajorVersion> getMajorVersionOf(final Distribution distribution, final boolean include_ea) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return local.getMajorVersionsOf(distribution, include_ea); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getDistributionsPath())
                                                         .append("/")
@@ -1081,7 +1588,8 @@ public class DiscoClient {
 
     public final MajorVersion getLatestLts(final boolean include_ea) { return getLatestLts(include_ea, true); }
     public final MajorVersion getLatestLts(final boolean include_ea, final boolean include_build) {
-        Queue<MajorVersion> majorVersions = getAllMajorVersions(include_ea, include_build);
+        final List<MajorVersion> cached        = getCachedMajorVersions(null, include_ea, include_build);
+        Collection<MajorVersion> majorVersions = null == cached ? getAllMajorVersions(include_ea, include_build) : cached;
         return majorVersions.stream()
                             .filter(majorVersion -> TermOfSupport.LTS == majorVersion.getTermOfSupport())
                             .filter(majorVersion -> include_ea ? majorVersion.getVersions().size() > 0 : majorVersion.getVersions().size() > 1)
@@ -1089,7 +1597,8 @@ public class DiscoClient {
     }
     public final CompletableFuture<MajorVersion> getLatestLtsAsync(final boolean include_ea) { return getLatestLtsAsync(include_ea, true); }
     public final CompletableFuture<MajorVersion> getLatestLtsAsync(final boolean include_ea, final boolean include_build) {
-        return getAllMajorVersionsAsync(include_ea, include_build).thenApply(majorVersions -> majorVersions.stream()
+        final List<MajorVersion> cached = getCachedMajorVersions(null, include_ea, include_build);
+        return (null == cached ? getAllMajorVersionsAsync(include_ea, include_build) : CompletableFuture.completedFuture(cached)).thenApply(majorVersions -> majorVersions.stream()
                                                                                               .filter(majorVersion -> TermOfSupport.LTS == majorVersion.getTermOfSupport())
                                                                                               .filter(majorVersion -> include_ea ? majorVersion.getVersions().size() > 0 : majorVersion.getVersions().size() > 1)
                                                                                               .findFirst().get());
@@ -1099,7 +1608,8 @@ public class DiscoClient {
 
     public final MajorVersion getLatestMts(final boolean include_ea) { return getLatestMts(include_ea, true); }
     public final MajorVersion getLatestMts(final boolean include_ea, final boolean include_build) {
-        Queue<MajorVersion> majorVersions = getAllMajorVersions(include_ea, include_build);
+        final List<MajorVersion> cached        = getCachedMajorVersions(null, include_ea, include_build);
+        Collection<MajorVersion> majorVersions = null == cached ? getAllMajorVersions(include_ea, include_build) : cached;
         return majorVersions.stream()
                             .filter(majorVersion -> TermOfSupport.MTS == majorVersion.getTermOfSupport())
                             .filter(majorVersion -> include_ea ? majorVersion.getVersions().size() > 0 : majorVersion.getVersions().size() > 1)
@@ -1107,7 +1617,8 @@ public class DiscoClient {
     }
     public final CompletableFuture<MajorVersion> getLatestMtsAsync(final boolean include_ea) { return getLatestLtsAsync(include_ea, true); }
     public final CompletableFuture<MajorVersion> getLatestMtsAsync(final boolean include_ea, final boolean include_build) {
-        return getAllMajorVersionsAsync(include_ea, include_build).thenApply(majorVersions -> majorVersions.stream()
+        final List<MajorVersion> cached = getCachedMajorVersions(null, include_ea, include_build);
+        return (null == cached ? getAllMajorVersionsAsync(include_ea, include_build) : CompletableFuture.completedFuture(cached)).thenApply(majorVersions -> majorVersions.stream()
                                                                                                            .filter(majorVersion -> TermOfSupport.MTS == majorVersion.getTermOfSupport())
                                                                                                            .filter(majorVersion -> include_ea ? majorVersion.getVersions().size() > 0 : majorVersion.getVersions().size() > 1)
                                                                                                            .findFirst().get());
@@ -1116,7 +1627,8 @@ public class DiscoClient {
 
     public final MajorVersion getLatestSts(final boolean include_ea) { return getLatestSts(include_ea, true); }
     public final MajorVersion getLatestSts(final boolean include_ea, final boolean include_build) {
-        Queue<MajorVersion> majorVersions = getAllMajorVersions(include_ea, include_build);
+        final List<MajorVersion> cached        = getCachedMajorVersions(null, include_ea, include_build);
+        Collection<MajorVersion> majorVersions = null == cached ? getAllMajorVersions(include_ea, include_build) : cached;
         return majorVersions.stream()
                             .filter(majorVersion -> TermOfSupport.LTS != majorVersion.getTermOfSupport())
                             .filter(majorVersion -> include_ea ? majorVersion.getVersions().size() > 0 : majorVersion.getVersions().size() > 1)
@@ -1124,7 +1636,8 @@ public class DiscoClient {
     }
     public final CompletableFuture<MajorVersion> getLatestStsAsync(final boolean include_ea) { return getLatestStsAsync(include_ea, true); }
     public final CompletableFuture<MajorVersion> getLatestStsAsync(final boolean include_ea, final boolean include_build) {
-        return getAllMajorVersionsAsync(include_ea, include_build).thenApply(majorVersions -> majorVersions.stream()
+        final List<MajorVersion> cached = getCachedMajorVersions(null, include_ea, include_build);
+        return (null == cached ? getAllMajorVersionsAsync(include_ea, include_build) : CompletableFuture.completedFuture(cached)).thenApply(majorVersions -> majorVersions.stream()
                                                                                                            .filter(majorVersion -> TermOfSupport.LTS != majorVersion.getTermOfSupport())
                                                                                                            .filter(majorVersion -> include_ea ? majorVersion.getVersions().size() > 0 : majorVersion.getVersions().size() > 1)
                                                                                                            .findFirst().get());
@@ -1193,23 +1706,7 @@ public class DiscoClient {
             List<String> features = null == feature ? List.of() : List.of(feature);
             Latest       latest   = null == distribution ? Latest.AVAILABLE : distribution.getApiString().startsWith("graalvm") ? Latest.OVERALL : Latest.AVAILABLE;
             List<Pkg>    pkgs     = getPkgs(null == distribution ? null : List.of(distribution), semver.getVersionNumber(), latest, operatingSystem, LibCType.NONE, architecture, Bitness.NONE, ArchiveType.NONE, PackageType.JDK, javafxBundled, directlyDownloadable, List.of(ReleaseStatus.EA, ReleaseStatus.GA), TermOfSupport.NONE, features, List.of(Scope.PUBLIC), Match.ANY);
-            Collections.sort(pkgs, Comparator.comparing(Pkg::getJavaVersion).reversed());
-            if (pkgs.isEmpty()) {
-                return updatesFound;
-            } else {
-                Pkg    firstEntry  = pkgs.get(0);
-                Semver semVerFound = firstEntry.getJavaVersion();
-                if (ReleaseStatus.EA == semVerFound.getReleaseStatus()) {
-                    if (semVerFound.compareTo(semver) > 0) {
-                        updatesFound = pkgs.stream().filter(pkg -> pkg.getJavaVersion().compareTo(semVerFound) == 0).collect(Collectors.toList());
-                    }
-                } else {
-                    if (semVerFound.compareToIgnoreBuild(semver) > 0) {
-                        updatesFound = pkgs.stream().filter(pkg -> pkg.getJavaVersion().compareToIgnoreBuild(semVerFound) == 0).collect(Collectors.toList());
-                    }
-                }
-                return updatesFound;
-            }
+            return selectUpdates(pkgs, semver);
         } catch (RuntimeException e) {
             System.out.println("Error getting updates for " + distribution.getName() + ": " + e);
         }
@@ -1227,31 +1724,85 @@ public class DiscoClient {
     }
     public final CompletableFuture<List<Pkg>> updateAvailableForAsync(final Distribution distribution, final Semver semver, final OperatingSystem operatingSystem, final Architecture architecture, final Boolean javafxBundled, final Boolean directlyDownloadable) {
         return getPkgsAsync(null == distribution ? null : List.of(distribution), semver.getVersionNumber(), Latest.AVAILABLE, operatingSystem, LibCType.NONE, architecture, Bitness.NONE, ArchiveType.NONE, PackageType.JDK, javafxBundled,
-                            directlyDownloadable, List.of(ReleaseStatus.EA, ReleaseStatus.GA), TermOfSupport.NONE, List.of(Scope.PUBLIC), Match.ANY).thenApplyAsync(pkgs -> {
-            Collections.sort(pkgs, Comparator.comparing(Pkg::getJavaVersion).reversed());
+                            directlyDownloadable, List.of(ReleaseStatus.EA, ReleaseStatus.GA), TermOfSupport.NONE, List.of(Scope.PUBLIC), Match.ANY).thenApplyAsync(pkgs -> selectUpdates(pkgs, semver));
+    }
 
-            List<Pkg> updatesFound = new ArrayList<>();
-            if (pkgs.isEmpty()) {
-                return updatesFound;
-            } else {
-                Pkg    firstEntry  = pkgs.get(0);
-                Semver semVerFound = firstEntry.getJavaVersion();
-                if (ReleaseStatus.EA == semVerFound.getReleaseStatus()) {
-                    if (semVerFound.compareTo(semver) > 0) {
-                        updatesFound = pkgs.stream().filter(pkg -> pkg.getJavaVersion().compareTo(semVerFound) == 0).collect(Collectors.toList());
-                    }
+    /**
+     * Checks a batch of installed JDKs for updates. Installations that share distribution, feature version and
+     * platform are answered by one query, so a fleet of hosts only needs one query per distinct combination.
+     * The queries run in parallel. If the client is offline or its snapshot is not stale they are answered
+     * from the local catalog.
+     * @param installations Installations to check, equal installations are only checked once
+     * @return Future with the packages of the available update per installation (empty if up to date) and the failure per installation that could not be checked
+     */
+    public final CompletableFuture<UpdateResult> updatesAvailableFor(final Collection<JdkInstallation> installations) {
+        if (null == installations) { throw new IllegalArgumentException("installations cannot be null"); }
+        final Map<String, List<JdkInstallation>> groups = new LinkedHashMap<>();
+        installations.stream()
+                     .filter(Objects::nonNull)
+                     .distinct()
+                     .forEach(installation -> groups.computeIfAbsent(new StringBuilder().append(null == installation.getDistribution() ? "" : installation.getDistribution().getApiString()).append("|")
+                                                                                        .append(installation.getJavaVersion().getFeature()).append("|")
+                                                                                        .append(installation.getOperatingSystem().getApiString()).append("|")
+                                                                                        .append(installation.getArchitecture().getApiString()).append("|")
+                                                                                        .append(installation.getLibCType().getApiString()).append("|")
+                                                                                        .append(installation.isJavaFXBundled()).toString(), key -> new ArrayList<>()).add(installation));
+
+        final CatalogSnapshot current = snapshot;
+        final LocalCatalog    local   = null != localCatalog ? localCatalog : (null != current && !current.getPkgTable().isEmpty() && !isSnapshotStale() ? new LocalCatalog(current) : null);
+        return getBulkAsync(groups.keySet(), key -> {
+            final JdkInstallation     installation  = groups.get(key).get(0);
+            final Distribution        distribution  = installation.getDistribution();
+            final List<Distribution>  distributions = null == distribution ? null : List.of(distribution);
+            final VersionNumber       versionNumber = new VersionNumber(installation.getJavaVersion().getFeature());
+            final Latest              latest        = null != distribution && distribution.getApiString().startsWith("graalvm") ? Latest.OVERALL : Latest.AVAILABLE;
+            final List<ReleaseStatus> releaseStatus = List.of(ReleaseStatus.EA, ReleaseStatus.GA);
+            if (null != local) {
+                return CompletableFuture.completedFuture(local.getPkgs(distributions, versionNumber, latest, installation.getOperatingSystem(), installation.getLibCType(), installation.getArchitecture(), Bitness.NONE, ArchiveType.NONE, PackageType.JDK,
+                                                                       installation.isJavaFXBundled(), Boolean.TRUE, releaseStatus, TermOfSupport.NONE, List.of(), List.of(Scope.PUBLIC), Match.ANY));
+            }
+            final String query = createPkgsQuery(distributions, versionNumber, latest, installation.getOperatingSystem(), installation.getLibCType(), installation.getArchitecture(), Bitness.NONE, ArchiveType.NONE, PackageType.JDK,
+                                                 installation.isJavaFXBundled(), Boolean.TRUE, releaseStatus, TermOfSupport.NONE, List.of(), List.of(Scope.PUBLIC), Match.ANY);
+            return Helper.getAsync(query, userAgent).thenApply(response -> parsePkgs(successfulBody(response, query)));
+        }).thenApply(result -> {
+            final Map<JdkInstallation, List<Pkg>> updates  = new LinkedHashMap<>();
+            final Map<JdkInstallation, Throwable> failures = new LinkedHashMap<>();
+            groups.forEach((key, members) -> {
+                final List<Pkg> pkgs = result.getResults().get(key);
+                if (null == pkgs) {
+                    members.forEach(installation -> failures.put(installation, result.getFailures().get(key)));
                 } else {
-                    if (semVerFound.compareToIgnoreBuild(semver) > 0) {
-                        updatesFound = pkgs.stream().filter(pkg -> pkg.getJavaVersion().compareToIgnoreBuild(semVerFound) == 0).collect(Collectors.toList());
-                    }
+                    members.forEach(installation -> updates.put(installation, selectUpdates(pkgs, installation.getJavaVersion())));
                 }
-                return updatesFound;
-            }
+            });
+            return new UpdateResult(updates, failures);
         });
     }
 
+    private static List<Pkg> selectUpdates(final List<Pkg> pkgs, final Semver semver) {
+        if (null == pkgs || pkgs.isEmpty()) { return new ArrayList<>(); }
+        final List<Pkg> sortedPkgs = new ArrayList<>(pkgs);
+        Collections.sort(sortedPkgs, Comparator.comparing(Pkg::getJavaVersion).reversed());
+
+        List<Pkg> updatesFound = new ArrayList<>();
+        Pkg       firstEntry   = sortedPkgs.get(0);
+        Semver    semVerFound  = firstEntry.getJavaVersion();
+        if (ReleaseStatus.EA == semVerFound.getReleaseStatus()) {
+            if (semVerFound.compareTo(semver) > 0) {
+                updatesFound = sortedPkgs.stream().filter(pkg -> pkg.getJavaVersion().compareTo(semVerFound) == 0).collect(Collectors.toList());
+            }
+        } else {
+            if (semVerFound.compareToIgnoreBuild(semver) > 0) {
+                updatesFound = sortedPkgs.stream().filter(pkg -> pkg.getJavaVersion().compareToIgnoreBuild(semVerFound) == 0).collect(Collectors.toList());
+            }
+        }
+        return updatesFound;
+    }
+
 
     public final List<Distribution> getDistributions() {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return local.getDistributions(); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getDistributionsPath());
 
@@ -1275,6 +1826,8 @@ public class DiscoClient {
         return distributionsFound;
     }
     public final CompletableFuture<List<Distribution>> getDistributionsAsync() {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getDistributions()); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getDistributionsPath());
         String query = queryBuilder.toString();
@@ -1298,6 +1851,8 @@ public class DiscoClient {
     }
     
     public final Set<Distribution> getDistributionsForSemver(final Semver semVer) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return new LinkedHashSet<>(local.getDistributionsForVersion(semVer.getVersionNumber(), List.of(), Match.ANY)); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getDistributionsPath())
                                                         .append("/versions/")
@@ -1322,6 +1877,8 @@ public class DiscoClient {
         return distributionsFound;
     }
     public final CompletableFuture<Set<Distribution>> getDistributionsForSemverAsync(final Semver semVer) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(new LinkedHashSet<>(local.getDistributionsForVersion(semVer.getVersionNumber(), List.of(), Match.ANY))); }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getDistributionsPath())
                                                         .append("/versions/")
@@ -1350,6 +1907,8 @@ public class DiscoClient {
         return getDistributionsForVersion(versionNumber, List.of(), Match.ANY);
     }
     public final List<Distribution> getDistributionsForVersion(final VersionNumber versionNumber, final List<Scope> scopes, final Match match) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return local.getDistributionsForVersion(versionNumber, scopes, match); }
         StringBuilder scopeBuilder = new StringBuilder();
         if (!scopes.isEmpty()) {
             scopeBuilder.append("?discovery_scope_id=")
@@ -1388,6 +1947,8 @@ public class DiscoClient {
         return getDistributionsForVersionAsync(versionNumber, List.of(), Match.ANY);
     }
     public final CompletableFuture<List<Distribution>> getDistributionsForVersionAsync(final VersionNumber versionNumber, final List<Scope> scopes, final Match match) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getDistributionsForVersion(versionNumber, scopes, match)); }
         StringBuilder scopeBuilder = new StringBuilder();
         if (!scopes.isEmpty()) {
             scopeBuilder.append("?discovery_scope_id=")
@@ -1541,82 +2102,89 @@ public class DiscoClient {
 
     public PkgInfo getPkgInfoByEphemeralId(final String ephemeralId, final Semver javaVersion) {
         if (null == ephemeralId || ephemeralId.isEmpty() || null == javaVersion) { throw new IllegalArgumentException("ephemeralId or javaVersion cannot be null"); }
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return local.getPkgInfo(ephemeralId); }
+        try {
+            return pkgInfoCache.get(ephemeralId, id -> fetchPkgInfoByEphemeralId(id, javaVersion));
+        } catch (UncheckedIOException e) {
+            return null;
+        }
+    }
+    private PkgInfo fetchPkgInfoByEphemeralId(final String ephemeralId, final Semver javaVersion) {
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getEphemeralIdsPath())
                                                         .append("/")
                                                         .append(ephemeralId);
 
-        String      query              = queryBuilder.toString();
-        String      packageInfoBody    = Helper.get(query, userAgent).body();
-        Gson        packageInfoGson    = new Gson();
-        JsonElement packageInfoElement = packageInfoGson.fromJson(packageInfoBody, JsonElement.class);
-        if (packageInfoElement instanceof JsonObject) {
-            JsonObject jsonObject = packageInfoElement.getAsJsonObject();
-            JsonArray  jsonArray  = jsonObject.getAsJsonArray("result");
-            if (jsonArray.size() > 0) {
-                final JsonObject    packageInfoJson   = jsonArray.get(0).getAsJsonObject();
-                final String        filename          = packageInfoJson.has(PkgInfo.FIELD_FILENAME)            ? packageInfoJson.get(PkgInfo.FIELD_FILENAME).getAsString()                              : "";
-                final String        directDownloadUri = packageInfoJson.has(PkgInfo.FIELD_DIRECT_DOWNLOAD_URI) ? packageInfoJson.get(PkgInfo.FIELD_DIRECT_DOWNLOAD_URI).getAsString()                   : "";
-                final String        downloadSiteUri   = packageInfoJson.has(PkgInfo.FIELD_DIRECT_DOWNLOAD_URI) ? packageInfoJson.get(PkgInfo.FIELD_DOWNLOAD_SITE_URI).getAsString()                     : "";
-                final String        signatureUri      = packageInfoJson.has(PkgInfo.FIELD_SIGNATURE_URI)       ? packageInfoJson.get(PkgInfo.FIELD_SIGNATURE_URI).getAsString()                         : "";
-                final String        checksumUri       = packageInfoJson.has(PkgInfo.FIELD_CHECKSUM_URI)        ? packageInfoJson.get(PkgInfo.FIELD_CHECKSUM_URI).getAsString()                          : "";
-                final String        checksum          = packageInfoJson.has(PkgInfo.FIELD_CHECKSUM)            ? packageInfoJson.get(PkgInfo.FIELD_CHECKSUM).getAsString()                              : "";
-                final HashAlgorithm checksumType      = packageInfoJson.has(PkgInfo.FIELD_CHECKSUM_TYPE)       ? HashAlgorithm.fromText(packageInfoJson.get(PkgInfo.FIELD_CHECKSUM_TYPE).getAsString()) : HashAlgorithm.NONE;
-                if (null == filename) { return null; }
-                return new PkgInfo(filename, javaVersion, directDownloadUri, downloadSiteUri, signatureUri, checksumUri, checksum, checksumType);
-            } else {
-                return null;
-            }
-        }
-        return null;
+        String               query    = queryBuilder.toString();
+        return parsePkgInfo(successfulBody(Helper.get(query, userAgent), query), javaVersion);
     }
     public CompletableFuture<PkgInfo> getPkgInfoByEphemeralIdAsync(final String ephemeralId, final Semver javaVersion) {
         if (null == ephemeralId || ephemeralId.isEmpty() || null == javaVersion) { throw new IllegalArgumentException("ephemeralId or javaVersion cannot be null"); }
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getPkgInfo(ephemeralId)); }
+        return pkgInfoCache.getAsync(ephemeralId, id -> fetchPkgInfoByEphemeralIdAsync(id, javaVersion)).exceptionally(e -> null);
+    }
+    private CompletableFuture<PkgInfo> fetchPkgInfoByEphemeralIdAsync(final String ephemeralId, final Semver javaVersion) {
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getEphemeralIdsPath())
                                                         .append("/")
                                                         .append(ephemeralId);
-        String query           = queryBuilder.toString();
-        return Helper.getAsync(query, userAgent).thenApply(response -> {
-            Gson        packageInfoGson    = new Gson();
-            JsonElement packageInfoElement = packageInfoGson.fromJson(response.body(), JsonElement.class);
-            if (packageInfoElement instanceof JsonObject) {
-                JsonObject jsonObject = packageInfoElement.getAsJsonObject();
-                JsonArray  jsonArray  = jsonObject.getAsJsonArray("result");
-                if (jsonArray.size() > 0) {
-                    final JsonObject    packageInfoJson   = jsonArray.get(0).getAsJsonObject();
-                    final String        filename          = packageInfoJson.has(PkgInfo.FIELD_FILENAME)            ? packageInfoJson.get(PkgInfo.FIELD_FILENAME).getAsString()                              : "";
-                    final String        directDownloadUri = packageInfoJson.has(PkgInfo.FIELD_DIRECT_DOWNLOAD_URI) ? packageInfoJson.get(PkgInfo.FIELD_DIRECT_DOWNLOAD_URI).getAsString()                   : "";
-                    final String        downloadSiteUri   = packageInfoJson.has(PkgInfo.FIELD_DIRECT_DOWNLOAD_URI) ? packageInfoJson.get(PkgInfo.FIELD_DOWNLOAD_SITE_URI).getAsString()                     : "";
-                    final String        signatureUri      = packageInfoJson.has(PkgInfo.FIELD_SIGNATURE_URI)       ? packageInfoJson.get(PkgInfo.FIELD_SIGNATURE_URI).getAsString()                         : "";
-                    final String        checksumUri       = packageInfoJson.has(PkgInfo.FIELD_CHECKSUM_URI)        ? packageInfoJson.get(PkgInfo.FIELD_CHECKSUM_URI).getAsString()                          : "";
-                    final String        checksum          = packageInfoJson.has(PkgInfo.FIELD_CHECKSUM)            ? packageInfoJson.get(PkgInfo.FIELD_CHECKSUM).getAsString()                              : "";
-                    final HashAlgorithm checksumType      = packageInfoJson.has(PkgInfo.FIELD_CHECKSUM_TYPE)       ? HashAlgorithm.fromText(packageInfoJson.get(PkgInfo.FIELD_CHECKSUM_TYPE).getAsString()) : HashAlgorithm.NONE;
-                    if (null == filename) { return null; }
-                    return new PkgInfo(filename, javaVersion, directDownloadUri, downloadSiteUri, signatureUri, checksumUri, checksum, checksumType);
-                } else {
-                    return null;
-                }
-            }
-            return null;
-        });
+        String query = queryBuilder.toString();
+        return Helper.getAsync(query, userAgent).thenApply(response -> parsePkgInfo(successfulBody(response, query), javaVersion));
     }
 
     public PkgInfo getPkgInfoByPkgId(final String pkgId, final Semver javaVersion) {
         if (null == pkgId || pkgId.isEmpty() || null == javaVersion) { throw new IllegalArgumentException("pkgId or javaVersion cannot be null"); }
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return local.getPkgInfo(pkgId); }
+        try {
+            return pkgInfoByIdCache.get(pkgId, id -> fetchPkgInfoByPkgId(id, javaVersion));
+        } catch (UncheckedIOException e) {
+            return null;
+        }
+    }
+    private PkgInfo fetchPkgInfoByPkgId(final String pkgId, final Semver javaVersion) {
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getIdsPath())
                                                         .append("/")
                                                         .append(pkgId);
 
-        String      query              = queryBuilder.toString();
-        String      packageInfoBody    = Helper.get(query, userAgent).body();
+        String               query    = queryBuilder.toString();
+        return parsePkgInfo(successfulBody(Helper.get(query, userAgent), query), javaVersion);
+    }
+    public CompletableFuture<PkgInfo> getPkgInfoByPkgIdAsync(final String pkgId, final Semver javaVersion) {
+        if (null == pkgId || pkgId.isEmpty() || null == javaVersion) { throw new IllegalArgumentException("pkgId or javaVersion cannot be null"); }
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getPkgInfo(pkgId)); }
+        return pkgInfoByIdCache.getAsync(pkgId, id -> fetchPkgInfoByPkgIdAsync(id, javaVersion)).exceptionally(e -> null);
+    }
+    private CompletableFuture<PkgInfo> fetchPkgInfoByPkgIdAsync(final String pkgId, final Semver javaVersion) {
+        StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
+                                                        .append(PropertyManager.INSTANCE.getIdsPath())
+                                                        .append("/")
+                                                        .append(pkgId);
+        String query = queryBuilder.toString();
+        return Helper.getAsync(query, userAgent).thenApply(response -> parsePkgInfo(successfulBody(response, query), javaVersion));
+    }
+
+    /**
+     * Returns the body of the given response or throws if the request failed, failures
+     * are not cached by the TtlCache while a successful response without result is a miss.
+     */
+    private static String successfulBody(final HttpResponse<String> response, final String query) {
+        if (null == response) { throw new UncheckedIOException(new IOException("Request " + query + " failed")); }
+        if (200 != response.statusCode()) { throw new UncheckedIOException(new IOException("Request " + query + " failed with status " + response.statusCode())); }
+        return response.body();
+    }
+
+    private PkgInfo parsePkgInfo(final String packageInfoBody, final Semver javaVersion) {
         Gson        packageInfoGson    = new Gson();
         JsonElement packageInfoElement = packageInfoGson.fromJson(packageInfoBody, JsonElement.class);
         if (packageInfoElement instanceof JsonObject) {
             JsonObject jsonObject = packageInfoElement.getAsJsonObject();
             JsonArray  jsonArray  = jsonObject.getAsJsonArray("result");
-            if (jsonArray.size() > 0) {
+            if (null != jsonArray && jsonArray.size() > 0) {
                 final JsonObject    packageInfoJson   = jsonArray.get(0).getAsJsonObject();
                 final String        filename          = packageInfoJson.has(PkgInfo.FIELD_FILENAME)            ? packageInfoJson.get(PkgInfo.FIELD_FILENAME).getAsString()                              : "";
                 final String        directDownloadUri = packageInfoJson.has(PkgInfo.FIELD_DIRECT_DOWNLOAD_URI) ? packageInfoJson.get(PkgInfo.FIELD_DIRECT_DOWNLOAD_URI).getAsString()                   : "";
@@ -1625,45 +2193,15 @@ public class DiscoClient {
                 final String        checksumUri       = packageInfoJson.has(PkgInfo.FIELD_CHECKSUM_URI)        ? packageInfoJson.get(PkgInfo.FIELD_CHECKSUM_URI).getAsString()                          : "";
                 final String        checksum          = packageInfoJson.has(PkgInfo.FIELD_CHECKSUM)            ? packageInfoJson.get(PkgInfo.FIELD_CHECKSUM).getAsString()                              : "";
                 final HashAlgorithm checksumType      = packageInfoJson.has(PkgInfo.FIELD_CHECKSUM_TYPE)       ? HashAlgorithm.fromText(packageInfoJson.get(PkgInfo.FIELD_CHECKSUM_TYPE).getAsString()) : HashAlgorithm.NONE;
-                if (null == filename) { return null; }
-                return new PkgInfo(filename, javaVersion, directDownloadUri, downloadSiteUri, signatureUri, checksumUri, checksum, checksumType);
+                final Semver        version           = null != javaVersion ? javaVersion : packageInfoJson.has(PkgInfo.FIELD_JAVA_VERSION) ? Semver.fromText(packageInfoJson.get(PkgInfo.FIELD_JAVA_VERSION).getAsString()).getSemver1() : null;
+                if (null == filename || null == version) { return null; }
+                return new PkgInfo(filename, version, directDownloadUri, downloadSiteUri, signatureUri, checksumUri, checksum, checksumType);
             } else {
                 return null;
             }
         }
         return null;
     }
-    public CompletableFuture<PkgInfo> getPkgInfoByPkgIdAsync(final String pkgId, final Semver javaVersion) {
-        if (null == pkgId || pkgId.isEmpty() || null == javaVersion) { throw new IllegalArgumentException("pkgId or javaVersion cannot be null"); }
-        StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
-                                                        .append(PropertyManager.INSTANCE.getIdsPath())
-                                                        .append("/")
-                                                        .append(pkgId);
-        String query           = queryBuilder.toString();
-        return Helper.getAsync(query, userAgent).thenApply(response -> {
-            Gson        packageInfoGson    = new Gson();
-            JsonElement packageInfoElement = packageInfoGson.fromJson(response.body(), JsonElement.class);
-            if (packageInfoElement instanceof JsonObject) {
-                JsonObject jsonObject = packageInfoElement.getAsJsonObject();
-                JsonArray  jsonArray  = jsonObject.getAsJsonArray("result");
-                if (jsonArray.size() > 0) {
-                    final JsonObject    packageInfoJson   = jsonArray.get(0).getAsJsonObject();
-                    final String        filename          = packageInfoJson.has(PkgInfo.FIELD_FILENAME)            ? packageInfoJson.get(PkgInfo.FIELD_FILENAME).getAsString()                              : "";
-                    final String        directDownloadUri = packageInfoJson.has(PkgInfo.FIELD_DIRECT_DOWNLOAD_URI) ? packageInfoJson.get(PkgInfo.FIELD_DIRECT_DOWNLOAD_URI).getAsString()                   : "";
-                    final String        downloadSiteUri   = packageInfoJson.has(PkgInfo.FIELD_DIRECT_DOWNLOAD_URI) ? packageInfoJson.get(PkgInfo.FIELD_DOWNLOAD_SITE_URI).getAsString()                     : "";
-                    final String        signatureUri      = packageInfoJson.has(PkgInfo.FIELD_SIGNATURE_URI)       ? packageInfoJson.get(PkgInfo.FIELD_SIGNATURE_URI).getAsString()                         : "";
-                    final String        checksumUri       = packageInfoJson.has(PkgInfo.FIELD_CHECKSUM_URI)        ? packageInfoJson.get(PkgInfo.FIELD_CHECKSUM_URI).getAsString()                          : "";
-                    final String        checksum          = packageInfoJson.has(PkgInfo.FIELD_CHECKSUM)            ? packageInfoJson.get(PkgInfo.FIELD_CHECKSUM).getAsString()                              : "";
-                    final HashAlgorithm checksumType      = packageInfoJson.has(PkgInfo.FIELD_CHECKSUM_TYPE)       ? HashAlgorithm.fromText(packageInfoJson.get(PkgInfo.FIELD_CHECKSUM_TYPE).getAsString()) : HashAlgorithm.NONE;
-                    if (null == filename) { return null; }
-                    return new PkgInfo(filename, javaVersion, directDownloadUri, downloadSiteUri, signatureUri, checksumUri, checksum, checksumType);
-                } else {
-                    return null;
-                }
-            }
-            return null;
-        });
-    }
 
 
     public final Future<?> downloadPkg(final String pkgId, final String targetFileName) throws InterruptedException {
@@ -1688,44 +2226,143 @@ public class DiscoClient {
         if (null == ephemeralId || ephemeralId.isEmpty()) { throw new IllegalArgumentException("ephemeralId cannot be null or empty"); }
         if (null == javaVersion) { throw new IllegalArgumentException("javaVersion cannot be null"); }
         if (null == targetFileName || targetFileName.isEmpty()) { throw new IllegalArgumentException("targetFileName cannot be null or empty"); }
-        final String              url      = getPkgInfoByEphemeralId(ephemeralId, javaVersion).getDirectDownloadUri();
-        final FutureTask<Boolean> task     = createDownloadTask(targetFileName, url);
-        final ExecutorService     executor = Executors.newSingleThreadExecutor();
-        final Future<?>           future   = executor.submit(task);
-        executor.shutdown();
-        executor.awaitTermination(5, TimeUnit.MINUTES);
-        return future;
+        return downloadPkgAsync(getPkgInfoByEphemeralId(ephemeralId, javaVersion), targetFileName, EvtPriority.NORMAL, null, ephemeralId);
     }
     public final Future<?> downloadPkg(final PkgInfo pkgInfo, final String targetFileName) throws InterruptedException {
         if (null == pkgInfo) { throw new IllegalArgumentException("pkgInfo cannot be null"); }
         if (null == targetFileName || targetFileName.isEmpty()) { throw new IllegalArgumentException("targetFileName cannot be null or empty"); }
-        final FutureTask<Boolean> task     = createDownloadTask(targetFileName, pkgInfo.getDirectDownloadUri());
-        final ExecutorService     executor = Executors.newSingleThreadExecutor();
-        final Future<?>           future   = executor.submit(task);
-        executor.shutdown();
-        executor.awaitTermination(5, TimeUnit.MINUTES);
-        return future;
+        return downloadPkgAsync(pkgInfo, targetFileName);
     }
 
     private final Future<?> downloadPkgByPkgId(final String pkgId, final Semver javaVersion, final String targetFileName) throws InterruptedException {
-        final String              url      = getPkgInfoByPkgId(pkgId, javaVersion).getDirectDownloadUri();
-        final FutureTask<Boolean> task     = createDownloadTask(targetFileName, url);
-        final ExecutorService     executor = Executors.newSingleThreadExecutor();
-        final Future<?>           future   = executor.submit(task);
-        executor.shutdown();
-        executor.awaitTermination(5, TimeUnit.MINUTES);
-        return future;
+        return downloadPkgAsync(getPkgInfoByPkgId(pkgId, javaVersion), targetFileName, EvtPriority.NORMAL, null, pkgId);
+    }
+
+
+    /**
+     * Resolves the package and its download info concurrently and streams the artifact
+     * into the given file without blocking the caller.
+     * @param pkgId Id of the package to download
+     * @param targetFileName File the artifact will be written to
+     * @return Future with the path of the downloaded file or null if the package could not be resolved
+     */
+    public CompletableFuture<Path> downloadPkgAsync(final String pkgId, final String targetFileName) {
+        return downloadPkgAsync(pkgId, targetFileName, EvtPriority.NORMAL);
+    }
+    /**
+     * Resolves the package and queues its download in the download manager with the given priority.
+     * @param pkgId Id of the package to download
+     * @param targetFileName File the artifact will be written to
+     * @param priority Downloads with a higher priority are started first
+     * @return Future with the path of the downloaded file or null if the package could not be resolved
+     */
+    public CompletableFuture<Path> downloadPkgAsync(final String pkgId, final String targetFileName, final EvtPriority priority) {
+        if (null == pkgId || pkgId.isEmpty()) { throw new IllegalArgumentException("pkgId cannot be null or empty"); }
+        if (null == targetFileName || targetFileName.isEmpty()) { throw new IllegalArgumentException("targetFileName cannot be null or empty"); }
+        return resolvePkgInfoAsync(pkgId).exceptionally(e -> null).thenCompose(pkgInfo -> downloadPkgAsync(pkgInfo, targetFileName, priority, null, pkgId));
+    }
+    /**
+     * Resolves the download info of the given package through the cache, the future completes with null
+     * if there is no such package and exceptionally if a request failed.
+     */
+    private CompletableFuture<PkgInfo> resolvePkgInfoAsync(final String pkgId) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getPkgInfo(pkgId)); }
+        return pkgInfoByIdCache.getAsync(pkgId, this::fetchResolvedPkgInfoAsync);
+    }
+    private CompletableFuture<PkgInfo> fetchResolvedPkgInfoAsync(final String pkgId) {
+        // The ids endpoint only needs the pkgId, so request it while the package itself is still in flight
+        StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
+                                                        .append(PropertyManager.INSTANCE.getIdsPath())
+                                                        .append("/")
+                                                        .append(pkgId);
+        final String                    query         = queryBuilder.toString();
+        final CompletableFuture<Pkg>    pkgFuture     = pkgCache.getAsync(pkgId, this::fetchPkgAsync);
+        final CompletableFuture<String> pkgInfoFuture = Helper.getAsync(query, userAgent).thenApply(response -> successfulBody(response, query));
+        return pkgInfoFuture.thenCompose(pkgInfoBody -> pkgFuture.handle((pkg, throwable) -> {
+                                // The info carries its own java version, so it does not depend on the package request
+                                final PkgInfo pkgInfo = parsePkgInfo(pkgInfoBody, null == pkg ? null : pkg.getJavaVersion());
+                                if (null != pkgInfo) { return CompletableFuture.completedFuture(pkgInfo); }
+                                if (null != throwable) { return CompletableFuture.<PkgInfo>failedFuture(throwable); }
+                                if (null == pkg) { return CompletableFuture.<PkgInfo>completedFuture(null); }
+                                final String ephemeralId = pkg.getEphemeralId();
+                                if (null == ephemeralId || ephemeralId.isEmpty()) { return CompletableFuture.<PkgInfo>completedFuture(null); }
+                                return pkgInfoCache.getAsync(ephemeralId, id -> fetchPkgInfoByEphemeralIdAsync(id, pkg.getJavaVersion()));
+                            })
+                            .thenCompose(Function.identity()));
+    }
+    public CompletableFuture<Path> downloadPkgAsync(final PkgInfo pkgInfo, final String targetFileName) {
+        return downloadPkgAsync(pkgInfo, targetFileName, EvtPriority.NORMAL);
+    }
+    public CompletableFuture<Path> downloadPkgAsync(final PkgInfo pkgInfo, final String targetFileName, final EvtPriority priority) {
+        return downloadPkgAsync(pkgInfo, targetFileName, priority, null);
+    }
+    /**
+     * Queues the download of the given package with its own bandwidth limit, e.g. for background prefetches.
+     * The rate of the given bucket can be changed while the download is running.
+     * @param pkgInfo Info of the package to download
+     * @param targetFileName File the artifact will be written to
+     * @param priority Downloads with a higher priority are started first
+     * @param limit Bandwidth limit of this download, may be null
+     * @return Future with the path of the downloaded file or null if the download failed
+     */
+    public CompletableFuture<Path> downloadPkgAsync(final PkgInfo pkgInfo, final String targetFileName, final EvtPriority priority, final TokenBucket limit) {
+        return downloadPkgAsync(pkgInfo, targetFileName, priority, limit, null == pkgInfo ? "" : pkgInfo.getDirectDownloadUri());
+    }
+    private CompletableFuture<Path> downloadPkgAsync(final PkgInfo pkgInfo, final String targetFileName, final EvtPriority priority, final TokenBucket limit, final String id) {
+        if (null == targetFileName || targetFileName.isEmpty()) { throw new IllegalArgumentException("targetFileName cannot be null or empty"); }
+        if (null == pkgInfo || null == pkgInfo.getDirectDownloadUri() || pkgInfo.getDirectDownloadUri().isEmpty()) { return CompletableFuture.completedFuture(null); }
+        final Path          target = Paths.get(targetFileName);
+        final ArtifactCache cache  = artifactCache;
+        if (null == cache) {
+            return downloadManager.submit(pkgInfo.getDirectDownloadUri(), target, pkgInfo.getChecksumType(), pkgInfo.getChecksum(), priority, limit);
+        }
+        // Only one thread or process downloads an artifact, all others are served from the cache.
+        // The download goes straight into the cache folder and the target is linked to the entry.
+        final AtomicBoolean downloaded = new AtomicBoolean(false);
+        return cache.fetch(ArtifactCache.key(pkgInfo.getChecksumType(), pkgInfo.getChecksum(), id), target, file -> {
+                        downloaded.set(true);
+                        return downloadManager.submit(pkgInfo.getDirectDownloadUri(), file, pkgInfo.getChecksumType(), pkgInfo.getChecksum(), priority, limit);
+                    })
+                    .thenApply(path -> {
+                        if (null != path && !downloaded.get()) { fireEvt(new DownloadEvt(DiscoClient.this, DownloadEvt.DOWNLOAD_FINISHED, path.toFile().length(), pkgInfo.getChecksum())); }
+                        return path;
+                    });
     }
 
+    /**
+     * Downloads the given package and extracts it into the given folder while the bytes arrive.
+     * The archive itself is never written to disk and an existing folder is only replaced once
+     * the package was extracted completely and its checksum matched.
+     * @param pkgInfo Info of the package to install, the archive type is derived from its file name
+     * @param targetFolder Folder the content of the package will be placed in
+     * @return Future with the path of the target folder or null if the package could not be installed
+     */
+    public CompletableFuture<Path> extractPkgAsync(final PkgInfo pkgInfo, final String targetFolder) {
+        if (null == targetFolder || targetFolder.isEmpty()) { throw new IllegalArgumentException("targetFolder cannot be null or empty"); }
+        if (null == pkgInfo || null == pkgInfo.getDirectDownloadUri() || pkgInfo.getDirectDownloadUri().isEmpty()) { return CompletableFuture.completedFuture(null); }
+        final ArchiveType archiveType = ArchiveType.getFromFileName(null == pkgInfo.getFileName() ? "" : pkgInfo.getFileName());
+        if (!ArchiveExtractor.isSupported(archiveType)) { return CompletableFuture.completedFuture(null); }
+        return archiveExtractor.downloadAndExtract(pkgInfo.getDirectDownloadUri(), Paths.get(targetFolder), archiveType, pkgInfo.getChecksumType(), pkgInfo.getChecksum());
+    }
 
     public Pkg getPkg(final String pkgId) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return local.getPkg(pkgId); }
+        try {
+            return pkgCache.get(pkgId, this::fetchPkg);
+        } catch (UncheckedIOException e) {
+            return null;
+        }
+    }
+    private Pkg fetchPkg(final String pkgId) {
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getPackagesPath())
                                                         .append("/")
                                                         .append(pkgId);
 
         String query    = queryBuilder.toString();
-        String bodyText = Helper.get(query, userAgent).body();
+        String bodyText = successfulBody(Helper.get(query, userAgent), query);
 
         Gson        pkgGson    = new Gson();
         JsonElement pkgElement = pkgGson.fromJson(bodyText, JsonElement.class);
@@ -1743,6 +2380,11 @@ public class DiscoClient {
         }
     }
     public CompletableFuture<Pkg> getPkgAsync(final String pkgId) {
+        final LocalCatalog local = localCatalog;
+        if (null != local) { return CompletableFuture.completedFuture(local.getPkg(pkgId)); }
+        return pkgCache.getAsync(pkgId, this::fetchPkgAsync).exceptionally(e -> null);
+    }
+    private CompletableFuture<Pkg> fetchPkgAsync(final String pkgId) {
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(PropertyManager.INSTANCE.getPackagesPath())
                                                         .append("/")
@@ -1750,7 +2392,7 @@ public class DiscoClient {
         String query = queryBuilder.toString();
         return Helper.getAsync(query, userAgent).thenApply(response -> {
             Gson        pkgGson    = new Gson();
-            JsonElement pkgElement = pkgGson.fromJson(response.body(), JsonElement.class);
+            JsonElement pkgElement = pkgGson.fromJson(successfulBody(response, query), JsonElement.class);
             if (pkgElement instanceof JsonObject) {
                 JsonObject jsonObject = pkgElement.getAsJsonObject();
                 JsonArray  jsonArray  = jsonObject.getAsJsonArray("result");
@@ -1766,6 +2408,82 @@ public class DiscoClient {
         });
     }
 
+    /**
+     * Looks up the packages with the given ids, running at most MAX_CONCURRENT_REQUESTS requests at a time
+     * over the shared http client. Packages that are cached are not requested again. Ids without a package
+     * fail with a NoSuchElementException, failed requests with the cause of the failure.
+     * @param pkgIds Ids of the packages to look up
+     * @return Future with the packages per id and the failures per id
+     */
+    public CompletableFuture<BulkResult<Pkg>> getPkgsAsync(final Collection<String> pkgIds) {
+        return getBulkAsync(pkgIds, pkgId -> {
+            final LocalCatalog local = localCatalog;
+            if (null != local) { return CompletableFuture.completedFuture(local.getPkg(pkgId)); }
+            return pkgCache.getAsync(pkgId, this::fetchPkgAsync);
+        });
+    }
+
+    /**
+     * Looks up the download infos of the packages with the given ids, running at most MAX_CONCURRENT_REQUESTS
+     * requests at a time over the shared http client. Infos that are already known are not requested again.
+     * Ids without a package fail with a NoSuchElementException, failed requests with the cause of the failure.
+     * @param pkgIds Ids of the packages to look up the download infos for
+     * @return Future with the download infos per package id and the failures per package id
+     */
+    public CompletableFuture<BulkResult<PkgInfo>> getPkgInfosAsync(final Collection<String> pkgIds) {
+        return getBulkAsync(pkgIds, this::resolvePkgInfoAsync);
+    }
+
+    private <T> CompletableFuture<BulkResult<T>> getBulkAsync(final Collection<String> ids, final Function<String, CompletableFuture<T>> loader) {
+        if (null == ids) { throw new IllegalArgumentException("ids cannot be null"); }
+        final Queue<String>                    queue    = new ConcurrentLinkedQueue<>(ids.stream().filter(id -> null != id && !id.isEmpty()).collect(Collectors.toCollection(LinkedHashSet::new)));
+        final Map<String, T>                   results  = new ConcurrentHashMap<>();
+        final Map<String, Throwable>           failures = new ConcurrentHashMap<>();
+        final AtomicInteger                    pending  = new AtomicInteger(queue.size());
+        final CompletableFuture<BulkResult<T>> future   = new CompletableFuture<>();
+        if (queue.isEmpty()) {
+            future.complete(new BulkResult<>(results, failures));
+            return future;
+        }
+        final int workers = Math.min(Constants.MAX_CONCURRENT_REQUESTS, queue.size());
+        for (int i = 0 ; i < workers ; i++) { fetchNext(queue, loader, results, failures, pending, future); }
+        return future;
+    }
+    private <T> void fetchNext(final Queue<String> queue, final Function<String, CompletableFuture<T>> loader, final Map<String, T> results,
+                               final Map<String, Throwable> failures, final AtomicInteger pending, final CompletableFuture<BulkResult<T>> future) {
+        // Values that are already available (e.g. cached) are collected in the loop to keep the stack flat
+        String id;
+        while (null != (id = queue.poll())) {
+            final String         key = id;
+            CompletableFuture<T> request;
+            try {
+                request = loader.apply(key);
+            } catch (RuntimeException e) {
+                request = CompletableFuture.failedFuture(e);
+            }
+            if (request.isDone()) {
+                request.whenComplete((value, throwable) -> collect(key, value, throwable, results, failures, pending, future));
+            } else {
+                request.whenComplete((value, throwable) -> {
+                    collect(key, value, throwable, results, failures, pending, future);
+                    fetchNext(queue, loader, results, failures, pending, future);
+                });
+                return;
+            }
+        }
+    }
+    private <T> void collect(final String id, final T value, final Throwable throwable, final Map<String, T> results, final Map<String, Throwable> failures,
+                             final AtomicInteger pending, final CompletableFuture<BulkResult<T>> future) {
+        if (null != throwable) {
+            failures.put(id, throwable instanceof CompletionException && null != throwable.getCause() ? throwable.getCause() : throwable);
+        } else if (null == value) {
+            failures.put(id, new NoSuchElementException("Nothing found for id " + id));
+        } else {
+            results.put(id, value);
+        }
+        if (0 == pending.decrementAndGet()) { future.complete(new BulkResult<>(results, failures)); }
+    }
+
 
     public static Distribution getDistributionFromText(final String text) {
         if (null == text) { return null; }
@@ -1787,7 +2505,7 @@ public class DiscoClient {
         return getReleaseDetailsUrl(Semver.fromText(javaVersion).getSemver1());
     }
     public String getReleaseDetailsUrl(final Semver javaVersion) {
-        if (null == javaVersion) { return ""; }
+        if (null == javaVersion || isOffline()) { return ""; }
         StringBuilder queryBuilder = new StringBuilder().append(PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL))
                                                         .append(Constants.SLASH).append("disco").append(Constants.SLASH).append("v").append(API_VERSION_V3).append(Constants.SLASH)
                                                         .append(Constants.RELEASE_DETAILS).append(Constants.SLASH)
@@ -1812,7 +2530,57 @@ public class DiscoClient {
     public void cancelRequest() { Helper.cancelRequest(); }
 
 
+    /**
+     * Sets the time to live of the cached packages and package infos. Lookups of unknown ids are
+     * cached for a shorter time (5 minutes by default).
+     * @param ttl Time to live of the cached entries
+     * @param negativeTtl Time to live of cached misses
+     * @param timeUnit Unit of the given times
+     */
+    public void setPkgCacheTtl(final long ttl, final long negativeTtl, final TimeUnit timeUnit) {
+        for (TtlCache<String, ?> cache : List.of(pkgInfoCache, pkgInfoByIdCache, pkgCache)) {
+            cache.setTtl(ttl, timeUnit);
+            cache.setNegativeTtl(negativeTtl, timeUnit);
+        }
+    }
+
+    public void clearPkgCache() {
+        pkgInfoCache.clear();
+        pkgInfoByIdCache.clear();
+        pkgCache.clear();
+    }
+
+    /**
+     * Drops the cached packages and package infos of the given packages, e.g. after they were removed from the catalog.
+     * @param pkgs Packages whose cache entries will be dropped
+     */
+    void invalidatePkgs(final Collection<Pkg> pkgs) {
+        for (Pkg pkg : pkgs) {
+            final Pkg cached = pkgCache.getIfPresent(pkg.getId());
+            if (null != cached) { pkgInfoCache.invalidate(cached.getEphemeralId()); }
+            pkgInfoCache.invalidate(pkg.getEphemeralId());
+            pkgInfoByIdCache.invalidate(pkg.getId());
+            pkgCache.invalidate(pkg.getId());
+        }
+    }
+
+
     public String getUserAgent() { return userAgent; }
+
+    public Downloader getDownloader() { return downloader; }
+
+    public DownloadManager getDownloadManager() { return downloadManager; }
+
+    public ArchiveExtractor getArchiveExtractor() { return archiveExtractor; }
+
+    public Optional<ArtifactCache> getArtifactCache() { return Optional.ofNullable(artifactCache); }
+    /**
+     * Sets the cache that downloaded packages are stored in and served from, null disables the cache.
+     * Use new ArtifactCache() for a cache in the home folder.
+     * @param artifactCache Cache for downloaded packages or null
+     */
+    public void setArtifactCache(final ArtifactCache artifactCache) { this.artifactCache = artifactCache; }
+
     public void setUserAgent(final String userAgent) {
         if (null == userAgent || userAgent.isEmpty()) { return; }
         this.userAgent = userAgent;
@@ -1868,29 +2636,6 @@ public class DiscoClient {
         }
     }
 
-    private final FutureTask<Boolean> createDownloadTask(final String fileName, final String url) {
-        return new FutureTask<>(() -> {
-            try {
-                final URLConnection         connection = new URL(url).openConnection();
-                final int                   fileSize   = connection.getContentLength();
-                fireEvt(new DownloadEvt(DiscoClient.this, DownloadEvt.DOWNLOAD_STARTED, fileSize));
-                ReadableByteChannel         rbc  = Channels.newChannel(connection.getInputStream());
-                ReadableConsumerByteChannel rcbc = new ReadableConsumerByteChannel(rbc, (b) -> fireEvt(new DownloadEvt(DiscoClient.this, DownloadEvt.DOWNLOAD_PROGRESS, fileSize, b)));
-                FileOutputStream            fos  = new FileOutputStream(fileName);
-                fos.getChannel().transferFrom(rcbc, 0, Long.MAX_VALUE);
-                fos.close();
-                rcbc.close();
-                rbc.close();
-                fireEvt(new DownloadEvt(DiscoClient.this, DownloadEvt.DOWNLOAD_FINISHED, fileSize));
-                return true;
-            } catch (IOException ex) {
-                fireEvt(new DownloadEvt(DiscoClient.this, DownloadEvt.DOWNLOAD_FAILED, 0));
-                return false;
-            }
-        });
-    }
-
-
     // ******************** Event Handling ************************************
     public final void setOnEvt(final EvtType<? extends Evt> type, final EvtObserver observer) {
         if (!observers.keySet().contains(type.getName())) { observers.put(type.getName(), new CopyOnWriteArrayList<>()); }
@@ -1902,6 +2647,18 @@ public class DiscoClient {
     }
     public final void removeAllObservers() { observers.entrySet().forEach(entry -> entry.getValue().clear()); }
 
+    /**
+     * Returns true if an observer would receive events of the given type, so that events
+     * which are fired very often are only created if somebody listens.
+     * @param type Type of the event
+     * @return True if an observer is registered for the given type or for all events
+     */
+    public final boolean hasObservers(final EvtType<? extends Evt> type) {
+        final List<?> typeObservers = observers.get(type.getName());
+        final List<?> anyObservers  = observers.get(DCEvt.ANY.getName());
+        return (null != typeObservers && !typeObservers.isEmpty()) || (null != anyObservers && !anyObservers.isEmpty());
+    }
+
     public final void fireEvt(final Evt evt) {
         final EvtType<? extends Evt> type = evt.getEvtType();
         if (observers.containsKey(type.getName())) {
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import eu.hansolo.jdktools.HashAlgorithm;
+import io.foojay.api.discoclient.event.EvtPriority;
+import io.foojay.api.discoclient.util.Constants;
+import io.foojay.api.discoclient.util.TokenBucket;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+
+/**
+ * Queues downloads and starts them in order of their priority (first come first served within the
+ * same priority) as long as the global and the per host limit of concurrent downloads allow it.
+ * The transfers themselves are non-blocking, so no thread is occupied by a waiting or running download.
+ * Cancelling a returned future removes a queued download from the queue or stops a running one, whose slot
+ * is freed once it stopped writing. A download of the same target submitted meanwhile waits for that.
+ * Submitting a download of the same uri to the same target while it is pending joins the pending download.
+ */
+public class DownloadManager {
+    private final Downloader                  downloader;
+    private final PriorityQueue<DownloadTask> queue;
+    private final Map<String, Integer>        activePerHost;
+    private final Map<String, DownloadTask>   pending;
+    private final AtomicLong                  sequence;
+    private       int                         active;
+    private       int                         maxDownloads;
+    private       int                         maxDownloadsPerHost;
+
+
+    public DownloadManager(final Downloader downloader) {
+        if (null == downloader) { throw new IllegalArgumentException("downloader cannot be null"); }
+        this.downloader          = downloader;
+        this.queue               = new PriorityQueue<>();
+        this.activePerHost       = new HashMap<>();
+        this.pending             = new HashMap<>();
+        this.sequence            = new AtomicLong();
+        this.active              = 0;
+        this.maxDownloads        = Constants.MAX_CONCURRENT_DOWNLOADS;
+        this.maxDownloadsPerHost = Constants.MAX_CONCURRENT_DOWNLOADS_PER_HOST;
+    }
+
+
+    public synchronized int getMaxDownloads() { return maxDownloads; }
+    public void setMaxDownloads(final int maxDownloads) {
+        if (maxDownloads < 1) { throw new IllegalArgumentException("maxDownloads must be at least 1"); }
+        synchronized (this) { this.maxDownloads = maxDownloads; }
+        dispatch();
+    }
+
+    public synchronized int getMaxDownloadsPerHost() { return maxDownloadsPerHost; }
+    public void setMaxDownloadsPerHost(final int maxDownloadsPerHost) {
+        if (maxDownloadsPerHost < 1) { throw new IllegalArgumentException("maxDownloadsPerHost must be at least 1"); }
+        synchronized (this) { this.maxDownloadsPerHost = maxDownloadsPerHost; }
+        dispatch();
+    }
+
+    public synchronized int getQueuedDownloads() { return queue.size(); }
+
+    public synchronized int getActiveDownloads() { return active; }
+
+    public CompletableFuture<Path> submit(final String uri, final Path target) {
+        return submit(uri, target, HashAlgorithm.NONE, "", EvtPriority.NORMAL);
+    }
+    /**
+     * Queues the download of the given uri into the given file.
+     * @param uri Uri of the artifact
+     * @param target File the artifact will be written to
+     * @param hashAlgorithm Algorithm of the given checksum, NONE disables the verification
+     * @param checksum Expected hex encoded checksum, empty disables the verification
+     * @param priority Downloads with a higher priority are started first
+     * @return Future with the target or null if the download failed
+     */
+    public CompletableFuture<Path> submit(final String uri, final Path target, final HashAlgorithm hashAlgorithm, final String checksum, final EvtPriority priority) {
+        return submit(uri, target, hashAlgorithm, checksum, priority, null);
+    }
+    /**
+     * Queues the download of the given uri into the given file with its own bandwidth limit.
+     * @param uri Uri of the artifact
+     * @param target File the artifact will be written to
+     * @param hashAlgorithm Algorithm of the given checksum, NONE disables the verification
+     * @param checksum Expected hex encoded checksum, empty disables the verification
+     * @param priority Downloads with a higher priority are started first
+     * @param limit Bandwidth limit of this download, may be null
+     * @return Future with the target or null if the download failed
+     */
+    public CompletableFuture<Path> submit(final String uri, final Path target, final HashAlgorithm hashAlgorithm, final String checksum, final EvtPriority priority, final TokenBucket limit) {
+        return submit(uri, target, priority, cancelled -> downloader.download(uri, target, hashAlgorithm, checksum, limit, cancelled));
+    }
+    /**
+     * Queues the given transfer of the given uri into the given target, it counts against the same limits
+     * of concurrent downloads as a download, e.g. an archive that is extracted while it is downloaded.
+     * @param uri Uri of the artifact
+     * @param target File or folder the artifact will be written to
+     * @param priority Transfers with a higher priority are started first
+     * @param transfer Starts the transfer once a slot is free, the transfer has to stop when the given flag is set
+     *                 and its future has to complete once it stopped writing to the target
+     * @return Future with the result of the transfer
+     */
+    public CompletableFuture<Path> submit(final String uri, final Path target, final EvtPriority priority, final Function<AtomicBoolean, CompletableFuture<Path>> transfer) {
+        if (null == uri || uri.isEmpty()) { throw new IllegalArgumentException("uri cannot be null or empty"); }
+        if (null == target) { throw new IllegalArgumentException("target cannot be null"); }
+        if (null == transfer) { throw new IllegalArgumentException("transfer cannot be null"); }
+        final String       id   = uri + "|" + target.toAbsolutePath();
+        final DownloadTask task = new DownloadTask(uri, null == priority ? EvtPriority.NORMAL : priority, transfer, sequence.getAndIncrement());
+        final DownloadTask previous;
+        synchronized (this) {
+            final DownloadTask other = pending.get(id);
+            // Cancelling a joined download must not cancel the download of the first caller
+            if (null != other && !other.result.isCancelled()) { return other.result.thenApply(Function.identity()); }
+            pending.put(id, task);
+            previous = other;
+            if (null == previous) { queue.add(task); }
+        }
+        // The entry stays pending until the transfer stopped, so no other transfer writes to the same target meanwhile
+        task.terminated.whenComplete((v, throwable) -> { synchronized (DownloadManager.this) { pending.remove(id, task); } });
+        task.result.whenComplete((path, throwable) -> {
+            if (!task.result.isCancelled()) { return; }
+            final boolean started;
+            synchronized (DownloadManager.this) {
+                queue.remove(task);
+                started = task.started;
+            }
+            task.cancelled.set(true);
+            // A started transfer frees its slot once it stopped
+            if (!started) { task.terminated.complete(null); }
+        });
+        if (null != previous) {
+            // A cancelled transfer of the same target might still be writing to it
+            previous.terminated.whenComplete((v, throwable) -> {
+                synchronized (DownloadManager.this) { if (!task.result.isDone()) { queue.add(task); } }
+                dispatch();
+            });
+            return task.result;
+        }
+        dispatch();
+        return task.result;
+    }
+
+    private void dispatch() {
+        final List<DownloadTask> startable = new ArrayList<>();
+        synchronized (this) {
+            final List<DownloadTask> blocked = new ArrayList<>();
+            while (active < maxDownloads && !queue.isEmpty()) {
+                final DownloadTask task = queue.poll();
+                if (activePerHost.getOrDefault(task.host, 0) >= maxDownloadsPerHost) {
+                    blocked.add(task);
+                    continue;
+                }
+                activePerHost.merge(task.host, 1, Integer::sum);
+                active++;
+                task.started = true;
+                startable.add(task);
+            }
+            queue.addAll(blocked);
+        }
+        // Start outside of the lock, the downloader might complete synchronously
+        startable.forEach(this::start);
+    }
+
+    private void start(final DownloadTask task) {
+        CompletableFuture<Path> running;
+        if (task.cancelled.get()) {
+            running = CompletableFuture.completedFuture(null);
+        } else {
+            try {
+                running = task.transfer.apply(task.cancelled);
+                if (null == running) { running = CompletableFuture.failedFuture(new IllegalStateException("Transfer did not return a future")); }
+            } catch (RuntimeException e) {
+                running = CompletableFuture.failedFuture(e);
+            }
+        }
+        running.whenComplete((path, throwable) -> {
+            synchronized (DownloadManager.this) {
+                active--;
+                activePerHost.computeIfPresent(task.host, (host, count) -> count > 1 ? count - 1 : null);
+            }
+            if (null == throwable) {
+                task.result.complete(path);
+            } else {
+                task.result.completeExceptionally(throwable);
+            }
+            task.terminated.complete(null);
+            dispatch();
+        });
+    }
+
+
+    // ******************** Inner Classes *************************************
+    private static final class DownloadTask implements Comparable<DownloadTask> {
+        private final String                                           host;
+        private final EvtPriority                                      priority;
+        private final Function<AtomicBoolean, CompletableFuture<Path>> transfer;
+        private final long                                             sequence;
+        private final CompletableFuture<Path>                          result;
+        private final AtomicBoolean                                    cancelled;
+        private final CompletableFuture<Void>                          terminated;
+        private       boolean                                          started;
+
+
+        DownloadTask(final String uri, final EvtPriority priority, final Function<AtomicBoolean, CompletableFuture<Path>> transfer, final long sequence) {
+            final String host = URI.create(uri).getHost();
+            this.host       = null == host ? "" : host;
+            this.priority   = priority;
+            this.transfer   = transfer;
+            this.sequence   = sequence;
+            this.result     = new CompletableFuture<>();
+            this.cancelled  = new AtomicBoolean(false);
+            this.terminated = new CompletableFuture<>();
+            this.started    = false;
+        }
+
+
+        @Override public int compareTo(final DownloadTask other) {
+            final int byPriority = Integer.compare(other.priority.getValue(), priority.getValue());
+            return 0 != byPriority ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,630 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import eu.hansolo.jdktools.HashAlgorithm;
+import io.foojay.api.discoclient.event.DownloadEvt;
+import io.foojay.api.discoclient.util.Constants;
+import io.foojay.api.discoclient.util.DownloadDigest;
+import io.foojay.api.discoclient.util.Helper;
+import io.foojay.api.discoclient.util.ProgressThrottle;
+import io.foojay.api.discoclient.util.TokenBucket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+
+/**
+ * Downloads artifacts with the shared http client. Response bodies are written with an AsynchronousFileChannel
+ * and the next chunk is only requested once the previous one is written, so neither the network nor the
+ * disk blocks a thread and many downloads share a few threads. If the server accepts range requests and the
+ * file is large enough, it is split into segments that are fetched concurrently and written with
+ * positional writes into a preallocated file. Otherwise the file is fetched as one stream.
+ * Data is written to a .part file next to the target, which is renamed once the download is complete.
+ * For servers that accept ranges a .part.meta sidecar records the uri, the validator of the artifact
+ * and the bytes done per segment, so a failed download continues where it stopped on the next attempt.
+ * The sidecar is also saved every CHECKPOINT_SIZE bytes of a segment, so a process that was killed loses
+ * at most that much per segment.
+ * If a checksum is given, the digest is computed while the bytes are written and a file that does not
+ * match is deleted instead of being renamed to the target. The digest can only consume bytes in order,
+ * so for segmented or resumed downloads everything behind the first segment is read back from disk once
+ * the transfer is complete. Use setSegments(1) if verifying without that extra read matters more than
+ * the throughput of concurrent segments.
+ * Progress is reported as DownloadEvt on the DiscoClient, at most once per progress interval and only if
+ * at least the minimum number of bytes arrived since the last progress event.
+ * The bandwidth can be limited for all downloads and per download with token buckets whose rate can be
+ * changed while downloads are running, the next chunk of a response is requested later if a bucket is empty.
+ */
+public class Downloader {
+    public  static final int         MAX_SEGMENTS     = 16;
+    public  static final String      PART_SUFFIX      = ".part";
+    public  static final String      META_SUFFIX      = ".part.meta";
+    private static final long        MIN_SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final long        CHECKPOINT_SIZE  = 4 * 1024 * 1024;
+    private        final DiscoClient discoClient;
+    private volatile     int         segments;
+    private volatile     long        progressInterval;
+    private volatile     long        progressMinBytes;
+    private        final TokenBucket bandwidth;
+
+
+    public Downloader(final DiscoClient discoClient) {
+        if (null == discoClient) { throw new IllegalArgumentException("discoClient cannot be null"); }
+        this.discoClient      = discoClient;
+        this.segments         = 4;
+        this.progressInterval = Constants.PROGRESS_INTERVAL;
+        this.progressMinBytes = Constants.PROGRESS_MIN_BYTES;
+        this.bandwidth        = new TokenBucket();
+    }
+
+
+    public int getSegments() { return segments; }
+    /**
+     * Sets the maximum number of segments a file is split into, 1 disables segmented downloads.
+     * With more than one segment a checksum is verified by reading the later segments back from disk.
+     * @param segments Number of segments between 1 and MAX_SEGMENTS
+     */
+    public void setSegments(final int segments) {
+        if (segments < 1 || segments > MAX_SEGMENTS) { throw new IllegalArgumentException("segments must be between 1 and " + MAX_SEGMENTS); }
+        this.segments = segments;
+    }
+
+    public long getProgressInterval() { return progressInterval; }
+    /**
+     * Sets the minimum time between two progress events of a download, 0 only throttles by bytes.
+     * @param progressInterval Minimum time between progress events in milliseconds
+     */
+    public void setProgressInterval(final long progressInterval) {
+        if (progressInterval < 0) { throw new IllegalArgumentException("progressInterval cannot be negative"); }
+        this.progressInterval = progressInterval;
+    }
+
+    public long getProgressMinBytes() { return progressMinBytes; }
+    /**
+     * Sets the minimum number of bytes between two progress events of a download, 0 only throttles by time.
+     * @param progressMinBytes Minimum number of bytes between progress events
+     */
+    public void setProgressMinBytes(final long progressMinBytes) {
+        if (progressMinBytes < 0) { throw new IllegalArgumentException("progressMinBytes cannot be negative"); }
+        this.progressMinBytes = progressMinBytes;
+    }
+
+    /**
+     * Returns the bucket that limits the bandwidth of all downloads together, unlimited by default.
+     * @return Token bucket of all downloads
+     */
+    public TokenBucket getBandwidth() { return bandwidth; }
+
+    /**
+     * Limits the bandwidth of all downloads together, can be changed while downloads are running.
+     * @param bytesPerSecond Bytes per second or 0 for unlimited
+     */
+    public void setBandwidthLimit(final long bytesPerSecond) { bandwidth.setRate(bytesPerSecond); }
+
+    /**
+     * Downloads the given uri into the given file. If a previous download of the same uri into the same
+     * file failed and the artifact did not change in the meantime, only the missing bytes are requested.
+     * @param uri Uri of the artifact
+     * @param target File the artifact will be written to
+     * @return Future with the target or null if the download failed
+     */
+    public CompletableFuture<Path> download(final String uri, final Path target) {
+        return download(uri, target, HashAlgorithm.NONE, "");
+    }
+    /**
+     * Downloads the given uri into the given file and verifies it against the given checksum.
+     * The verified checksum is reported in the DOWNLOAD_FINISHED event.
+     * @param uri Uri of the artifact
+     * @param target File the artifact will be written to
+     * @param hashAlgorithm Algorithm of the given checksum, NONE disables the verification
+     * @param checksum Expected hex encoded checksum, empty disables the verification
+     * @return Future with the target or null if the download failed or the checksum did not match
+     */
+    public CompletableFuture<Path> download(final String uri, final Path target, final HashAlgorithm hashAlgorithm, final String checksum) {
+        return download(uri, target, hashAlgorithm, checksum, null);
+    }
+    /**
+     * Downloads the given uri into the given file and verifies it against the given checksum. The download
+     * is limited by the given bucket in addition to the global limit, e.g. for background downloads.
+     * @param uri Uri of the artifact
+     * @param target File the artifact will be written to
+     * @param hashAlgorithm Algorithm of the given checksum, NONE disables the verification
+     * @param checksum Expected hex encoded checksum, empty disables the verification
+     * @param limit Bandwidth limit of this download, its rate can be changed while the download is running, may be null
+     * @return Future with the target or null if the download failed or the checksum did not match
+     */
+    public CompletableFuture<Path> download(final String uri, final Path target, final HashAlgorithm hashAlgorithm, final String checksum, final TokenBucket limit) {
+        final AtomicBoolean           cancelled = new AtomicBoolean(false);
+        final CompletableFuture<Path> pipeline  = download(uri, target, hashAlgorithm, checksum, limit, cancelled);
+        // Cancelling the returned future stops the transfer, a segmented download can be resumed later
+        final CompletableFuture<Path> result    = new CompletableFuture<>();
+        result.whenComplete((path, throwable) -> { if (result.isCancelled()) { cancelled.set(true); } });
+        pipeline.whenComplete((path, throwable) -> result.complete(path));
+        return result;
+    }
+    /**
+     * Starts the download, setting the given flag stops it. Other than the future returned by the public
+     * methods the returned future only completes once the transfer stopped writing to the .part file.
+     */
+    CompletableFuture<Path> download(final String uri, final Path target, final HashAlgorithm hashAlgorithm, final String checksum, final TokenBucket limit, final AtomicBoolean cancelled) {
+        if (null == uri || uri.isEmpty()) { throw new IllegalArgumentException("uri cannot be null or empty"); }
+        if (null == target) { throw new IllegalArgumentException("target cannot be null"); }
+        final Path     part     = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+        final Path     meta     = target.resolveSibling(target.getFileName() + META_SUFFIX);
+        final Transfer transfer = new Transfer(new DownloadDigest(hashAlgorithm, checksum), new ProgressThrottle(progressInterval, TimeUnit.MILLISECONDS, progressMinBytes), limit, cancelled);
+        return probe(uri).thenCompose(remoteFile -> {
+            discoClient.fireEvt(new DownloadEvt(discoClient, DownloadEvt.DOWNLOAD_STARTED, remoteFile.size));
+            if (!remoteFile.acceptsRanges) { return downloadSingle(uri, part, remoteFile.size, transfer); }
+            final PartState state = resumeOrCreate(uri, remoteFile, part, meta);
+            if (null == state) { return CompletableFuture.failedFuture(new IOException("Cannot create " + part)); }
+            return downloadSegments(uri, part, meta, state, transfer).handle((size, throwable) -> {
+                if (null == throwable) { return CompletableFuture.completedFuture(size); }
+                // Fall back to a single stream if the server does not honor the ranges after all
+                if (unwrap(throwable) instanceof RangeNotHonoredException) {
+                    delete(meta);
+                    return downloadSingle(uri, part, remoteFile.size, transfer);
+                }
+                return CompletableFuture.<Long>failedFuture(throwable);
+            }).thenCompose(future -> future);
+        }).thenApply(size -> {
+            try {
+                moveIntoPlace(part, target);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+            delete(meta);
+            return size;
+        }).handle((size, throwable) -> {
+            if (null == throwable) {
+                discoClient.fireEvt(new DownloadEvt(discoClient, DownloadEvt.DOWNLOAD_FINISHED, size, transfer.digest.getChecksum()));
+                return target;
+            }
+            if (unwrap(throwable) instanceof ChecksumMismatchException) { delete(meta); }
+            if (!Files.exists(meta)) { delete(part); }
+            discoClient.fireEvt(new DownloadEvt(discoClient, DownloadEvt.DOWNLOAD_FAILED, 0));
+            return null;
+        });
+    }
+
+    private CompletableFuture<RemoteFile> probe(final String uri) {
+        final HttpRequest request = requestBuilder(uri).method("HEAD", HttpRequest.BodyPublishers.noBody()).build();
+        return Helper.getHttpClient().sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                     .thenApply(response -> {
+                         if (200 != response.statusCode()) { return new RemoteFile(-1, false, ""); }
+                         final HttpHeaders headers       = response.headers();
+                         final long        size          = headers.firstValueAsLong("Content-Length").orElse(-1);
+                         final boolean     acceptsRanges = size > 0 && headers.allValues("Accept-Ranges").stream().anyMatch(value -> value.toLowerCase().contains("bytes"));
+                         // If-Range only works with strong validators
+                         final String      etag          = headers.firstValue("ETag").orElse("");
+                         final String      validator     = !etag.isEmpty() && !etag.startsWith("W/") ? etag : headers.firstValue("Last-Modified").orElse("");
+                         return new RemoteFile(size, acceptsRanges, validator);
+                     })
+                     .exceptionally(throwable -> new RemoteFile(-1, false, ""));
+    }
+
+    private PartState resumeOrCreate(final String uri, final RemoteFile remoteFile, final Path part, final Path meta) {
+        final PartState previous = PartState.load(meta);
+        try {
+            if (null != previous && previous.matches(uri, remoteFile) && Files.exists(part) && Files.size(part) == remoteFile.size) { return previous; }
+            final int       segmentCount = (int) Math.max(1, Math.min(segments, remoteFile.size / MIN_SEGMENT_SIZE));
+            final PartState state        = new PartState(uri, remoteFile.validator, remoteFile.size, segmentCount);
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.allocate(1), remoteFile.size - 1);
+            }
+            state.save(meta);
+            return state;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private CompletableFuture<Long> downloadSingle(final String uri, final Path part, final long size, final Transfer transfer) {
+        transfer.digest.reset();
+        transfer.total.set(0);
+        transfer.throttle.reset(0);
+        final AsynchronousFileChannel channel;
+        try {
+            channel = AsynchronousFileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        final Segment           segment = new Segment(0, size - 1, 0);
+        final BodyHandler<Long> handler = responseInfo -> 200 == responseInfo.statusCode() ? new ChannelSubscriber(channel, segment, size, transfer, null) : BodySubscribers.replacing(-1L);
+        return Helper.getHttpClient().sendAsync(requestBuilder(uri).GET().build(), handler)
+                     .thenApply(response -> {
+                         if (200 != response.statusCode()) { throw new IllegalStateException("Download of " + uri + " failed with status " + response.statusCode()); }
+                         force(channel);
+                         verify(transfer.digest, part, response.body(), uri);
+                         return response.body();
+                     })
+                     .whenComplete((written, throwable) -> close(channel));
+    }
+
+    private CompletableFuture<Long> downloadSegments(final String uri, final Path part, final Path meta, final PartState state, final Transfer transfer) {
+        final AsynchronousFileChannel channel;
+        try {
+            channel = AsynchronousFileChannel.open(part, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        final List<CompletableFuture<Long>> parts      = new ArrayList<>();
+        final Runnable                      checkpoint = () -> {
+            // Only record progress that reached the disk
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                return;
+            }
+            state.save(meta);
+        };
+        transfer.total.set(state.segments.stream().mapToLong(segment -> segment.done.get()).sum());
+        transfer.throttle.reset(transfer.total.get());
+        for (Segment segment : state.segments) {
+            if (segment.isComplete()) { continue; }
+            final long                from    = segment.position();
+            final HttpRequest.Builder builder = requestBuilder(uri).GET().setHeader("Range", "bytes=" + from + "-" + segment.end);
+            if (!state.validator.isEmpty()) { builder.setHeader("If-Range", state.validator); }
+            final BodyHandler<Long> handler = responseInfo -> 206 == responseInfo.statusCode() ? new ChannelSubscriber(channel, segment, state.size, transfer, checkpoint) : BodySubscribers.replacing(-1L);
+            parts.add(Helper.getHttpClient().sendAsync(builder.build(), handler).thenApply(response -> {
+                if (206 != response.statusCode()) { throw new RangeNotHonoredException("Range request for " + uri + " answered with status " + response.statusCode()); }
+                if (!segment.isComplete()) { throw new IllegalStateException("Incomplete segment " + segment.start + "-" + segment.end + " of " + uri); }
+                return response.body();
+            }));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]))
+                                .thenApply(v -> {
+                                    force(channel);
+                                    verify(transfer.digest, part, state.size, uri);
+                                    return state.size;
+                                })
+                                .whenComplete((written, throwable) -> {
+                                    if (null != throwable) {
+                                        parts.forEach(future -> future.cancel(true));
+                                        if (!(unwrap(throwable) instanceof ChecksumMismatchException)) { state.save(meta); }
+                                    }
+                                    close(channel);
+                                });
+    }
+
+    private HttpRequest.Builder requestBuilder(final String uri) {
+        final String userAgent     = discoClient.getUserAgent();
+        final String userAgentText = (null == userAgent || userAgent.isEmpty()) ? "DiscoClient" : "DiscoClient (" + userAgent + ")";
+        return HttpRequest.newBuilder().uri(URI.create(uri)).setHeader("User-Agent", userAgentText).timeout(Duration.ofMinutes(30));
+    }
+
+    private static void moveIntoPlace(final Path part, final Path target) throws IOException {
+        try {
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Throwable unwrap(final Throwable throwable) {
+        return throwable instanceof CompletionException && null != throwable.getCause() ? throwable.getCause() : throwable;
+    }
+
+    private static void verify(final DownloadDigest digest, final Path part, final long size, final String uri) {
+        if (!digest.isEnabled()) { return; }
+        // Only bytes that did not arrive in order are read back
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.READ)) {
+            if (!digest.finish(channel, size)) { throw new ChecksumMismatchException("Checksum " + digest.getChecksum() + " of " + uri + " does not match"); }
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static void force(final AsynchronousFileChannel channel) {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static void close(final AsynchronousFileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to write
+        }
+    }
+
+    private static void delete(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Will be overwritten by the next attempt
+        }
+    }
+
+
+    // ******************** Inner Classes *************************************
+    private static final class RemoteFile {
+        private final long    size;
+        private final boolean acceptsRanges;
+        private final String  validator;
+
+
+        RemoteFile(final long size, final boolean acceptsRanges, final String validator) {
+            this.size          = size;
+            this.acceptsRanges = acceptsRanges;
+            this.validator     = validator;
+        }
+    }
+
+    private static final class Segment {
+        private final long       start;
+        private final long       end;
+        private final AtomicLong done;
+
+
+        Segment(final long start, final long end, final long done) {
+            this.start = start;
+            this.end   = end;
+            this.done  = new AtomicLong(done);
+        }
+
+
+        long position() { return start + done.get(); }
+
+        boolean isComplete() { return end >= 0 && position() > end; }
+    }
+
+    /**
+     * State shared by all requests of one download.
+     */
+    private static final class Transfer {
+        private final DownloadDigest   digest;
+        private final ProgressThrottle throttle;
+        private final AtomicBoolean    cancelled;
+        private final AtomicLong       total;
+        private final TokenBucket      limit;
+
+
+        Transfer(final DownloadDigest digest, final ProgressThrottle throttle, final TokenBucket limit, final AtomicBoolean cancelled) {
+            this.digest    = digest;
+            this.throttle  = throttle;
+            this.cancelled = cancelled;
+            this.total     = new AtomicLong();
+            this.limit     = limit;
+        }
+    }
+
+    /**
+     * Content of the .part.meta sidecar.
+     */
+    private static final class PartState {
+        private static final String        KEY_URI       = "uri";
+        private static final String        KEY_VALIDATOR = "validator";
+        private static final String        KEY_SIZE      = "size";
+        private static final String        KEY_SEGMENTS  = "segments";
+        private        final String        uri;
+        private        final String        validator;
+        private        final long          size;
+        private        final List<Segment> segments;
+
+
+        PartState(final String uri, final String validator, final long size, final int segmentCount) {
+            this(uri, validator, size, new ArrayList<>());
+            final long segmentSize = (size + segmentCount - 1) / segmentCount;
+            for (long start = 0 ; start < size ; start += segmentSize) { segments.add(new Segment(start, Math.min(size, start + segmentSize) - 1, 0)); }
+        }
+        private PartState(final String uri, final String validator, final long size, final List<Segment> segments) {
+            this.uri       = uri;
+            this.validator = validator;
+            this.size      = size;
+            this.segments  = segments;
+        }
+
+
+        boolean matches(final String uri, final RemoteFile remoteFile) {
+            return this.uri.equals(uri) && size == remoteFile.size && !validator.isEmpty() && validator.equals(remoteFile.validator);
+        }
+
+        synchronized void save(final Path meta) {
+            final Properties properties = new Properties();
+            properties.setProperty(KEY_URI, uri);
+            properties.setProperty(KEY_VALIDATOR, validator);
+            properties.setProperty(KEY_SIZE, Long.toString(size));
+            properties.setProperty(KEY_SEGMENTS, segments.stream().map(segment -> segment.start + "-" + segment.end + ":" + segment.done.get()).collect(Collectors.joining(",")));
+            try {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                properties.store(out, "DiscoClient partial download");
+                Helper.writeAtomically(meta, ByteBuffer.wrap(out.toByteArray()));
+            } catch (IOException e) {
+                // Next attempt will start from scratch
+            }
+        }
+
+        static PartState load(final Path meta) {
+            if (!Files.exists(meta)) { return null; }
+            final Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(meta)) {
+                properties.load(in);
+                final List<Segment> segments = new ArrayList<>();
+                for (String entry : properties.getProperty(KEY_SEGMENTS, "").split(",")) {
+                    final String[] rangeAndDone = entry.split(":");
+                    final String[] range        = rangeAndDone[0].split("-");
+                    segments.add(new Segment(Long.parseLong(range[0]), Long.parseLong(range[1]), Long.parseLong(rangeAndDone[1])));
+                }
+                return new PartState(properties.getProperty(KEY_URI, ""), properties.getProperty(KEY_VALIDATOR, ""), Long.parseLong(properties.getProperty(KEY_SIZE, "-1")), segments);
+            } catch (IOException | RuntimeException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class RangeNotHonoredException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        RangeNotHonoredException(final String message) { super(message); }
+    }
+
+    private static final class ChecksumMismatchException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        ChecksumMismatchException(final String message) { super(message); }
+    }
+
+    /**
+     * Writes the body of a response into the channel at the current position of the segment. The next
+     * chunk is requested when the write of the current chunk completed. If a checkpoint is given, it is run
+     * every CHECKPOINT_SIZE bytes written by this subscriber.
+     */
+    private final class ChannelSubscriber implements BodySubscriber<Long>, CompletionHandler<Integer, ByteBuffer> {
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        private final AsynchronousFileChannel channel;
+        private final Segment                 segment;
+        private final long                    fileSize;
+        private final Transfer                transfer;
+        private final Runnable                checkpoint;
+        private       long                    written;
+        private       long                    chunkBytes;
+        private       long                    unsavedBytes;
+        private       Subscription            subscription;
+        private       Iterator<ByteBuffer>    buffers;
+        private       boolean                 writing;
+        private       boolean                 completed;
+
+
+        ChannelSubscriber(final AsynchronousFileChannel channel, final Segment segment, final long fileSize, final Transfer transfer, final Runnable checkpoint) {
+            this.channel    = channel;
+            this.segment    = segment;
+            this.fileSize   = fileSize;
+            this.transfer   = transfer;
+            this.checkpoint = checkpoint;
+        }
+
+
+        @Override public CompletionStage<Long> getBody() { return result; }
+
+        @Override public void onSubscribe(final Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override public void onNext(final List<ByteBuffer> buffers) {
+            if (transfer.cancelled.get()) {
+                subscription.cancel();
+                result.completeExceptionally(new CancellationException());
+                return;
+            }
+            synchronized (this) { writing = true; }
+            this.buffers = buffers.iterator();
+            writeNext(null);
+        }
+
+        @Override public void onError(final Throwable throwable) { result.completeExceptionally(throwable); }
+
+        @Override public void onComplete() {
+            synchronized (this) {
+                completed = true;
+                if (writing) { return; }
+            }
+            result.complete(written);
+        }
+
+        @Override public void completed(final Integer count, final ByteBuffer buffer) {
+            segment.done.addAndGet(count);
+            written      += count;
+            chunkBytes   += count;
+            unsavedBytes += count;
+            final long done = transfer.total.addAndGet(count);
+            if (transfer.throttle.update(done, fileSize) && discoClient.hasObservers(DownloadEvt.DOWNLOAD_PROGRESS)) {
+                discoClient.fireEvt(new DownloadEvt(discoClient, DownloadEvt.DOWNLOAD_PROGRESS, fileSize, done, transfer.throttle.getBytesPerSecond(), transfer.throttle.getEta(done, fileSize), TokenBucket.effectiveRate(bandwidth, transfer.limit)));
+            }
+            if (null != checkpoint && unsavedBytes >= CHECKPOINT_SIZE) {
+                unsavedBytes = 0;
+                checkpoint.run();
+            }
+            writeNext(buffer);
+        }
+
+        @Override public void failed(final Throwable throwable, final ByteBuffer buffer) {
+            subscription.cancel();
+            result.completeExceptionally(throwable);
+        }
+
+        private void writeNext(final ByteBuffer current) {
+            if (result.isDone()) { return; }
+            ByteBuffer buffer = current;
+            while (null == buffer || !buffer.hasRemaining()) {
+                if (!buffers.hasNext()) {
+                    chunkWritten();
+                    return;
+                }
+                buffer = buffers.next();
+                transfer.digest.update(segment.position(), buffer);
+            }
+            channel.write(buffer, segment.position(), buffer, this);
+        }
+
+        private void chunkWritten() {
+            synchronized (this) {
+                writing = false;
+                if (!completed) {
+                    requestNext();
+                    return;
+                }
+            }
+            result.complete(written);
+        }
+
+        private void requestNext() {
+            final long bytes = chunkBytes;
+            chunkBytes = 0;
+            final long wait = Math.max(bandwidth.take(bytes), null == transfer.limit ? 0 : transfer.limit.take(bytes));
+            if (0 == wait) {
+                subscription.request(1);
+            } else {
+                CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS).execute(() -> subscription.request(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import eu.hansolo.jdktools.Architecture;
+import eu.hansolo.jdktools.ArchiveType;
+import eu.hansolo.jdktools.Bitness;
+import eu.hansolo.jdktools.Latest;
+import eu.hansolo.jdktools.LibCType;
+import eu.hansolo.jdktools.Match;
+import eu.hansolo.jdktools.OperatingSystem;
+import eu.hansolo.jdktools.PackageType;
+import eu.hansolo.jdktools.ReleaseStatus;
+import eu.hansolo.jdktools.TermOfSupport;
+import eu.hansolo.jdktools.versioning.Semver;
+import eu.hansolo.jdktools.versioning.VersionNumber;
+import io.foojay.api.discoclient.pkg.CatalogSnapshot;
+import io.foojay.api.discoclient.pkg.Distribution;
+import io.foojay.api.discoclient.pkg.Feature;
+import io.foojay.api.discoclient.pkg.MajorVersion;
+import io.foojay.api.discoclient.pkg.Pkg;
+import io.foojay.api.discoclient.pkg.PkgTable;
+import io.foojay.api.discoclient.pkg.PkgTable.Column;
+import io.foojay.api.discoclient.pkg.Scope;
+import io.foojay.api.discoclient.util.PkgInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+
+/**
+ * Answers the queries of the DiscoClient from a catalog snapshot without making any requests.
+ * The filters follow the semantics of the disco api as close as the data in the snapshot allows,
+ * scopes are matched against the scopes of the distribution a package belongs to.
+ */
+class LocalCatalog {
+    private final CatalogSnapshot snapshot;
+    private final PkgTable        table;
+
+
+    LocalCatalog(final CatalogSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.table    = snapshot.getPkgTable();
+    }
+
+
+    CatalogSnapshot getSnapshot() { return snapshot; }
+
+    long getAgeInSeconds() { return snapshot.getAgeInSeconds(); }
+
+
+    // ******************** Packages ******************************************
+    List<Pkg> getAllPackages() { return table.asList(); }
+
+    List<Pkg> getPkgs(final List<Distribution> distributions, final VersionNumber versionNumber, final Latest latest, final OperatingSystem operatingSystem,
+                      final LibCType libcType, final Architecture architecture, final Bitness bitness, final ArchiveType archiveType, final PackageType packageType,
+                      final Boolean javafxBundled, final Boolean directlyDownloadable, final List<ReleaseStatus> releaseStatus, final TermOfSupport termOfSupport,
+                      final List<String> ftrs, final List<Scope> scopes, final Match match) {
+        final Set<String>  distributionNames = new HashSet<>();
+        if (null != distributions) { distributions.stream().filter(distribution -> null != distribution).forEach(distribution -> distributionNames.add(distribution.getApiString())); }
+
+        final Set<Integer> releaseStatusOrdinals = new HashSet<>();
+        if (null != releaseStatus) {
+            releaseStatus.stream().filter(rs -> null != rs && ReleaseStatus.NONE != rs && ReleaseStatus.NOT_FOUND != rs).forEach(rs -> releaseStatusOrdinals.add(rs.ordinal()));
+        }
+
+        final Set<Feature> features = new HashSet<>();
+        if (null != ftrs) {
+            ftrs.stream().map(Feature::fromText).filter(feature -> Feature.NONE != feature && Feature.NOT_FOUND != feature).forEach(features::add);
+        }
+
+        // Latest queries look for newer versions than the given one, so only the feature version is used to filter
+        final boolean       latestQuery   = Latest.AVAILABLE == latest || Latest.PER_VERSION == latest || Latest.OVERALL == latest;
+        final VersionNumber versionFilter = Latest.PER_DISTRIBUTION == latest ? null : versionNumber;
+        final int[]         rows          = table.select(row -> {
+            if (!distributionNames.isEmpty() && !distributionNames.contains(table.getDistributionName(row))) { return false; }
+            if (null != versionFilter && !matchesVersion(table.getVersionKey(row), versionFilter, latestQuery))  { return false; }
+            if (!matches(Column.OPERATING_SYSTEM, row, operatingSystem, OperatingSystem.NONE, OperatingSystem.NOT_FOUND)) { return false; }
+            if (!matches(Column.LIB_C_TYPE, row, libcType, LibCType.NONE, LibCType.NOT_FOUND))                           { return false; }
+            if (!matches(Column.ARCHITECTURE, row, architecture, Architecture.NONE, Architecture.NOT_FOUND))             { return false; }
+            if (!matches(Column.ARCHIVE_TYPE, row, archiveType, ArchiveType.NONE, ArchiveType.NOT_FOUND))                { return false; }
+            if (!matches(Column.PACKAGE_TYPE, row, packageType, PackageType.NONE, PackageType.NOT_FOUND))                { return false; }
+            if (!matches(Column.TERM_OF_SUPPORT, row, termOfSupport, TermOfSupport.NONE, TermOfSupport.NOT_FOUND))       { return false; }
+            if (null != bitness && Bitness.NONE != bitness && Bitness.NOT_FOUND != bitness && bitness != table.getArchitecture(row).getBitness()) { return false; }
+            if (null != javafxBundled && javafxBundled != table.isJavaFXBundled(row))                                   { return false; }
+            if (null != directlyDownloadable && directlyDownloadable != table.isDirectlyDownloadable(row))              { return false; }
+            if (!releaseStatusOrdinals.isEmpty() && !releaseStatusOrdinals.contains((int) table.getOrdinal(Column.RELEASE_STATUS, row))) { return false; }
+            for (Feature feature : features) {
+                if (!table.hasFeature(row, feature)) { return false; }
+            }
+            return matchesScopes(row, scopes, match);
+        });
+        return table.asList(latest(rows, latest));
+    }
+
+    List<Pkg> getPkgsForFeatureVersion(final List<Distribution> distributions, final int featureVersion, final List<ReleaseStatus> releaseStatus, final Boolean directlyDownloadable, final List<Scope> scopes, final Match match) {
+        return getPkgs(distributions, new VersionNumber(featureVersion), Latest.NONE, OperatingSystem.NONE, LibCType.NONE, Architecture.NONE, Bitness.NONE,
+                       ArchiveType.NONE, PackageType.NONE, null, directlyDownloadable, releaseStatus, TermOfSupport.NONE, List.of(), scopes, match)
+            .stream()
+            .filter(pkg -> pkg.getJavaVersion().getFeature() == featureVersion)
+            .collect(Collectors.toList());
+    }
+
+    Pkg getPkg(final String pkgId) {
+        final int row = table.indexOf(pkgId);
+        return row < 0 ? null : table.getPkg(row);
+    }
+
+    PkgInfo getPkgInfo(final String id) { return snapshot.getPkgInfo(id); }
+
+
+    // ******************** Major versions ************************************
+    List<MajorVersion> getMajorVersions(final Boolean maintained, final boolean include_ea, final boolean include_ga) {
+        return filterMajorVersions(snapshot.getMajorVersions(), maintained, include_ea, include_ga);
+    }
+
+    /**
+     * Filters the given major versions like the major versions endpoint does with the maintained, ea and ga parameters.
+     * @return Copies of the matching major versions that only contain the matching versions, sorted by feature version in descending order
+     */
+    static List<MajorVersion> filterMajorVersions(final Collection<MajorVersion> majorVersions, final Boolean maintained, final boolean include_ea, final boolean include_ga) {
+        final List<MajorVersion> majorVersionsFound = new ArrayList<>();
+        for (MajorVersion majorVersion : majorVersions) {
+            if (null != maintained && maintained && !majorVersion.isMaintained()) { continue; }
+            final List<Semver> versions = majorVersion.getVersions().stream()
+                                                      .filter(semver -> ReleaseStatus.EA == semver.getReleaseStatus() ? include_ea : include_ga)
+                                                      .collect(Collectors.toList());
+            if (versions.isEmpty()) { continue; }
+            majorVersionsFound.add(new MajorVersion(majorVersion.getAsInt(), majorVersion.getTermOfSupport(), majorVersion.isMaintained(), majorVersion.getScope(), versions));
+        }
+        majorVersionsFound.sort(Comparator.comparing(MajorVersion::getAsInt).reversed());
+        return majorVersionsFound;
+    }
+
+    MajorVersion getMajorVersion(final int featureVersion, final boolean include_ea) {
+        return getMajorVersions(null, include_ea, true).stream().filter(majorVersion -> majorVersion.getAsInt() == featureVersion).findFirst().orElse(null);
+    }
+
+    /**
+     * Supports the parameters of the major versions endpoint, which are either a
+     * feature version or one of latest_ea, latest_ga, latest_sts, latest_mts and latest_lts.
+     */
+    MajorVersion getMajorVersion(final String parameter) {
+        if (null == parameter || parameter.isEmpty()) { return null; }
+        try {
+            return getMajorVersion(Integer.parseInt(parameter.trim()), true);
+        } catch (NumberFormatException e) {
+            final List<MajorVersion> majorVersions;
+            switch (parameter.trim().toLowerCase()) {
+                case "latest_ea" : majorVersions = getMajorVersions(null, true, false); break;
+                case "latest_ga" :
+                case "latest"    : majorVersions = getMajorVersions(null, false, true); break;
+                case "latest_sts": majorVersions = filterByTermOfSupport(getMajorVersions(null, false, true), TermOfSupport.STS); break;
+                case "latest_mts": majorVersions = filterByTermOfSupport(getMajorVersions(null, false, true), TermOfSupport.MTS); break;
+                case "latest_lts": majorVersions = filterByTermOfSupport(getMajorVersions(null, false, true), TermOfSupport.LTS); break;
+                default          : majorVersions = List.of(); break;
+            }
+            return majorVersions.isEmpty() ? null : majorVersions.get(0);
+        }
+    }
+
+    List<MajorVersion> getMajorVersionsOf(final Distribution distribution, final boolean include_ea) {
+        if (null == distribution) { return new ArrayList<>(); }
+        final Set<Integer> featureVersions = new TreeSet<>(Comparator.reverseOrder());
+        for (int row : table.selectDistribution(distribution.getApiString())) {
+            if (!include_ea && ReleaseStatus.EA == table.getReleaseStatus(row)) { continue; }
+            featureVersions.add(table.getMajorVersion(row));
+        }
+        return featureVersions.stream().map(MajorVersion::new).collect(Collectors.toList());
+    }
+
+
+    // ******************** Distributions *************************************
+    List<Distribution> getDistributions() { return new ArrayList<>(snapshot.getDistributions()); }
+
+    List<Distribution> getDistributionsForVersion(final VersionNumber versionNumber, final List<Scope> scopes, final Match match) {
+        final Set<String> distributionNames = new LinkedHashSet<>();
+        for (int row = 0 ; row < table.size() ; row++) {
+            if (null != versionNumber && !matchesVersion(table.getVersionKey(row), versionNumber, false)) { continue; }
+            if (!matchesScopes(row, scopes, match)) { continue; }
+            distributionNames.add(table.getDistributionName(row));
+        }
+        return getDistributions().stream().filter(distribution -> distributionNames.contains(distribution.getApiString())).collect(Collectors.toList());
+    }
+
+
+    // ******************** Private methods ***********************************
+    private boolean matches(final Column column, final int row, final Enum<?> value, final Enum<?> none, final Enum<?> notFound) {
+        if (null == value || none == value || notFound == value) { return true; }
+        return table.getOrdinal(column, row) == value.ordinal();
+    }
+
+    /**
+     * Compares the components of the given version up to the last one that is not zero,
+     * e.g. 17 matches all 17.x.y versions, 17.0.2 only matches 17.0.2 builds.
+     */
+    private static boolean matchesVersion(final long versionKey, final VersionNumber versionNumber, final boolean featureOnly) {
+        final int[] requested = { versionNumber.getFeature().orElse(0), versionNumber.getInterim().orElse(0), versionNumber.getUpdate().orElse(0), versionNumber.getPatch().orElse(0) };
+        final int[] found     = PkgTable.versionComponents(versionKey);
+        int last = 0;
+        if (!featureOnly) {
+            for (int i = 0 ; i < requested.length ; i++) {
+                if (requested[i] != 0) { last = i; }
+            }
+        }
+        for (int i = 0 ; i <= last ; i++) {
+            if (requested[i] != found[i]) { return false; }
+        }
+        return true;
+    }
+
+    private boolean matchesScopes(final int row, final List<Scope> scopes, final Match match) {
+        if (null == scopes || scopes.isEmpty()) { return true; }
+        final List<Scope> distributionScopes = DiscoClient.SCOPE_LOOKUP.getOrDefault(table.getDistributionName(row), List.of());
+        boolean anyMatch = false;
+        boolean allMatch = true;
+        int     checked  = 0;
+        for (Scope scope : scopes) {
+            if (null == scope || Scope.NONE == scope || Scope.NOT_FOUND == scope) { continue; }
+            checked++;
+            final boolean scopeMatch;
+            switch (scope) {
+                case DIRECTLY_DOWNLOADABLE        : scopeMatch = table.isDirectlyDownloadable(row); break;
+                case NOT_DIRECTLY_DOWNLOADABLE    : scopeMatch = !table.isDirectlyDownloadable(row); break;
+                case FREE_TO_USE_IN_PRODUCTION    : scopeMatch = table.isFreeUseInProduction(row); break;
+                case LICENSE_NEEDED_FOR_PRODUCTION: scopeMatch = !table.isFreeUseInProduction(row); break;
+                default                           : scopeMatch = distributionScopes.isEmpty() || distributionScopes.contains(scope); break;
+            }
+            anyMatch |= scopeMatch;
+            allMatch &= scopeMatch;
+        }
+        if (0 == checked) { return true; }
+        return Match.ALL == match ? allMatch : anyMatch;
+    }
+
+    /**
+     * Reduces the given rows to the rows that contain the latest version for the given latest parameter.
+     * GA builds of the same version are treated as one version, early access builds are compared including the build number.
+     */
+    private int[] latest(final int[] rows, final Latest latest) {
+        if (null == latest || rows.length == 0) { return rows; }
+        switch (latest) {
+            case OVERALL         : return keepLatest(rows, row -> "");
+            case PER_DISTRIBUTION:
+            case AVAILABLE       : return keepLatest(rows, row -> table.getDistributionName(row));
+            case PER_VERSION     : return keepLatest(rows, row -> table.getDistributionName(row) + "-" + table.getMajorVersion(row));
+            default              : return rows;
+        }
+    }
+
+    private int[] keepLatest(final int[] rows, final IntFunction<String> groupOf) {
+        final Map<String, Long> latestPerGroup = new HashMap<>();
+        for (int row : rows) { latestPerGroup.merge(groupOf.apply(row), PkgTable.releaseKey(table.getVersionKey(row)), Math::max); }
+        return Arrays.stream(rows).filter(row -> PkgTable.releaseKey(table.getVersionKey(row)) == latestPerGroup.get(groupOf.apply(row))).toArray();
+    }
+
+    private static List<MajorVersion> filterByTermOfSupport(final List<MajorVersion> majorVersions, final TermOfSupport termOfSupport) {
+        return majorVersions.stream().filter(majorVersion -> termOfSupport == majorVersion.getTermOfSupport()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient.event;
+
+import io.foojay.api.discoclient.pkg.CatalogDelta;
+import io.foojay.api.discoclient.pkg.Distribution;
+import io.foojay.api.discoclient.pkg.MajorVersion;
+
+import java.util.List;
+
+
+public class CatalogEvt extends DCEvt {
+    public  static final EvtType<CatalogEvt> ANY                   = new EvtType<>(DCEvt.ANY, "CATALOG");
+    public  static final EvtType<CatalogEvt> CATALOG_UPDATED       = new EvtType<>(CatalogEvt.ANY, "CATALOG_UPDATED");
+    public  static final EvtType<CatalogEvt> PKG_ADDED             = new EvtType<>(CatalogEvt.ANY, "PKG_ADDED");
+    public  static final EvtType<CatalogEvt> PKG_REMOVED           = new EvtType<>(CatalogEvt.ANY, "PKG_REMOVED");
+    public  static final EvtType<CatalogEvt> NEW_MAJOR_VERSION     = new EvtType<>(CatalogEvt.ANY, "NEW_MAJOR_VERSION");
+    public  static final EvtType<CatalogEvt> DISTRIBUTIONS_CHANGED = new EvtType<>(CatalogEvt.ANY, "DISTRIBUTIONS_CHANGED");
+
+    private final CatalogDelta       delta;
+    private final List<MajorVersion> majorVersions;
+    private final List<Distribution> distributions;
+
+
+    public CatalogEvt(final Object source, final EvtType<? extends CatalogEvt> evtType, final CatalogDelta delta) {
+        this(source, evtType, delta, List.of(), List.of(), EvtPriority.NORMAL);
+    }
+    public CatalogEvt(final Object source, final EvtType<? extends CatalogEvt> evtType, final CatalogDelta delta, final EvtPriority priority) {
+        this(source, evtType, delta, List.of(), List.of(), priority);
+    }
+    public CatalogEvt(final Object source, final EvtType<? extends CatalogEvt> evtType, final CatalogDelta delta, final List<MajorVersion> majorVersions, final List<Distribution> distributions) {
+        this(source, evtType, delta, majorVersions, distributions, EvtPriority.NORMAL);
+    }
+    public CatalogEvt(final Object source, final EvtType<? extends CatalogEvt> evtType, final CatalogDelta delta, final List<MajorVersion> majorVersions, final List<Distribution> distributions, final EvtPriority priority) {
+        super(source, evtType, priority);
+        this.delta         = null == delta         ? new CatalogDelta(List.of(), List.of()) : delta;
+        this.majorVersions = null == majorVersions ? List.of() : List.copyOf(majorVersions);
+        this.distributions = null == distributions ? List.of() : List.copyOf(distributions);
+    }
+
+
+    public EvtType<? extends CatalogEvt> getEvtType() {
+        return (EvtType<? extends CatalogEvt>) super.getEvtType();
+    }
+
+    /**
+     * Returns the changed packages for CATALOG_UPDATED, PKG_ADDED and PKG_REMOVED events.
+     * @return The changed packages or an empty delta
+     */
+    public final CatalogDelta getDelta() { return delta; }
+
+    /**
+     * Returns the new major versions for NEW_MAJOR_VERSION events.
+     * @return The new major versions or an empty list
+     */
+    public final List<MajorVersion> getMajorVersions() { return majorVersions; }
+
+    /**
+     * Returns the current list of distributions for DISTRIBUTIONS_CHANGED events.
+     * @return The current distributions or an empty list
+     */
+    public final List<Distribution> getDistributions() { return distributions; }
+}
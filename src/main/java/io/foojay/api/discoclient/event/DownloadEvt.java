@@ -23,8 +23,12 @@ public class DownloadEvt extends DCEvt {
     public  static final EvtType<DownloadEvt> DOWNLOAD_FINISHED = new EvtType<>(DownloadEvt.ANY, "DOWNLOAD_FINISHED");
     public  static final EvtType<DownloadEvt> DOWNLOAD_FAILED   = new EvtType<>(DownloadEvt.ANY, "DOWNLOAD_FAILED");
 
-    private final long fileSize;
-    private final long fraction;
+    private final long   fileSize;
+    private final long   fraction;
+    private final String checksum;
+    private final long   bytesPerSecond;
+    private final long   eta;
+    private final long   bandwidthLimit;
 
 
     public DownloadEvt(final Object source, final EvtType<? extends DownloadEvt> evtType, final long fileSize) {
@@ -36,10 +40,29 @@ public class DownloadEvt extends DCEvt {
     public DownloadEvt(final Object source, final EvtType<? extends DownloadEvt> evtType, final long fileSize, final long fraction) {
         this(source, evtType, fileSize, fraction, EvtPriority.NORMAL);
     }
+    public DownloadEvt(final Object source, final EvtType<? extends DownloadEvt> evtType, final long fileSize, final String checksum) {
+        this(source, evtType, fileSize, 0, checksum, EvtPriority.NORMAL);
+    }
     public DownloadEvt(final Object source, final EvtType<? extends DownloadEvt> evtType, final long fileSize, final long fraction, final EvtPriority priority) {
+        this(source, evtType, fileSize, fraction, "", priority);
+    }
+    public DownloadEvt(final Object source, final EvtType<? extends DownloadEvt> evtType, final long fileSize, final long fraction, final long bytesPerSecond, final long eta) {
+        this(source, evtType, fileSize, fraction, "", bytesPerSecond, eta, 0, EvtPriority.NORMAL);
+    }
+    public DownloadEvt(final Object source, final EvtType<? extends DownloadEvt> evtType, final long fileSize, final long fraction, final long bytesPerSecond, final long eta, final long bandwidthLimit) {
+        this(source, evtType, fileSize, fraction, "", bytesPerSecond, eta, bandwidthLimit, EvtPriority.NORMAL);
+    }
+    public DownloadEvt(final Object source, final EvtType<? extends DownloadEvt> evtType, final long fileSize, final long fraction, final String checksum, final EvtPriority priority) {
+        this(source, evtType, fileSize, fraction, checksum, 0, -1, 0, priority);
+    }
+    public DownloadEvt(final Object source, final EvtType<? extends DownloadEvt> evtType, final long fileSize, final long fraction, final String checksum, final long bytesPerSecond, final long eta, final long bandwidthLimit, final EvtPriority priority) {
         super(source, evtType, priority);
-        this.fileSize = fileSize;
-        this.fraction = fraction;
+        this.fileSize       = fileSize;
+        this.fraction       = fraction;
+        this.checksum       = null == checksum ? "" : checksum;
+        this.bytesPerSecond = bytesPerSecond;
+        this.eta            = eta;
+        this.bandwidthLimit = bandwidthLimit;
     }
 
 
@@ -50,4 +73,28 @@ public class DownloadEvt extends DCEvt {
     public final long getFileSize() { return fileSize; }
 
     public final long getFraction() { return fraction; }
+
+    /**
+     * Returns the verified checksum of the downloaded file in finished events, an empty string otherwise
+     * @return The verified checksum of the downloaded file or an empty string
+     */
+    public final String getChecksum() { return checksum; }
+
+    /**
+     * Returns the smoothed throughput in progress events
+     * @return Bytes per second or 0 if unknown
+     */
+    public final long getBytesPerSecond() { return bytesPerSecond; }
+
+    /**
+     * Returns the estimated time until the download is finished in progress events
+     * @return Remaining seconds or -1 if unknown
+     */
+    public final long getEta() { return eta; }
+
+    /**
+     * Returns the bandwidth limit that applied to the download in progress events
+     * @return Limit in bytes per second or 0 if the download is not limited
+     */
+    public final long getBandwidthLimit() { return bandwidthLimit; }
 }
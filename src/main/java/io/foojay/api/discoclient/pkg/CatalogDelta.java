@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient.pkg;
+
+import java.time.Instant;
+import java.util.List;
+
+
+/**
+ * Changes between two states of the package catalog. As the package ids of the disco api change
+ * whenever the content of a package changes, an updated package shows up as one removed and one added package.
+ */
+public class CatalogDelta {
+    private final List<Pkg> added;
+    private final List<Pkg> removed;
+    private final long      timestamp;
+
+
+    public CatalogDelta(final List<Pkg> added, final List<Pkg> removed) {
+        this(added, removed, Instant.now().getEpochSecond());
+    }
+    public CatalogDelta(final List<Pkg> added, final List<Pkg> removed, final long timestamp) {
+        this.added     = null == added   ? List.of() : List.copyOf(added);
+        this.removed   = null == removed ? List.of() : List.copyOf(removed);
+        this.timestamp = timestamp;
+    }
+
+
+    public List<Pkg> getAdded() { return added; }
+
+    public List<Pkg> getRemoved() { return removed; }
+
+    /**
+     * Returns the time the delta was computed in seconds since the epoch.
+     * @return Creation time of the delta in epoch seconds
+     */
+    public long getTimestamp() { return timestamp; }
+
+    public boolean isEmpty() { return added.isEmpty() && removed.isEmpty(); }
+
+    public int size() { return added.size() + removed.size(); }
+
+    @Override public String toString() {
+        return new StringBuilder().append("{\"added\":").append(added.size())
+                                  .append(",\"removed\":").append(removed.size())
+                                  .append(",\"timestamp\":").append(timestamp)
+                                  .append("}").toString();
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2021 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient.pkg;
+
+import eu.hansolo.jdktools.HashAlgorithm;
+import eu.hansolo.jdktools.TermOfSupport;
+import eu.hansolo.jdktools.versioning.Semver;
+import io.foojay.api.discoclient.util.Helper;
+import io.foojay.api.discoclient.util.PkgInfo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+
+/**
+ * Binary snapshot of the catalog that contains the distributions, the major versions,
+ * the packages and the package infos (download uris and checksums) that were known when
+ * the snapshot was created. Every section of the file is protected by a crc32 checksum and
+ * unknown sections are skipped when loading, so newer files stay readable.
+ * The packages section is not copied to the heap but read from the mapped file. As Windows does not
+ * allow to replace a mapped file, a save might write a new generation next to the file instead.
+ */
+public class CatalogSnapshot {
+    public  static final int                MAGIC                  = 0x4443534E; // DCSN
+    public  static final int                FORMAT_VERSION         = 2;
+    public  static final int                SECTION_DISTRIBUTIONS  = 1;
+    public  static final int                SECTION_MAJOR_VERSIONS = 2;
+    public  static final int                SECTION_PACKAGES       = 3;
+    public  static final int                SECTION_PKG_INFOS      = 4;
+    private static final int                HEADER_SIZE            = 24;
+    private static final int                SECTION_HEADER_SIZE    = 16;
+    private        final long               createdAt;
+    private        final List<Distribution> distributions;
+    private        final List<MajorVersion> majorVersions;
+    private        final PkgTable           pkgTable;
+    private        final Map<String, PkgInfo> pkgInfos;
+    private volatile     FacetCounts          facetCounts;
+
+
+    public CatalogSnapshot(final Collection<Distribution> distributions, final Collection<MajorVersion> majorVersions, final PkgTable pkgTable) {
+        this(Instant.now().getEpochSecond(), distributions, majorVersions, pkgTable, Map.of());
+    }
+    public CatalogSnapshot(final Collection<Distribution> distributions, final Collection<MajorVersion> majorVersions, final PkgTable pkgTable, final Map<String, PkgInfo> pkgInfos) {
+        this(Instant.now().getEpochSecond(), distributions, majorVersions, pkgTable, pkgInfos);
+    }
+    public CatalogSnapshot(final long createdAt, final Collection<Distribution> distributions, final Collection<MajorVersion> majorVersions, final PkgTable pkgTable) {
+        this(createdAt, distributions, majorVersions, pkgTable, Map.of());
+    }
+    public CatalogSnapshot(final long createdAt, final Collection<Distribution> distributions, final Collection<MajorVersion> majorVersions, final PkgTable pkgTable, final Map<String, PkgInfo> pkgInfos) {
+        this.createdAt     = createdAt;
+        this.distributions = null == distributions ? List.of() : List.copyOf(distributions);
+        this.majorVersions = null == majorVersions ? List.of() : List.copyOf(majorVersions);
+        this.pkgTable      = null == pkgTable ? PkgTable.fromPkgs(List.of()) : pkgTable;
+        this.pkgInfos      = null == pkgInfos ? Map.of() : Collections.unmodifiableMap(new LinkedHashMap<>(pkgInfos));
+    }
+
+
+    public static CatalogSnapshot of(final Collection<Distribution> distributions, final Collection<MajorVersion> majorVersions, final Collection<Pkg> pkgs) {
+        return new CatalogSnapshot(distributions, majorVersions, PkgTable.fromPkgs(pkgs));
+    }
+
+
+    /**
+     * Returns the time the snapshot was created in seconds since the epoch.
+     * @return Creation time of the snapshot in epoch seconds
+     */
+    public long getCreatedAt() { return createdAt; }
+
+    public long getAgeInSeconds() { return Instant.now().getEpochSecond() - createdAt; }
+
+    public List<Distribution> getDistributions() { return distributions; }
+
+    public Map<String, Distribution> getDistributionsByApiString() {
+        final Map<String, Distribution> distributionMap = new LinkedHashMap<>();
+        distributions.forEach(distribution -> distributionMap.put(distribution.getApiString(), distribution));
+        return distributionMap;
+    }
+
+    public List<MajorVersion> getMajorVersions() { return majorVersions; }
+
+    public PkgTable getPkgTable() { return pkgTable; }
+
+    public List<Pkg> getPkgs() { return pkgTable.asList(); }
+
+    /**
+     * Returns the facet counts of the packages in the snapshot. They are computed on first access
+     * and kept with the snapshot, which is immutable.
+     * @return Number of packages per distribution, major version and enum column value
+     */
+    public FacetCounts getFacetCounts() {
+        FacetCounts counts = facetCounts;
+        if (null == counts) {
+            counts      = null == pkgTable ? new FacetCounts(0, new int[0][], Map.of(), Map.of()) : pkgTable.facetCounts();
+            facetCounts = counts;
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the package infos of the snapshot, keyed by the package id or
+     * ephemeral id they were requested with.
+     * @return Package infos of the snapshot
+     */
+    public Map<String, PkgInfo> getPkgInfos() { return pkgInfos; }
+
+    /**
+     * Returns the package info for the given package id or ephemeral id.
+     * @param id Package id or ephemeral id
+     * @return The package info or null if the snapshot does not contain an info for the given id
+     */
+    public PkgInfo getPkgInfo(final String id) {
+        if (null == id) { return null; }
+        final PkgInfo pkgInfo = pkgInfos.get(id);
+        if (null != pkgInfo) { return pkgInfo; }
+        final int ephemeralRow = pkgTable.indexOfEphemeralId(id);
+        if (ephemeralRow >= 0) { return pkgInfos.get(pkgTable.getId(ephemeralRow)); }
+        final int row = pkgTable.indexOf(id);
+        return row < 0 ? null : pkgInfos.get(pkgTable.getEphemeralId(row));
+    }
+
+
+    // ******************** Serialization ***********************************
+    public ByteBuffer toBuffer() throws IOException {
+        final byte[] distributionBytes = encodeDistributions(distributions);
+        final byte[] majorVersionBytes = encodeMajorVersions(majorVersions);
+        final byte[] pkgInfoBytes      = encodePkgInfos(pkgInfos);
+        final int    pkgTableSize      = pkgTable.byteSize();
+        final long   size              = HEADER_SIZE
+                                       + SECTION_HEADER_SIZE + align(distributionBytes.length)
+                                       + SECTION_HEADER_SIZE + align(majorVersionBytes.length)
+                                       + SECTION_HEADER_SIZE + align(pkgTableSize)
+                                       + SECTION_HEADER_SIZE + align(pkgInfoBytes.length);
+        if (size > Integer.MAX_VALUE) { throw new IOException("Snapshot too large"); }
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(createdAt).putInt(4).putInt(0);
+        putSection(buffer, SECTION_DISTRIBUTIONS, ByteBuffer.wrap(distributionBytes));
+        putSection(buffer, SECTION_MAJOR_VERSIONS, ByteBuffer.wrap(majorVersionBytes));
+
+        final ByteBuffer pkgTableBuffer = ByteBuffer.allocate(pkgTableSize);
+        pkgTable.writeTo(pkgTableBuffer);
+        pkgTableBuffer.flip();
+        putSection(buffer, SECTION_PACKAGES, pkgTableBuffer);
+        putSection(buffer, SECTION_PKG_INFOS, ByteBuffer.wrap(pkgInfoBytes));
+        buffer.flip();
+        return buffer;
+    }
+
+    public void save(final Path path) throws IOException {
+        Helper.writeGeneration(path, toBuffer());
+    }
+
+    /**
+     * Loads the snapshot from the given file or its current generation. The file is mapped into memory
+     * and the checksums of all sections are verified before the content is used.
+     * @param path Path of the snapshot file
+     * @return The snapshot stored in the given file
+     * @throws IOException If the file could not be read, has an unsupported version or a checksum does not match
+     */
+    public static CatalogSnapshot load(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Helper.resolveGeneration(path), StandardOpenOption.READ)) {
+            return fromBuffer(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static CatalogSnapshot fromBuffer(final ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) { throw new IOException("Not a catalog snapshot"); }
+            final int version = buffer.getInt();
+            if (version > FORMAT_VERSION) { throw new IOException("Unsupported catalog snapshot version " + version); }
+            final long createdAt    = buffer.getLong();
+            final int  sectionCount = buffer.getInt();
+            buffer.getInt();
+
+            List<Distribution> distributions = List.of();
+            List<MajorVersion> majorVersions = List.of();
+            PkgTable           pkgTable      = null;
+            Map<String, PkgInfo> pkgInfos    = Map.of();
+            for (int i = 0 ; i < sectionCount ; i++) {
+                final int type     = buffer.getInt();
+                final int length   = buffer.getInt();
+                final int checksum = buffer.getInt();
+                buffer.getInt();
+                final ByteBuffer payload = buffer.slice();
+                payload.limit(length);
+                buffer.position(buffer.position() + align(length));
+                if (checksum != crc(payload)) { throw new IOException("Checksum mismatch in section " + type + " of catalog snapshot"); }
+                switch (type) {
+                    case SECTION_DISTRIBUTIONS : distributions = decodeDistributions(payload); break;
+                    case SECTION_MAJOR_VERSIONS: majorVersions = decodeMajorVersions(payload); break;
+                    case SECTION_PACKAGES      : pkgTable      = PkgTable.fromBuffer(payload); break;
+                    case SECTION_PKG_INFOS     : pkgInfos      = decodePkgInfos(payload); break;
+                    default                    : break;
+                }
+            }
+            return new CatalogSnapshot(createdAt, distributions, majorVersions, pkgTable, pkgInfos);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt catalog snapshot", e);
+        }
+    }
+
+    private static void putSection(final ByteBuffer buffer, final int type, final ByteBuffer payload) {
+        final int length = payload.remaining();
+        buffer.putInt(type).putInt(length).putInt(crc(payload)).putInt(0);
+        buffer.put(payload);
+        for (int i = length ; i < align(length) ; i++) { buffer.put((byte) 0); }
+    }
+
+    private static int crc(final ByteBuffer payload) {
+        final CRC32 crc32 = new CRC32();
+        crc32.update(payload.duplicate());
+        return (int) crc32.getValue();
+    }
+
+    private static int align(final int length) { return (length + 7) & ~7; }
+
+    private static byte[] encodeDistributions(final List<Distribution> distributions) throws IOException {
+        final ByteArrayOutputStream bytes  = new ByteArrayOutputStream();
+        final DataOutputStream      output = new DataOutputStream(bytes);
+        output.writeInt(distributions.size());
+        for (Distribution distribution : distributions) {
+            writeString(output, distribution.getName());
+            writeString(output, distribution.getUiString());
+            writeString(output, distribution.getApiString());
+            output.writeInt(distribution.getSynonyms().size());
+            for (String synonym : distribution.getSynonyms()) { writeString(output, synonym); }
+            output.writeInt(distribution.getScopes().size());
+            for (Scope scope : distribution.getScopes()) { writeString(output, scope.getApiString()); }
+            output.writeBoolean(distribution.isMaintained());
+            output.writeBoolean(distribution.isBuildOfOpenJDK());
+            output.writeBoolean(distribution.isBuildOfGraalVM());
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static List<Distribution> decodeDistributions(final ByteBuffer buffer) {
+        final int                count         = buffer.getInt();
+        final List<Distribution> distributions = new ArrayList<>(count);
+        for (int i = 0 ; i < count ; i++) {
+            final String       name         = readString(buffer);
+            final String       uiString     = readString(buffer);
+            final String       apiString    = readString(buffer);
+            final int          synonymCount = buffer.getInt();
+            final List<String> synonyms     = new ArrayList<>(synonymCount);
+            for (int s = 0 ; s < synonymCount ; s++) { synonyms.add(readString(buffer)); }
+            final int         scopeCount = buffer.getInt();
+            final List<Scope> scopes     = new ArrayList<>(scopeCount);
+            for (int s = 0 ; s < scopeCount ; s++) {
+                final Scope scope = Scope.fromText(readString(buffer));
+                if (Scope.NOT_FOUND != scope) { scopes.add(scope); }
+            }
+            final boolean maintained     = buffer.get() != 0;
+            final boolean buildOfOpenJDK = buffer.get() != 0;
+            final boolean buildOfGraalVM = buffer.get() != 0;
+            distributions.add(new Distribution(name, uiString, apiString, synonyms, scopes, maintained, buildOfOpenJDK, buildOfGraalVM));
+        }
+        return distributions;
+    }
+
+    private static byte[] encodeMajorVersions(final List<MajorVersion> majorVersions) throws IOException {
+        final ByteArrayOutputStream bytes  = new ByteArrayOutputStream();
+        final DataOutputStream      output = new DataOutputStream(bytes);
+        output.writeInt(majorVersions.size());
+        for (MajorVersion majorVersion : majorVersions) {
+            output.writeInt(majorVersion.getAsInt());
+            writeString(output, null == majorVersion.getTermOfSupport() ? "" : majorVersion.getTermOfSupport().name());
+            output.writeBoolean(majorVersion.isMaintained());
+            writeString(output, null == majorVersion.getScope() ? "" : majorVersion.getScope().getApiString());
+            output.writeInt(majorVersion.getVersions().size());
+            for (Semver semver : majorVersion.getVersions()) { writeString(output, semver.toString()); }
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static List<MajorVersion> decodeMajorVersions(final ByteBuffer buffer) {
+        final int                count         = buffer.getInt();
+        final List<MajorVersion> majorVersions = new ArrayList<>(count);
+        for (int i = 0 ; i < count ; i++) {
+            final int           version       = buffer.getInt();
+            final String        termText      = readString(buffer);
+            final TermOfSupport termOfSupport = termText.isEmpty() ? null : TermOfSupport.fromText(termText);
+            final boolean       maintained    = buffer.get() != 0;
+            final String        scopeText     = readString(buffer);
+            final Scope         scope         = scopeText.isEmpty() ? null : Scope.fromText(scopeText);
+            final int           versionCount  = buffer.getInt();
+            final List<Semver>  versions      = new ArrayList<>(versionCount);
+            for (int v = 0 ; v < versionCount ; v++) { versions.add(Semver.fromText(readString(buffer)).getSemver1()); }
+            majorVersions.add(new MajorVersion(version, termOfSupport, maintained, scope, versions));
+        }
+        return Collections.unmodifiableList(majorVersions);
+    }
+
+    private static byte[] encodePkgInfos(final Map<String, PkgInfo> pkgInfos) throws IOException {
+        final ByteArrayOutputStream bytes  = new ByteArrayOutputStream();
+        final DataOutputStream      output = new DataOutputStream(bytes);
+        output.writeInt(pkgInfos.size());
+        for (Map.Entry<String, PkgInfo> entry : pkgInfos.entrySet()) {
+            final PkgInfo pkgInfo = entry.getValue();
+            writeString(output, entry.getKey());
+            writeString(output, pkgInfo.getFileName());
+            writeString(output, null == pkgInfo.getJavaVersion() ? "" : pkgInfo.getJavaVersion().toString());
+            writeString(output, pkgInfo.getDirectDownloadUri());
+            writeString(output, pkgInfo.getDownloadSiteUri());
+            writeString(output, pkgInfo.getSignatureUri());
+            writeString(output, pkgInfo.getChecksumUri());
+            writeString(output, pkgInfo.getChecksum());
+            writeString(output, null == pkgInfo.getChecksumType() ? "" : pkgInfo.getChecksumType().getApiString());
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Map<String, PkgInfo> decodePkgInfos(final ByteBuffer buffer) {
+        final int                  count    = buffer.getInt();
+        final Map<String, PkgInfo> pkgInfos = new LinkedHashMap<>(count * 2);
+        for (int i = 0 ; i < count ; i++) {
+            final String        id                = readString(buffer);
+            final String        fileName          = readString(buffer);
+            final String        javaVersionText   = readString(buffer);
+            final String        directDownloadUri = readString(buffer);
+            final String        downloadSiteUri   = readString(buffer);
+            final String        signatureUri      = readString(buffer);
+            final String        checksumUri       = readString(buffer);
+            final String        checksum          = readString(buffer);
+            final String        checksumTypeText  = readString(buffer);
+            final Semver        javaVersion       = javaVersionText.isEmpty() ? null : Semver.fromText(javaVersionText).getSemver1();
+            final HashAlgorithm checksumType      = checksumTypeText.isEmpty() ? HashAlgorithm.NONE : HashAlgorithm.fromText(checksumTypeText);
+            pkgInfos.put(id, new PkgInfo(fileName, javaVersion, directDownloadUri, downloadSiteUri, signatureUri, checksumUri, checksum, checksumType));
+        }
+        return pkgInfos;
+    }
+
+    private static void writeString(final DataOutputStream output, final String text) throws IOException {
+        final byte[] bytes = (null == text ? "" : text).getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
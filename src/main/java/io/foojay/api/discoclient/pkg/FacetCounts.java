@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient.pkg;
+
+import io.foojay.api.discoclient.pkg.PkgTable.Column;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Number of packages per distribution, major version and value of every enum column of a PkgTable.
+ * Instances are immutable and are created by {@link PkgTable#facetCounts(int[])}.
+ */
+public class FacetCounts {
+    private final int                   total;
+    private final int[][]               columnCounts;
+    private final Map<String, Integer>  distributionCounts;
+    private final Map<Integer, Integer> majorVersionCounts;
+
+
+    FacetCounts(final int total, final int[][] columnCounts, final Map<String, Integer> distributionCounts, final Map<Integer, Integer> majorVersionCounts) {
+        this.total              = total;
+        this.columnCounts       = columnCounts;
+        this.distributionCounts = Collections.unmodifiableMap(distributionCounts);
+        this.majorVersionCounts = Collections.unmodifiableMap(new TreeMap<>(majorVersionCounts));
+    }
+
+
+    public int getTotal() { return total; }
+
+    /**
+     * Returns the number of packages that have the given value in the given column.
+     * @param column Enum column
+     * @param value Value of the column e.g. OperatingSystem.LINUX for Column.OPERATING_SYSTEM
+     * @return Number of packages with the given value or 0 if the value does not belong to the column
+     */
+    public int getCount(final Column column, final Enum<?> value) {
+        if (null == column || null == value || column.ordinal() >= columnCounts.length) { return 0; }
+        final Enum<?>[] values = column.getValues();
+        if (values.length == 0 || values[0].getDeclaringClass() != value.getDeclaringClass()) { return 0; }
+        return columnCounts[column.ordinal()][value.ordinal()];
+    }
+
+    /**
+     * Returns the number of packages per value of the given column, values without packages are left out.
+     * @param column Enum column
+     * @return Number of packages per value in the order of the enum
+     */
+    public Map<Enum<?>, Integer> getCounts(final Column column) {
+        final Map<Enum<?>, Integer> counts = new LinkedHashMap<>();
+        if (null == column || column.ordinal() >= columnCounts.length) { return counts; }
+        final Enum<?>[] values      = column.getValues();
+        final int[]     valueCounts = columnCounts[column.ordinal()];
+        for (int ordinal = 0 ; ordinal < values.length ; ordinal++) {
+            if (valueCounts[ordinal] > 0) { counts.put(values[ordinal], valueCounts[ordinal]); }
+        }
+        return counts;
+    }
+
+    public Map<String, Integer> getDistributionCounts() { return distributionCounts; }
+
+    public Map<Integer, Integer> getMajorVersionCounts() { return majorVersionCounts; }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient.pkg;
+
+import eu.hansolo.jdktools.Architecture;
+import eu.hansolo.jdktools.LibCType;
+import eu.hansolo.jdktools.OperatingSystem;
+import eu.hansolo.jdktools.versioning.Semver;
+
+import java.util.Objects;
+
+import static eu.hansolo.jdktools.Constants.COLON;
+import static eu.hansolo.jdktools.Constants.COMMA;
+import static eu.hansolo.jdktools.Constants.CURLY_BRACKET_CLOSE;
+import static eu.hansolo.jdktools.Constants.CURLY_BRACKET_OPEN;
+import static eu.hansolo.jdktools.Constants.QUOTES;
+
+
+/**
+ * An installed JDK that should be checked for updates, see DiscoClient.updatesAvailableFor(Collection).
+ */
+public class JdkInstallation {
+    private final Distribution    distribution;
+    private final Semver          javaVersion;
+    private final OperatingSystem operatingSystem;
+    private final Architecture    architecture;
+    private final LibCType        libcType;
+    private final Boolean         javafxBundled;
+
+
+    public JdkInstallation(final Distribution distribution, final Semver javaVersion, final OperatingSystem operatingSystem, final Architecture architecture) {
+        this(distribution, javaVersion, operatingSystem, architecture, LibCType.NONE, null);
+    }
+    public JdkInstallation(final Distribution distribution, final Semver javaVersion, final OperatingSystem operatingSystem, final Architecture architecture, final LibCType libcType, final Boolean javafxBundled) {
+        if (null == javaVersion) { throw new IllegalArgumentException("javaVersion cannot be null"); }
+        this.distribution    = distribution;
+        this.javaVersion     = javaVersion;
+        this.operatingSystem = null == operatingSystem ? OperatingSystem.NONE : operatingSystem;
+        this.architecture    = null == architecture    ? Architecture.NONE    : architecture;
+        this.libcType        = null == libcType        ? LibCType.NONE        : libcType;
+        this.javafxBundled   = javafxBundled;
+    }
+
+
+    public Distribution getDistribution() { return distribution; }
+
+    public Semver getJavaVersion() { return javaVersion; }
+
+    public OperatingSystem getOperatingSystem() { return operatingSystem; }
+
+    public Architecture getArchitecture() { return architecture; }
+
+    public LibCType getLibCType() { return libcType; }
+
+    public Boolean isJavaFXBundled() { return javafxBundled; }
+
+    @Override public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        JdkInstallation installation = (JdkInstallation) o;
+        return Objects.equals(getDistributionApiString(), installation.getDistributionApiString()) && javaVersion.equalTo(installation.javaVersion) &&
+               operatingSystem == installation.operatingSystem && architecture == installation.architecture && libcType == installation.libcType &&
+               Objects.equals(javafxBundled, installation.javafxBundled);
+    }
+
+    @Override public int hashCode() {
+        return Objects.hash(getDistributionApiString(), javaVersion.toString(), operatingSystem, architecture, libcType, javafxBundled);
+    }
+
+    @Override public String toString() {
+        return new StringBuilder().append(CURLY_BRACKET_OPEN)
+                                  .append(QUOTES).append("distribution").append(QUOTES).append(COLON).append(QUOTES).append(getDistributionApiString()).append(QUOTES).append(COMMA)
+                                  .append(QUOTES).append("java_version").append(QUOTES).append(COLON).append(QUOTES).append(javaVersion).append(QUOTES).append(COMMA)
+                                  .append(QUOTES).append("operating_system").append(QUOTES).append(COLON).append(QUOTES).append(operatingSystem.getApiString()).append(QUOTES).append(COMMA)
+                                  .append(QUOTES).append("architecture").append(QUOTES).append(COLON).append(QUOTES).append(architecture.getApiString()).append(QUOTES).append(COMMA)
+                                  .append(QUOTES).append("lib_c_type").append(QUOTES).append(COLON).append(QUOTES).append(libcType.getApiString()).append(QUOTES).append(COMMA)
+                                  .append(QUOTES).append("javafx_bundled").append(QUOTES).append(COLON).append(javafxBundled)
+                                  .append(CURLY_BRACKET_CLOSE)
+                                  .toString();
+    }
+
+    private String getDistributionApiString() { return null == distribution ? "" : distribution.getApiString(); }
+}
@@ -52,6 +52,12 @@ public class MajorVersion {
         this.termOfSupport = termOfSupport;
         this.maintained    = false;
     }
+    public MajorVersion(final int majorVersion, final TermOfSupport termOfSupport, final boolean maintained, final Scope scope, final List<Semver> versions) {
+        this(majorVersion, termOfSupport);
+        this.maintained = maintained;
+        this.scope      = scope;
+        if (null != versions) { this.versions.addAll(versions); }
+    }
     public MajorVersion(final String jsonText) {
         if (null == jsonText || jsonText.isEmpty()) { throw new IllegalArgumentException("json text cannot be null or empty"); }
         final Gson       gson = new Gson();
@@ -102,6 +102,38 @@ public class Pkg {
     private               Set<Feature>    features;
 
 
+    public Pkg(final String id, final String ephemeralId, final Distribution distribution, final MajorVersion majorVersion, final Semver javaVersion, final MajorVersion jdkVersion,
+               final VersionNumber distributionVersion, final Architecture architecture, final FPU fpu, final OperatingSystem operatingSystem, final LibCType libcType,
+               final PackageType packageType, final ReleaseStatus releaseStatus, final ArchiveType archiveType, final TermOfSupport termOfSupport, final Boolean javafxBundled,
+               final Boolean latestBuildAvailable, final Boolean directlyDownloadable, final String fileName, final Boolean freeUseInProduction, final Verification tckTested,
+               final String tckCertUri, final Verification aqavitCertified, final String aqavitCertUri, final long size, final Set<Feature> features) {
+        this.id                   = id;
+        this.ephemeralId          = ephemeralId;
+        this.distribution         = distribution;
+        this.majorVersion         = majorVersion;
+        this.javaVersion          = javaVersion;
+        this.jdkVersion           = jdkVersion;
+        this.distributionVersion  = distributionVersion;
+        this.architecture         = architecture;
+        this.fpu                  = fpu;
+        this.operatingSystem      = operatingSystem;
+        this.libcType             = libcType;
+        this.packageType          = packageType;
+        this.releaseStatus        = releaseStatus;
+        this.archiveType          = archiveType;
+        this.termOfSupport        = termOfSupport;
+        this.javafxBundled        = javafxBundled;
+        this.latestBuildAvailable = latestBuildAvailable;
+        this.directlyDownloadable = directlyDownloadable;
+        this.fileName             = fileName;
+        this.freeUseInProduction  = freeUseInProduction;
+        this.tckTested            = tckTested;
+        this.tckCertUri           = tckCertUri;
+        this.aqavitCertified      = aqavitCertified;
+        this.aqavitCertUri        = aqavitCertUri;
+        this.size                 = size;
+        this.features             = new HashSet<>(features);
+    }
     public Pkg(final String packageJson) {
         if (null == packageJson || packageJson.isEmpty()) {
             throw new IllegalArgumentException("Package json string cannot be null or empty.");
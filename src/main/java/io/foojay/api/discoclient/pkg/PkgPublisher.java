@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient.pkg;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Cold publisher that emits the packages of the given source. Every subscription opens its own
+ * source and only pulls as many packages from it as the subscriber requested. Cancelling the
+ * subscription closes the source, e.g. a PkgReader which stops reading from the network.
+ */
+public class PkgPublisher implements Publisher<Pkg> {
+    private static final ExecutorService                   EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "discoclient-pkg-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private        final Callable<? extends Iterator<Pkg>> source;
+
+
+    public PkgPublisher(final Callable<? extends Iterator<Pkg>> source) {
+        if (null == source) { throw new IllegalArgumentException("source cannot be null"); }
+        this.source = source;
+    }
+
+
+    @Override public void subscribe(final Subscriber<? super Pkg> subscriber) {
+        if (null == subscriber) { throw new NullPointerException("subscriber cannot be null"); }
+        subscriber.onSubscribe(new PkgSubscription(subscriber));
+    }
+
+
+    // ******************** Inner Classes *************************************
+    private class PkgSubscription implements Subscription {
+        private final    Subscriber<? super Pkg> subscriber;
+        private final    AtomicLong              demand = new AtomicLong();
+        private final    AtomicInteger           wip    = new AtomicInteger();
+        private volatile Iterator<Pkg>           iterator;
+        private volatile boolean                 done;
+
+
+        PkgSubscription(final Subscriber<? super Pkg> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+
+        @Override public void request(final long n) {
+            if (done) { return; }
+            if (n <= 0) {
+                done = true;
+                closeSource();
+                subscriber.onError(new IllegalArgumentException("Number of requested packages must be positive but was " + n));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, requested) -> current + requested < 0 ? Long.MAX_VALUE : current + requested);
+            schedule();
+        }
+
+        @Override public void cancel() {
+            done = true;
+            closeSource();
+        }
+
+        private void schedule() {
+            if (0 == wip.getAndIncrement()) { EXECUTOR.execute(this::drain); }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                try {
+                    if (null == iterator && !done) { iterator = source.call(); }
+                    while (!done && demand.get() > 0) {
+                        if (!iterator.hasNext()) {
+                            done = true;
+                            closeSource();
+                            subscriber.onComplete();
+                            break;
+                        }
+                        final Pkg pkg = iterator.next();
+                        if (done) { break; }
+                        subscriber.onNext(pkg);
+                        if (Long.MAX_VALUE != demand.get()) { demand.decrementAndGet(); }
+                    }
+                } catch (Exception e) {
+                    if (!done) {
+                        done = true;
+                        closeSource();
+                        subscriber.onError(e);
+                    }
+                }
+                if (done) { closeSource(); }
+                missed = wip.addAndGet(-missed);
+            } while (0 != missed);
+        }
+
+        private void closeSource() {
+            final Iterator<Pkg> current = iterator;
+            if (current instanceof Closeable) {
+                try {
+                    ((Closeable) current).close();
+                } catch (IOException e) {
+                    // Source is not used anymore
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient.pkg;
+
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+
+/**
+ * Reads the packages of a disco api response one by one from the given stream, so that
+ * only the package that is currently read has to be kept in memory. Closing the reader
+ * closes the stream, which for an http response body stops the network read.
+ */
+public class PkgReader implements Iterator<Pkg>, Closeable {
+    private final    InputStream inputStream;
+    private final    JsonReader  reader;
+    private          boolean     inResult;
+    private volatile boolean     finished;
+
+
+    public PkgReader(final InputStream inputStream) {
+        if (null == inputStream) { throw new IllegalArgumentException("inputStream cannot be null"); }
+        this.inputStream = inputStream;
+        this.reader      = new JsonReader(new InputStreamReader(inputStream, UTF_8));
+        this.inResult    = false;
+        this.finished    = false;
+    }
+
+
+    @Override public boolean hasNext() {
+        if (finished) { return false; }
+        try {
+            if (!inResult && !seekResult()) {
+                close();
+                return false;
+            }
+            if (reader.hasNext()) { return true; }
+            close();
+            return false;
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override public Pkg next() {
+        if (!hasNext()) { throw new NoSuchElementException(); }
+        return new Pkg(JsonParser.parseReader(reader).toString());
+    }
+
+    @Override public void close() {
+        if (finished) { return; }
+        finished = true;
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            // Nothing left to read anyway
+        }
+    }
+
+    private boolean seekResult() throws IOException {
+        if (JsonToken.BEGIN_OBJECT != reader.peek()) { return false; }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if ("result".equals(name) && JsonToken.BEGIN_ARRAY == reader.peek()) {
+                reader.beginArray();
+                inResult = true;
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+}
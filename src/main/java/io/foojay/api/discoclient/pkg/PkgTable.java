@@ -0,0 +1,887 @@
+/*
+ * Copyright (c) 2021 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient.pkg;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import eu.hansolo.jdktools.Architecture;
+import eu.hansolo.jdktools.ArchiveType;
+import eu.hansolo.jdktools.FPU;
+import eu.hansolo.jdktools.LibCType;
+import eu.hansolo.jdktools.OperatingSystem;
+import eu.hansolo.jdktools.PackageType;
+import eu.hansolo.jdktools.ReleaseStatus;
+import eu.hansolo.jdktools.TermOfSupport;
+import eu.hansolo.jdktools.Verification;
+import eu.hansolo.jdktools.versioning.Semver;
+import eu.hansolo.jdktools.versioning.VersionNumber;
+import io.foojay.api.discoclient.DiscoClient;
+import io.foojay.api.discoclient.util.Helper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntPredicate;
+
+
+/**
+ * Column oriented, read only representation of a list of packages.
+ * Enum attributes are stored as ordinals in byte columns, versions as long sort keys
+ * and strings as dictionary encoded int columns. Pkg objects are only created on request.
+ * All columns are kept in buffers. A table that was saved with {@link #save(Path)} can be
+ * opened with {@link #map(Path)}, in which case all values are read from the memory mapped
+ * file and processes that map the same file share one copy in the page cache.
+ */
+public class PkgTable {
+    public enum Column {
+        ARCHITECTURE(Architecture.values()),
+        FPU(eu.hansolo.jdktools.FPU.values()),
+        OPERATING_SYSTEM(OperatingSystem.values()),
+        LIB_C_TYPE(LibCType.values()),
+        PACKAGE_TYPE(PackageType.values()),
+        RELEASE_STATUS(ReleaseStatus.values()),
+        ARCHIVE_TYPE(ArchiveType.values()),
+        TERM_OF_SUPPORT(TermOfSupport.values()),
+        TCK_TESTED(Verification.values()),
+        AQAVIT_CERTIFIED(Verification.values());
+
+        private final Enum<?>[] values;
+
+
+        Column(final Enum<?>[] values) {
+            this.values = values;
+        }
+
+
+        public Enum<?>[] getValues() { return values; }
+    }
+
+    public  static final int       MAGIC                        = 0x44435054; // DCPT
+    public  static final int       FORMAT_VERSION               = 1;
+    private static final byte      FLAG_JAVAFX_BUNDLED          = 0x01;
+    private static final byte      FLAG_LATEST_BUILD_AVAILABLE  = 0x02;
+    private static final byte      FLAG_DIRECTLY_DOWNLOADABLE   = 0x04;
+    private static final byte      FLAG_FREE_USE_IN_PRODUCTION  = 0x08;
+    private static final int       HEADER_SIZE                  = 16;
+    private static final int       DICTIONARY_CACHE_LIMIT       = 4_096;
+    private static final long      GA_BIT                       = 1L << 19;
+    private static final Column[]  COLUMNS                      = Column.values();
+    private static final Feature[] FEATURES                     = Feature.values();
+
+    private        final int            size;
+    private        final ByteBuffer[]   enumColumns;
+    private        final ByteBuffer     flags;
+    private        final ByteBuffer     features;
+    private        final IntBuffer      majorVersions;
+    private        final IntBuffer      jdkVersions;
+    private        final LongBuffer     versionKeys;
+    private        final LongBuffer     sizes;
+    private        final StringColumn[] stringColumns;
+    private        final StringColumn   ids;
+    private        final StringColumn   ephemeralIds;
+    private        final StringColumn   distributions;
+    private        final StringColumn   javaVersions;
+    private        final StringColumn   distributionVersions;
+    private        final StringColumn   fileNames;
+    private        final StringColumn   tckCertUris;
+    private        final StringColumn   aqavitCertUris;
+    private        final AtomicReferenceArray<Distribution> resolvedDistributions;
+
+
+    private PkgTable(final int size, final ByteBuffer[] enumColumns, final ByteBuffer flags, final ByteBuffer features, final IntBuffer majorVersions, final IntBuffer jdkVersions,
+                     final LongBuffer versionKeys, final LongBuffer sizes, final StringColumn[] stringColumns) {
+        this.size                  = size;
+        this.enumColumns           = enumColumns;
+        this.flags                 = flags;
+        this.features              = features;
+        this.majorVersions         = majorVersions;
+        this.jdkVersions           = jdkVersions;
+        this.versionKeys           = versionKeys;
+        this.sizes                 = sizes;
+        this.stringColumns         = stringColumns;
+        this.ids                   = stringColumns[0];
+        this.ephemeralIds          = stringColumns[1];
+        this.distributions         = stringColumns[2];
+        this.javaVersions          = stringColumns[3];
+        this.distributionVersions  = stringColumns[4];
+        this.fileNames             = stringColumns[5];
+        this.tckCertUris           = stringColumns[6];
+        this.aqavitCertUris        = stringColumns[7];
+        this.resolvedDistributions = new AtomicReferenceArray<>(distributions.dictionarySize);
+    }
+
+
+    /**
+     * Creates a table from the json text returned by the packages endpoint
+     * of the disco api (an object with a "result" array of packages).
+     * @param jsonText Response of the packages endpoint
+     * @return Table that contains all packages of the given response
+     */
+    public static PkgTable fromJson(final String jsonText) {
+        final Builder builder = new Builder();
+        if (null == jsonText || jsonText.isEmpty()) { return builder.build(); }
+        final Gson        gson    = new Gson();
+        final JsonElement element = gson.fromJson(jsonText, JsonElement.class);
+        if (element instanceof JsonObject) {
+            final JsonArray jsonArray = element.getAsJsonObject().getAsJsonArray("result");
+            if (null != jsonArray) {
+                for (int i = 0; i < jsonArray.size(); i++) { builder.add(jsonArray.get(i).getAsJsonObject()); }
+            }
+        }
+        return builder.build();
+    }
+
+    public static PkgTable fromPkgs(final Collection<Pkg> pkgs) {
+        final Builder builder = new Builder();
+        if (null != pkgs) { pkgs.forEach(builder::add); }
+        return builder.build();
+    }
+
+    /**
+     * Returns a key for the given version that can be compared as a long.
+     * The key orders by feature, interim, update, patch, release status (EA before GA) and build.
+     * @param semver Version to encode
+     * @return Sort key of the given version
+     */
+    public static long versionKey(final Semver semver) {
+        if (null == semver) { return 0; }
+        final int build = semver.getVersionNumber().getBuild().orElse(0);
+        long key = ((long) clamp(semver.getFeature(), 0x7FFF)) << 48;
+        key |= ((long) clamp(semver.getInterim(), 0xFF))  << 40;
+        key |= ((long) clamp(semver.getUpdate(), 0xFFF))  << 28;
+        key |= ((long) clamp(semver.getPatch(), 0xFF))    << 20;
+        key |= ReleaseStatus.EA == semver.getReleaseStatus() ? 0L : GA_BIT;
+        key |= clamp(build, 0x7FFFF);
+        return key;
+    }
+
+    /**
+     * Returns feature, interim, update and patch of the given version key.
+     * @param versionKey Key created by versionKey(Semver)
+     * @return Array with feature, interim, update and patch
+     */
+    public static int[] versionComponents(final long versionKey) {
+        return new int[] { (int) (versionKey >>> 48), (int) ((versionKey >>> 40) & 0xFF), (int) ((versionKey >>> 28) & 0xFFF), (int) ((versionKey >>> 20) & 0xFF) };
+    }
+
+    /**
+     * Returns a key that is equal for all GA builds of the same version, early access keys keep their build.
+     * @param versionKey Key created by versionKey(Semver)
+     * @return Key of the release the given version belongs to
+     */
+    public static long releaseKey(final long versionKey) { return (versionKey & GA_BIT) != 0 ? versionKey & ~(GA_BIT - 1) : versionKey; }
+
+    private static int clamp(final int value, final int max) { return value < 0 ? 0 : Math.min(value, max); }
+
+
+    // ******************** Row access ****************************************
+    public int size() { return size; }
+
+    public boolean isEmpty() { return 0 == size; }
+
+    public String getId(final int row) { return ids.get(row); }
+
+    public String getEphemeralId(final int row) { return ephemeralIds.get(row); }
+
+    public String getDistributionName(final int row) { return distributions.get(row); }
+
+    public Distribution getDistribution(final int row) {
+        final int code = distributions.code(row);
+        Distribution distribution = resolvedDistributions.get(code);
+        if (null == distribution) {
+            distribution = DiscoClient.getDistributionFromText(distributions.value(code));
+            resolvedDistributions.set(code, distribution);
+        }
+        return distribution;
+    }
+
+    public int getMajorVersion(final int row) { return majorVersions.get(row); }
+
+    public int getJdkVersion(final int row) { return jdkVersions.get(row); }
+
+    public String getJavaVersion(final int row) { return javaVersions.get(row); }
+
+    public long getVersionKey(final int row) { return versionKeys.get(row); }
+
+    public String getDistributionVersion(final int row) { return distributionVersions.get(row); }
+
+    public byte getOrdinal(final Column column, final int row) { return enumColumns[column.ordinal()].get(row); }
+
+    public Enum<?> getValue(final Column column, final int row) { return column.values[enumColumns[column.ordinal()].get(row)]; }
+
+    public Architecture getArchitecture(final int row) { return (Architecture) getValue(Column.ARCHITECTURE, row); }
+
+    public OperatingSystem getOperatingSystem(final int row) { return (OperatingSystem) getValue(Column.OPERATING_SYSTEM, row); }
+
+    public LibCType getLibCType(final int row) { return (LibCType) getValue(Column.LIB_C_TYPE, row); }
+
+    public PackageType getPackageType(final int row) { return (PackageType) getValue(Column.PACKAGE_TYPE, row); }
+
+    public ReleaseStatus getReleaseStatus(final int row) { return (ReleaseStatus) getValue(Column.RELEASE_STATUS, row); }
+
+    public ArchiveType getArchiveType(final int row) { return (ArchiveType) getValue(Column.ARCHIVE_TYPE, row); }
+
+    public TermOfSupport getTermOfSupport(final int row) { return (TermOfSupport) getValue(Column.TERM_OF_SUPPORT, row); }
+
+    public boolean isJavaFXBundled(final int row) { return (flags.get(row) & FLAG_JAVAFX_BUNDLED) != 0; }
+
+    public boolean isLatestBuildAvailable(final int row) { return (flags.get(row) & FLAG_LATEST_BUILD_AVAILABLE) != 0; }
+
+    public boolean isDirectlyDownloadable(final int row) { return (flags.get(row) & FLAG_DIRECTLY_DOWNLOADABLE) != 0; }
+
+    public boolean isFreeUseInProduction(final int row) { return (flags.get(row) & FLAG_FREE_USE_IN_PRODUCTION) != 0; }
+
+    public String getFileName(final int row) { return fileNames.get(row); }
+
+    public long getSize(final int row) { return sizes.get(row); }
+
+    public boolean hasFeature(final int row, final Feature feature) { return (features.get(row) & (1 << feature.ordinal())) != 0; }
+
+    /**
+     * Materializes the package in the given row.
+     * @param row Index of the row
+     * @return Newly created Pkg object with the values of the given row
+     */
+    public Pkg getPkg(final int row) {
+        final Set<Feature> featuresFound = new HashSet<>();
+        for (Feature feature : FEATURES) {
+            if (hasFeature(row, feature)) { featuresFound.add(feature); }
+        }
+        final String javaVersionText         = javaVersions.get(row);
+        final String distributionVersionText = distributionVersions.get(row);
+        return new Pkg(getId(row), getEphemeralId(row), getDistribution(row), new MajorVersion(majorVersions.get(row)),
+                       javaVersionText.isEmpty() ? new Semver(new VersionNumber()) : Semver.fromText(javaVersionText).getSemver1(),
+                       new MajorVersion(jdkVersions.get(row)),
+                       distributionVersionText.isEmpty() ? new VersionNumber() : VersionNumber.fromText(distributionVersionText),
+                       getArchitecture(row), (FPU) getValue(Column.FPU, row), getOperatingSystem(row), getLibCType(row), getPackageType(row), getReleaseStatus(row),
+                       getArchiveType(row), getTermOfSupport(row), isJavaFXBundled(row), isLatestBuildAvailable(row), isDirectlyDownloadable(row), getFileName(row),
+                       isFreeUseInProduction(row), (Verification) getValue(Column.TCK_TESTED, row), tckCertUris.get(row),
+                       (Verification) getValue(Column.AQAVIT_CERTIFIED, row), aqavitCertUris.get(row), sizes.get(row), featuresFound);
+    }
+
+    /**
+     * Returns a list view on the table that creates the Pkg objects when they are accessed.
+     * @return Lazy list view of all packages in the table
+     */
+    public List<Pkg> asList() { return asList(null); }
+    public List<Pkg> asList(final int[] rows) {
+        return new AbstractList<>() {
+            @Override public Pkg get(final int index) { return getPkg(null == rows ? index : rows[index]); }
+            @Override public int size() { return null == rows ? PkgTable.this.size : rows.length; }
+        };
+    }
+
+
+    // ******************** Scans *********************************************
+    public int indexOf(final String id) { return ids.firstRow(id); }
+
+    public int indexOfEphemeralId(final String ephemeralId) { return ephemeralIds.firstRow(ephemeralId); }
+
+    public int[] select(final IntPredicate rowPredicate) {
+        final int[] rows  = new int[size];
+        int         found = 0;
+        for (int row = 0 ; row < size ; row++) {
+            if (rowPredicate.test(row)) { rows[found++] = row; }
+        }
+        return Arrays.copyOf(rows, found);
+    }
+
+    public int[] select(final Column column, final Enum<?>... values) {
+        final ByteBuffer columnData = enumColumns[column.ordinal()];
+        final boolean[]  accepted   = new boolean[column.values.length];
+        for (Enum<?> value : values) {
+            if (null != value && value.getDeclaringClass() == column.values[0].getDeclaringClass()) { accepted[value.ordinal()] = true; }
+        }
+        final int[] rows  = new int[size];
+        int         found = 0;
+        for (int row = 0 ; row < size ; row++) {
+            if (accepted[columnData.get(row)]) { rows[found++] = row; }
+        }
+        return Arrays.copyOf(rows, found);
+    }
+
+    public int[] selectDistribution(final String apiString) {
+        final int code = distributions.codeOf(apiString);
+        if (code < 0) { return new int[0]; }
+        final int[] rows  = new int[size];
+        int         found = 0;
+        for (int row = 0 ; row < size ; row++) {
+            if (distributions.code(row) == code) { rows[found++] = row; }
+        }
+        return Arrays.copyOf(rows, found);
+    }
+
+    public int[] selectMajorVersion(final int majorVersion) {
+        final int[] rows  = new int[size];
+        int         found = 0;
+        for (int row = 0 ; row < size ; row++) {
+            if (majorVersions.get(row) == majorVersion) { rows[found++] = row; }
+        }
+        return Arrays.copyOf(rows, found);
+    }
+
+    /**
+     * Counts the number of rows per value of the given column.
+     * @param column Enum column to count
+     * @return Array with the number of rows per ordinal of the column values
+     */
+    public int[] countBy(final Column column) {
+        final ByteBuffer columnData = enumColumns[column.ordinal()];
+        final int[]      counts     = new int[column.values.length];
+        for (int row = 0 ; row < size ; row++) { counts[columnData.get(row)]++; }
+        return counts;
+    }
+
+    public Map<String, Integer> countByDistribution() {
+        final int[] counts = new int[distributions.dictionarySize];
+        for (int row = 0 ; row < size ; row++) { counts[distributions.code(row)]++; }
+        final Map<String, Integer> result = new HashMap<>(counts.length * 2);
+        for (int code = 0 ; code < counts.length ; code++) {
+            if (counts[code] > 0) { result.put(distributions.value(code), counts[code]); }
+        }
+        return result;
+    }
+
+    public FacetCounts facetCounts() { return facetCounts(null); }
+    /**
+     * Counts the rows per distribution, major version and value of every enum column in one pass.
+     * @param rows Rows to count or null to count all rows
+     * @return Counts of the given rows
+     */
+    public FacetCounts facetCounts(final int[] rows) {
+        final int[][] columnCounts = new int[COLUMNS.length][];
+        for (Column column : COLUMNS) { columnCounts[column.ordinal()] = new int[column.values.length]; }
+        final int[] distributionCounts = new int[distributions.dictionarySize];
+        int[]       majorVersionCounts = new int[32];
+        final int   rowCount           = null == rows ? size : rows.length;
+        for (int i = 0 ; i < rowCount ; i++) {
+            final int row = null == rows ? i : rows[i];
+            for (int column = 0 ; column < COLUMNS.length ; column++) { columnCounts[column][enumColumns[column].get(row)]++; }
+            distributionCounts[distributions.code(row)]++;
+            final int majorVersion = majorVersions.get(row);
+            if (majorVersion < 0) { continue; }
+            if (majorVersion >= majorVersionCounts.length) { majorVersionCounts = Arrays.copyOf(majorVersionCounts, Math.max(majorVersion + 1, majorVersionCounts.length * 2)); }
+            majorVersionCounts[majorVersion]++;
+        }
+
+        final Map<String, Integer> distributionMap = new HashMap<>();
+        for (int code = 0 ; code < distributionCounts.length ; code++) {
+            if (distributionCounts[code] > 0) { distributionMap.put(distributions.value(code), distributionCounts[code]); }
+        }
+        final Map<Integer, Integer> majorVersionMap = new HashMap<>();
+        for (int majorVersion = 0 ; majorVersion < majorVersionCounts.length ; majorVersion++) {
+            if (majorVersionCounts[majorVersion] > 0) { majorVersionMap.put(majorVersion, majorVersionCounts[majorVersion]); }
+        }
+        return new FacetCounts(rowCount, columnCounts, distributionMap, majorVersionMap);
+    }
+
+    public long totalSize(final int[] rows) {
+        long total = 0;
+        for (int row : rows) {
+            if (sizes.get(row) > 0) { total += sizes.get(row); }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the row with the highest version out of the given rows.
+     * @param rows Rows to search in
+     * @return Index of the row with the highest version or -1 if rows is empty
+     */
+    public int latest(final int[] rows) {
+        int  latestRow = -1;
+        long latestKey = Long.MIN_VALUE;
+        for (int row : rows) {
+            if (versionKeys.get(row) > latestKey) {
+                latestKey = versionKeys.get(row);
+                latestRow = row;
+            }
+        }
+        return latestRow;
+    }
+
+    public int[] sortByVersion(final int[] rows, final boolean descending) {
+        final Integer[] boxed = new Integer[rows.length];
+        for (int i = 0 ; i < rows.length ; i++) { boxed[i] = rows[i]; }
+        final Comparator<Integer> comparator = (row1, row2) -> Long.compare(versionKeys.get(row1), versionKeys.get(row2));
+        Arrays.sort(boxed, descending ? comparator.reversed() : comparator);
+        final int[] sorted = new int[rows.length];
+        for (int i = 0 ; i < rows.length ; i++) { sorted[i] = boxed[i]; }
+        return sorted;
+    }
+
+
+    // ******************** Serialization ***********************************
+    /**
+     * Returns the number of bytes that {@link #writeTo(ByteBuffer)} will write.
+     * @return Size of the serialized table in bytes
+     */
+    public int byteSize() {
+        long byteSize = HEADER_SIZE;
+        byteSize += (COLUMNS.length + 2) * align(size);
+        byteSize += 2 * align(size * Integer.BYTES);
+        byteSize += 2 * align(size * Long.BYTES);
+        for (StringColumn column : stringColumns) { byteSize += column.byteSize(); }
+        if (byteSize > Integer.MAX_VALUE) { throw new IllegalStateException("Table too large to be serialized"); }
+        return (int) byteSize;
+    }
+
+    /**
+     * Writes the table to the given buffer starting at its current position.
+     * All sections are padded to 8 bytes relative to the start of the table.
+     * @param buffer Buffer with at least {@link #byteSize()} bytes remaining
+     */
+    public void writeTo(final ByteBuffer buffer) {
+        final int start = buffer.position();
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(size).putInt(COLUMNS.length);
+        for (ByteBuffer column : enumColumns) { putBytes(buffer, column); }
+        putBytes(buffer, flags);
+        putBytes(buffer, features);
+        putInts(buffer, majorVersions, size);
+        putInts(buffer, jdkVersions, size);
+        putLongs(buffer, versionKeys);
+        putLongs(buffer, sizes);
+        for (StringColumn column : stringColumns) { column.writeTo(buffer); }
+        buffer.position(start + byteSize());
+    }
+
+    /**
+     * Saves the table to the given file. The file is written to a temporary file first
+     * and moved in place afterwards, so processes that still map the old file are not affected.
+     * Where a mapped file cannot be replaced (Windows), a new generation is written next to it,
+     * see {@link Helper#writeGeneration(Path, ByteBuffer)}.
+     * @param path Path of the file
+     * @throws IOException If the file could not be written
+     */
+    public void save(final Path path) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(byteSize());
+        writeTo(buffer);
+        buffer.flip();
+        Helper.writeGeneration(path, buffer);
+    }
+
+    /**
+     * Opens a table that was saved with {@link #save(Path)} by mapping the file into memory.
+     * No data is copied to the heap, all values are read from the mapped buffer on access.
+     * The file stays mapped until the table is garbage collected, on Windows a later save
+     * therefore writes a new generation of the file which is then opened instead.
+     * @param path Path of the file
+     * @return Table backed by the memory mapped file
+     * @throws IOException If the file could not be mapped or is not a valid table
+     */
+    public static PkgTable map(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Helper.resolveGeneration(path), StandardOpenOption.READ)) {
+            return fromBuffer(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Creates a table that reads its values from the given buffer starting at its current position.
+     * The position of the buffer is moved behind the table.
+     * @param buffer Buffer that contains a table written with {@link #writeTo(ByteBuffer)}
+     * @return Table backed by the given buffer
+     * @throws IOException If the buffer does not contain a valid table
+     */
+    public static PkgTable fromBuffer(final ByteBuffer buffer) throws IOException {
+        try {
+            final int start = buffer.position();
+            if (buffer.getInt() != MAGIC) { throw new IOException("Not a package table"); }
+            final int version = buffer.getInt();
+            if (version != FORMAT_VERSION) { throw new IOException("Unsupported package table version " + version); }
+            final int size        = buffer.getInt();
+            final int columnCount = buffer.getInt();
+            if (size < 0 || columnCount != COLUMNS.length) { throw new IOException("Corrupt package table header"); }
+            final ByteBuffer[] enumColumns = new ByteBuffer[COLUMNS.length];
+            for (int c = 0 ; c < COLUMNS.length ; c++) { enumColumns[c] = slice(buffer, size); }
+            final ByteBuffer flags         = slice(buffer, size);
+            final ByteBuffer features      = slice(buffer, size);
+            final IntBuffer  majorVersions = slice(buffer, size * Integer.BYTES).asIntBuffer();
+            final IntBuffer  jdkVersions   = slice(buffer, size * Integer.BYTES).asIntBuffer();
+            final LongBuffer versionKeys   = slice(buffer, size * Long.BYTES).asLongBuffer();
+            final LongBuffer sizes         = slice(buffer, size * Long.BYTES).asLongBuffer();
+            final StringColumn[] stringColumns = new StringColumn[8];
+            for (int c = 0 ; c < stringColumns.length ; c++) { stringColumns[c] = StringColumn.fromBuffer(buffer, size); }
+            final PkgTable table = new PkgTable(size, enumColumns, flags, features, majorVersions, jdkVersions, versionKeys, sizes, stringColumns);
+            buffer.position(start + table.byteSize());
+            return table;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt package table", e);
+        }
+    }
+
+    private static int align(final int length) { return (length + 7) & ~7; }
+
+    private static ByteBuffer slice(final ByteBuffer buffer, final int length) {
+        final ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + align(length));
+        return slice;
+    }
+
+    private static void pad(final ByteBuffer buffer, final int length) {
+        for (int i = length ; i < align(length) ; i++) { buffer.put((byte) 0); }
+    }
+
+    private static void putBytes(final ByteBuffer buffer, final ByteBuffer source) {
+        final int length = source.limit();
+        for (int i = 0 ; i < length ; i++) { buffer.put(source.get(i)); }
+        pad(buffer, length);
+    }
+
+    private static void putInts(final ByteBuffer buffer, final IntBuffer source, final int count) {
+        for (int i = 0 ; i < count ; i++) { buffer.putInt(source.get(i)); }
+        pad(buffer, count * Integer.BYTES);
+    }
+
+    private static void putLongs(final ByteBuffer buffer, final LongBuffer source) {
+        final int count = source.limit();
+        for (int i = 0 ; i < count ; i++) { buffer.putLong(source.get(i)); }
+    }
+
+
+    // ******************** Inner Classes *************************************
+    /**
+     * Dictionary encoded string column. The codes of the rows, the start offsets of the
+     * dictionary entries and the utf-8 bytes of the entries are kept in buffers. Decoded
+     * entries are only cached for small dictionaries, lookups by value use a hash index
+     * over the utf-8 bytes that is built on first use.
+     */
+    static final class StringColumn {
+        private final IntBuffer            codes;
+        private final IntBuffer            offsets;
+        private final ByteBuffer           bytes;
+        private final int                  rowCount;
+        private final int                          dictionarySize;
+        private final AtomicReferenceArray<String> dictionary;
+        private       volatile int[]               lookup;
+        private       volatile int[]               firstRows;
+
+
+        StringColumn(final IntBuffer codes, final IntBuffer offsets, final ByteBuffer bytes, final int rowCount, final int dictionarySize, final String[] dictionary) {
+            this.codes          = codes;
+            this.offsets        = offsets;
+            this.bytes          = bytes;
+            this.rowCount       = rowCount;
+            this.dictionarySize = dictionarySize;
+            this.dictionary     = null != dictionary ? new AtomicReferenceArray<>(dictionary) : (dictionarySize <= DICTIONARY_CACHE_LIMIT ? new AtomicReferenceArray<>(dictionarySize) : null);
+        }
+
+
+        int code(final int row) { return codes.get(row); }
+
+        String get(final int row) { return value(codes.get(row)); }
+
+        String value(final int code) {
+            if (null != dictionary) {
+                String value = dictionary.get(code);
+                if (null == value) {
+                    value = decode(code);
+                    dictionary.set(code, value);
+                }
+                return value;
+            }
+            return decode(code);
+        }
+
+        private String decode(final int code) {
+            final int    start  = offsets.get(code);
+            final byte[] buffer = new byte[offsets.get(code + 1) - start];
+            for (int i = 0 ; i < buffer.length ; i++) { buffer[i] = bytes.get(start + i); }
+            return new String(buffer, StandardCharsets.UTF_8);
+        }
+
+        int codeOf(final String value) {
+            if (null == value) { return -1; }
+            final byte[] wanted = value.getBytes(StandardCharsets.UTF_8);
+            final int[]  slots  = lookup();
+            final int    mask   = slots.length - 1;
+            for (int slot = hash(wanted) & mask ; 0 != slots[slot] ; slot = (slot + 1) & mask) {
+                final int code = slots[slot] - 1;
+                if (matches(code, wanted)) { return code; }
+            }
+            return -1;
+        }
+
+        int firstRow(final String value) {
+            final int code = codeOf(value);
+            if (code < 0) { return -1; }
+            int[] rows = firstRows;
+            if (null == rows) {
+                rows = new int[dictionarySize];
+                Arrays.fill(rows, -1);
+                for (int row = rowCount - 1 ; row >= 0 ; row--) { rows[codes.get(row)] = row; }
+                firstRows = rows;
+            }
+            return rows[code];
+        }
+
+        /**
+         * Open addressing table with code + 1 per slot, 0 marks an empty slot
+         */
+        private int[] lookup() {
+            int[] slots = lookup;
+            if (null == slots) {
+                slots = new int[Integer.highestOneBit(Math.max(1, dictionarySize) * 2) * 2];
+                final int mask = slots.length - 1;
+                for (int code = 0 ; code < dictionarySize ; code++) {
+                    int slot = hash(code) & mask;
+                    while (0 != slots[slot]) { slot = (slot + 1) & mask; }
+                    slots[slot] = code + 1;
+                }
+                lookup = slots;
+            }
+            return slots;
+        }
+
+        private int hash(final int code) {
+            int hash = 1;
+            for (int i = offsets.get(code), end = offsets.get(code + 1) ; i < end ; i++) { hash = 31 * hash + bytes.get(i); }
+            return mix(hash);
+        }
+
+        private static int hash(final byte[] value) {
+            int hash = 1;
+            for (byte b : value) { hash = 31 * hash + b; }
+            return mix(hash);
+        }
+
+        private static int mix(final int hash) { return hash ^ (hash >>> 16); }
+
+        private boolean matches(final int code, final byte[] wanted) {
+            final int start = offsets.get(code);
+            if (offsets.get(code + 1) - start != wanted.length) { return false; }
+            for (int i = 0 ; i < wanted.length ; i++) {
+                if (bytes.get(start + i) != wanted[i]) { return false; }
+            }
+            return true;
+        }
+
+        int byteSize() {
+            return 2 * Integer.BYTES + align(rowCount * Integer.BYTES) + align((dictionarySize + 1) * Integer.BYTES) + align(offsets.get(dictionarySize));
+        }
+
+        void writeTo(final ByteBuffer buffer) {
+            final int byteLength = offsets.get(dictionarySize);
+            buffer.putInt(dictionarySize).putInt(byteLength);
+            putInts(buffer, codes, rowCount);
+            putInts(buffer, offsets, dictionarySize + 1);
+            for (int i = 0 ; i < byteLength ; i++) { buffer.put(bytes.get(i)); }
+            pad(buffer, byteLength);
+        }
+
+        static StringColumn fromBuffer(final ByteBuffer buffer, final int rowCount) {
+            final int       dictionarySize = buffer.getInt();
+            final int       byteLength     = buffer.getInt();
+            final IntBuffer codes          = slice(buffer, rowCount * Integer.BYTES).asIntBuffer();
+            final IntBuffer offsets        = slice(buffer, (dictionarySize + 1) * Integer.BYTES).asIntBuffer();
+            final ByteBuffer bytes         = slice(buffer, byteLength);
+            return new StringColumn(codes, offsets, bytes, rowCount, dictionarySize, null);
+        }
+    }
+
+    private static final class StringColumnBuilder {
+        private final Map<String, Integer> lookup     = new HashMap<>();
+        private final List<String>         dictionary = new ArrayList<>();
+        private       int[]                codes      = new int[1024];
+
+
+        void set(final int row, final String value) {
+            final String text = null == value ? "" : value;
+            Integer code = lookup.get(text);
+            if (null == code) {
+                code = dictionary.size();
+                dictionary.add(text);
+                lookup.put(text, code);
+            }
+            if (row >= codes.length) { codes = Arrays.copyOf(codes, codes.length * 2); }
+            codes[row] = code;
+        }
+
+        StringColumn build(final int size) {
+            final String[] values  = dictionary.toArray(new String[0]);
+            final int[]    offsets = new int[values.length + 1];
+            final byte[][] encoded = new byte[values.length][];
+            for (int code = 0 ; code < values.length ; code++) {
+                encoded[code]     = values[code].getBytes(StandardCharsets.UTF_8);
+                offsets[code + 1] = offsets[code] + encoded[code].length;
+            }
+            final byte[] bytes = new byte[offsets[values.length]];
+            for (int code = 0 ; code < values.length ; code++) { System.arraycopy(encoded[code], 0, bytes, offsets[code], encoded[code].length); }
+            return new StringColumn(IntBuffer.wrap(Arrays.copyOf(codes, size)), IntBuffer.wrap(offsets), ByteBuffer.wrap(bytes), size, values.length, values);
+        }
+    }
+
+    private static final class Builder {
+        private int                 size                 = 0;
+        private int                 capacity             = 1024;
+        private byte[][]            enumColumns          = new byte[COLUMNS.length][capacity];
+        private byte[]              flags                = new byte[capacity];
+        private byte[]              features             = new byte[capacity];
+        private int[]               majorVersions        = new int[capacity];
+        private int[]               jdkVersions          = new int[capacity];
+        private long[]              versionKeys          = new long[capacity];
+        private long[]              sizes                = new long[capacity];
+        private StringColumnBuilder ids                  = new StringColumnBuilder();
+        private StringColumnBuilder ephemeralIds         = new StringColumnBuilder();
+        private StringColumnBuilder distributions        = new StringColumnBuilder();
+        private StringColumnBuilder javaVersions         = new StringColumnBuilder();
+        private StringColumnBuilder distributionVersions = new StringColumnBuilder();
+        private StringColumnBuilder fileNames            = new StringColumnBuilder();
+        private StringColumnBuilder tckCertUris          = new StringColumnBuilder();
+        private StringColumnBuilder aqavitCertUris       = new StringColumnBuilder();
+
+
+        private void ensureCapacity() {
+            if (size < capacity) { return; }
+            capacity *= 2;
+            for (int c = 0 ; c < COLUMNS.length ; c++) { enumColumns[c] = Arrays.copyOf(enumColumns[c], capacity); }
+            flags         = Arrays.copyOf(flags, capacity);
+            features      = Arrays.copyOf(features, capacity);
+            majorVersions = Arrays.copyOf(majorVersions, capacity);
+            jdkVersions   = Arrays.copyOf(jdkVersions, capacity);
+            versionKeys   = Arrays.copyOf(versionKeys, capacity);
+            sizes         = Arrays.copyOf(sizes, capacity);
+        }
+
+        private void setEnum(final Column column, final Enum<?> value) {
+            enumColumns[column.ordinal()][size] = (byte) value.ordinal();
+        }
+
+        void add(final JsonObject json) {
+            ensureCapacity();
+            final String id          = json.has(Pkg.FIELD_ID)                   ? json.get(Pkg.FIELD_ID).getAsString()                   : "";
+            final String javaVersion = json.has(Pkg.FIELD_JAVA_VERSION)         ? json.get(Pkg.FIELD_JAVA_VERSION).getAsString()         : "";
+            final int    major       = json.has(Pkg.FIELD_MAJOR_VERSION)        ? json.get(Pkg.FIELD_MAJOR_VERSION).getAsInt()           : 1;
+            ids.set(size, id);
+            ephemeralIds.set(size, json.has(Pkg.FIELD_EPHEMERAL_ID) ? json.get(Pkg.FIELD_EPHEMERAL_ID).getAsString() : id);
+            distributions.set(size, json.has(Pkg.FIELD_DISTRIBUTION) ? json.get(Pkg.FIELD_DISTRIBUTION).getAsString() : "");
+            javaVersions.set(size, javaVersion);
+            distributionVersions.set(size, json.has(Pkg.FIELD_DISTRIBUTION_VERSION) ? json.get(Pkg.FIELD_DISTRIBUTION_VERSION).getAsString() : "");
+            fileNames.set(size, json.has(Pkg.FIELD_FILENAME) ? json.get(Pkg.FIELD_FILENAME).getAsString() : "");
+            tckCertUris.set(size, json.has(Pkg.FIELD_TCK_CERT_URI) ? json.get(Pkg.FIELD_TCK_CERT_URI).getAsString() : "");
+            aqavitCertUris.set(size, json.has(Pkg.FIELD_AQAVIT_CERT_URI) ? json.get(Pkg.FIELD_AQAVIT_CERT_URI).getAsString() : "");
+
+            majorVersions[size] = major;
+            jdkVersions[size]   = json.has(Pkg.FIELD_JDK_VERSION) ? json.get(Pkg.FIELD_JDK_VERSION).getAsInt() : major;
+            versionKeys[size]   = javaVersion.isEmpty() ? 0 : versionKey(Semver.fromText(javaVersion).getSemver1());
+            sizes[size]         = json.has(Pkg.FIELD_SIZE) ? json.get(Pkg.FIELD_SIZE).getAsLong() : -1;
+
+            setEnum(Column.ARCHITECTURE, json.has(Pkg.FIELD_ARCHITECTURE)         ? Architecture.fromText(json.get(Pkg.FIELD_ARCHITECTURE).getAsString())         : Architecture.NOT_FOUND);
+            setEnum(Column.FPU, json.has(Pkg.FIELD_FPU)                           ? FPU.fromText(json.get(Pkg.FIELD_FPU).getAsString())                           : FPU.NOT_FOUND);
+            setEnum(Column.OPERATING_SYSTEM, json.has(Pkg.FIELD_OPERATING_SYSTEM) ? OperatingSystem.fromText(json.get(Pkg.FIELD_OPERATING_SYSTEM).getAsString())  : OperatingSystem.NOT_FOUND);
+            setEnum(Column.LIB_C_TYPE, json.has(Pkg.FIELD_LIB_C_TYPE)             ? LibCType.fromText(json.get(Pkg.FIELD_LIB_C_TYPE).getAsString())               : LibCType.NOT_FOUND);
+            setEnum(Column.PACKAGE_TYPE, json.has(Pkg.FIELD_PACKAGE_TYPE)         ? PackageType.fromText(json.get(Pkg.FIELD_PACKAGE_TYPE).getAsString())          : PackageType.NOT_FOUND);
+            setEnum(Column.RELEASE_STATUS, json.has(Pkg.FIELD_RELEASE_STATUS)     ? ReleaseStatus.fromText(json.get(Pkg.FIELD_RELEASE_STATUS).getAsString())      : ReleaseStatus.NOT_FOUND);
+            setEnum(Column.ARCHIVE_TYPE, json.has(Pkg.FIELD_ARCHIVE_TYPE)         ? ArchiveType.fromText(json.get(Pkg.FIELD_ARCHIVE_TYPE).getAsString())          : ArchiveType.NOT_FOUND);
+            setEnum(Column.TERM_OF_SUPPORT, json.has(Pkg.FIELD_TERM_OF_SUPPORT)   ? TermOfSupport.fromText(json.get(Pkg.FIELD_TERM_OF_SUPPORT).getAsString())     : TermOfSupport.NOT_FOUND);
+            setEnum(Column.TCK_TESTED, json.has(Pkg.FIELD_TCK_TESTED)             ? Verification.fromText(json.get(Pkg.FIELD_TCK_TESTED).getAsString())           : Verification.UNKNOWN);
+            setEnum(Column.AQAVIT_CERTIFIED, json.has(Pkg.FIELD_AQAVIT_CERTIFIED) ? Verification.fromText(json.get(Pkg.FIELD_AQAVIT_CERTIFIED).getAsString())     : Verification.UNKNOWN);
+
+            byte flag = 0;
+            if (json.has(Pkg.FIELD_JAVAFX_BUNDLED) && json.get(Pkg.FIELD_JAVAFX_BUNDLED).getAsBoolean())                 { flag |= FLAG_JAVAFX_BUNDLED; }
+            if (json.has(Pkg.FIELD_LATEST_BUILD_AVAILABLE) && json.get(Pkg.FIELD_LATEST_BUILD_AVAILABLE).getAsBoolean()) { flag |= FLAG_LATEST_BUILD_AVAILABLE; }
+            if (json.has(Pkg.FIELD_DIRECTLY_DOWNLOADABLE) && json.get(Pkg.FIELD_DIRECTLY_DOWNLOADABLE).getAsBoolean())   { flag |= FLAG_DIRECTLY_DOWNLOADABLE; }
+            if (!json.has(Pkg.FIELD_FREE_USE_IN_PROD) || json.get(Pkg.FIELD_FREE_USE_IN_PROD).getAsBoolean())           { flag |= FLAG_FREE_USE_IN_PRODUCTION; }
+            flags[size] = flag;
+
+            byte featureMask = 0;
+            if (json.has(Pkg.FIELD_FEATURE)) {
+                final JsonArray featureArray = json.getAsJsonArray(Pkg.FIELD_FEATURE);
+                for (int i = 0 ; i < featureArray.size() ; i++) {
+                    final JsonElement featureElement = featureArray.get(i);
+                    final Feature     feat           = featureElement.isJsonObject() ? Feature.fromText(featureElement.getAsJsonObject().get("name").getAsString())
+                                                                                     : Feature.fromText(featureElement.getAsString());
+                    if (Feature.NOT_FOUND == feat || Feature.NONE == feat) { continue; }
+                    featureMask |= 1 << feat.ordinal();
+                }
+            }
+            features[size] = featureMask;
+            size++;
+        }
+
+        void add(final Pkg pkg) {
+            ensureCapacity();
+            ids.set(size, pkg.getId());
+            ephemeralIds.set(size, pkg.getEphemeralId());
+            distributions.set(size, null == pkg.getDistribution() ? "" : pkg.getDistribution().getApiString());
+            javaVersions.set(size, pkg.getJavaVersion().toString());
+            distributionVersions.set(size, pkg.getDistributionVersion().toString());
+            fileNames.set(size, pkg.getFileName());
+            tckCertUris.set(size, pkg.getTckCertUri());
+            aqavitCertUris.set(size, pkg.getAqavitCertUri());
+
+            majorVersions[size] = pkg.getMajorVersion().getAsInt();
+            jdkVersions[size]   = pkg.getJdkVersion().getAsInt();
+            versionKeys[size]   = versionKey(pkg.getJavaVersion());
+            sizes[size]         = pkg.getSize();
+
+            setEnum(Column.ARCHITECTURE, pkg.getArchitecture());
+            setEnum(Column.FPU, pkg.getFpu());
+            setEnum(Column.OPERATING_SYSTEM, pkg.getOperatingSystem());
+            setEnum(Column.LIB_C_TYPE, pkg.getLibCType());
+            setEnum(Column.PACKAGE_TYPE, pkg.getPackageType());
+            setEnum(Column.RELEASE_STATUS, pkg.getReleaseStatus());
+            setEnum(Column.ARCHIVE_TYPE, pkg.getArchiveType());
+            setEnum(Column.TERM_OF_SUPPORT, pkg.getTermOfSupport());
+            setEnum(Column.TCK_TESTED, pkg.getTckTested());
+            setEnum(Column.AQAVIT_CERTIFIED, pkg.getAqavitCertified());
+
+            byte flag = 0;
+            if (Boolean.TRUE.equals(pkg.isJavaFXBundled()))          { flag |= FLAG_JAVAFX_BUNDLED; }
+            if (Boolean.TRUE.equals(pkg.isLatestBuildAvailable()))   { flag |= FLAG_LATEST_BUILD_AVAILABLE; }
+            if (Boolean.TRUE.equals(pkg.isDirectlyDownloadable()))   { flag |= FLAG_DIRECTLY_DOWNLOADABLE; }
+            if (Boolean.TRUE.equals(pkg.getFreeUseInProduction()))   { flag |= FLAG_FREE_USE_IN_PRODUCTION; }
+            flags[size] = flag;
+
+            byte featureMask = 0;
+            for (Feature feature : pkg.getFeatures()) { featureMask |= 1 << feature.ordinal(); }
+            features[size] = featureMask;
+            size++;
+        }
+
+        PkgTable build() {
+            final ByteBuffer[] enumBuffers = new ByteBuffer[COLUMNS.length];
+            for (int c = 0 ; c < COLUMNS.length ; c++) { enumBuffers[c] = ByteBuffer.wrap(Arrays.copyOf(enumColumns[c], size)); }
+            final StringColumn[] stringColumns = {
+                ids.build(size), ephemeralIds.build(size), distributions.build(size), javaVersions.build(size),
+                distributionVersions.build(size), fileNames.build(size), tckCertUris.build(size), aqavitCertUris.build(size)
+            };
+            return new PkgTable(size, enumBuffers, ByteBuffer.wrap(Arrays.copyOf(flags, size)), ByteBuffer.wrap(Arrays.copyOf(features, size)),
+                                IntBuffer.wrap(Arrays.copyOf(majorVersions, size)), IntBuffer.wrap(Arrays.copyOf(jdkVersions, size)),
+                                LongBuffer.wrap(Arrays.copyOf(versionKeys, size)), LongBuffer.wrap(Arrays.copyOf(sizes, size)), stringColumns);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient.util;
+
+import java.util.Map;
+
+
+/**
+ * Outcome of a bulk lookup. Every requested id ends up either in the results
+ * or in the failures, ids that could not be found fail with a NoSuchElementException.
+ * @param <T> Type of the looked up values
+ */
+public class BulkResult<T> {
+    private final Map<String, T>         results;
+    private final Map<String, Throwable> failures;
+
+
+    public BulkResult(final Map<String, T> results, final Map<String, Throwable> failures) {
+        this.results  = null == results  ? Map.of() : Map.copyOf(results);
+        this.failures = null == failures ? Map.of() : Map.copyOf(failures);
+    }
+
+
+    public Map<String, T> getResults() { return results; }
+
+    public Map<String, Throwable> getFailures() { return failures; }
+
+    public boolean hasFailures() { return !failures.isEmpty(); }
+
+    public int size() { return results.size() + failures.size(); }
+
+    @Override public String toString() {
+        return new StringBuilder().append("{\"results\":").append(results.size())
+                                  .append(",\"failures\":").append(failures.size())
+                                  .append("}").toString();
+    }
+}
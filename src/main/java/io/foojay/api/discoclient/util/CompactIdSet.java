@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient.util;
+
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ * Set of package ids that stores the 128 bit hex ids of the disco api as two longs in an
+ * open addressing table instead of as strings. Ids in any other format are kept in a regular set.
+ * Not thread safe.
+ */
+public class CompactIdSet {
+    private static final int         INITIAL_CAPACITY = 1024;
+    private              long[]      ids;
+    private              boolean[]   used;
+    private              int         size;
+    private              int         mask;
+    private final        Set<String> otherIds;
+
+
+    public CompactIdSet() {
+        this.ids      = new long[INITIAL_CAPACITY * 2];
+        this.used     = new boolean[INITIAL_CAPACITY];
+        this.size     = 0;
+        this.mask     = INITIAL_CAPACITY - 1;
+        this.otherIds = new HashSet<>();
+    }
+
+
+    /**
+     * Adds the given id to the set.
+     * @param id Package id
+     * @return True if the id was not in the set before
+     */
+    public boolean add(final String id) {
+        if (null == id) { return false; }
+        if (!isHexId(id)) { return otherIds.add(id); }
+        final long high = Long.parseUnsignedLong(id, 0, 16, 16);
+        final long low  = Long.parseUnsignedLong(id, 16, 32, 16);
+        if (size >= (mask + 1) / 2) { grow(); }
+        return insert(high, low);
+    }
+
+    public boolean contains(final String id) {
+        if (null == id) { return false; }
+        if (!isHexId(id)) { return otherIds.contains(id); }
+        final long high = Long.parseUnsignedLong(id, 0, 16, 16);
+        final long low  = Long.parseUnsignedLong(id, 16, 32, 16);
+        int slot = slot(high, low);
+        while (used[slot]) {
+            if (ids[slot * 2] == high && ids[slot * 2 + 1] == low) { return true; }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() { return size + otherIds.size(); }
+
+    private boolean insert(final long high, final long low) {
+        int slot = slot(high, low);
+        while (used[slot]) {
+            if (ids[slot * 2] == high && ids[slot * 2 + 1] == low) { return false; }
+            slot = (slot + 1) & mask;
+        }
+        used[slot]        = true;
+        ids[slot * 2]     = high;
+        ids[slot * 2 + 1] = low;
+        size++;
+        return true;
+    }
+
+    private void grow() {
+        final long[]    oldIds   = ids;
+        final boolean[] oldUsed  = used;
+        final int       capacity = oldUsed.length * 2;
+        ids  = new long[capacity * 2];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        size = 0;
+        for (int i = 0 ; i < oldUsed.length ; i++) {
+            if (oldUsed[i]) { insert(oldIds[i * 2], oldIds[i * 2 + 1]); }
+        }
+    }
+
+    private int slot(final long high, final long low) {
+        long hash = high * 0x9E3779B97F4A7C15L ^ low;
+        hash ^= hash >>> 32;
+        return (int) hash & mask;
+    }
+
+    private static boolean isHexId(final String id) {
+        if (32 != id.length()) { return false; }
+        for (int i = 0 ; i < 32 ; i++) {
+            if (Character.digit(id.charAt(i), 16) < 0) { return false; }
+        }
+        return true;
+    }
+}
@@ -25,6 +25,9 @@ public class Constants {
 
     public static final String  HOME_FOLDER                         = new StringBuilder(System.getProperty("user.home")).append(File.separator).toString();
     public static final String  PROPERTIES_FILE_NAME                = Constants.NAME + ".properties";
+    public static final String  CATALOG_FILE_NAME                   = Constants.NAME + ".catalog";
+    public static final String  SNAPSHOT_FILE_NAME                  = Constants.NAME + ".snapshot";
+    public static final String  CACHE_FOLDER_NAME                   = Constants.NAME + "-cache";
 
     public static final String  PROPERTY_KEY_DISCO_URL              = "url";
     public static final String  PROPERTY_KEY_DISCO_VERSION          = "api_version";
@@ -62,4 +65,12 @@ public class Constants {
     public static final String  SLASH                               = "/";
 
     public static final long    SECONDS_PER_HOUR                    = 3_600;
+    public static final long    SECONDS_PER_DAY                     = 86_400;
+    public static final long    NEGATIVE_CACHE_TTL                  = 300;
+    public static final int     MAX_CONCURRENT_REQUESTS             = 16;
+    public static final int     MAX_CONCURRENT_DOWNLOADS            = 4;
+    public static final int     MAX_CONCURRENT_DOWNLOADS_PER_HOST   = 2;
+    public static final long    DEFAULT_CACHE_SIZE                  = 4L * 1024 * 1024 * 1024;
+    public static final long    PROGRESS_INTERVAL                   = 200;
+    public static final long    PROGRESS_MIN_BYTES                  = 64 * 1024;
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient.util;
+
+import eu.hansolo.jdktools.HashAlgorithm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+
+
+/**
+ * Computes the digest of a file while it is downloaded. Bytes are fed in at their position in the file
+ * and only taken into account if they continue the bytes digested so far. Sequential downloads are
+ * therefore digested completely on the fly, bytes that arrived out of order (other segments or a
+ * resumed .part file) are read back from the file once when the download is finished.
+ */
+public class DownloadDigest {
+    private final MessageDigest messageDigest;
+    private final String        expectedChecksum;
+    private       long          position;
+    private       String        checksum;
+
+
+    public DownloadDigest(final HashAlgorithm hashAlgorithm, final String expectedChecksum) {
+        this.messageDigest    = null == hashAlgorithm || null == expectedChecksum || expectedChecksum.isEmpty() ? null : Helper.createMessageDigest(hashAlgorithm);
+        this.expectedChecksum = null == expectedChecksum ? "" : expectedChecksum.trim();
+        this.position         = 0;
+        this.checksum         = "";
+    }
+
+
+    /**
+     * Returns true if an expected checksum with a supported algorithm was given
+     * @return True if the download will be verified
+     */
+    public boolean isEnabled() { return null != messageDigest; }
+
+    public synchronized long getPosition() { return position; }
+
+    /**
+     * Returns the hex encoded checksum once finish() was called, an empty string otherwise
+     * @return Hex encoded checksum of the downloaded file
+     */
+    public synchronized String getChecksum() { return checksum; }
+
+    /**
+     * Adds the remaining bytes of the given buffer if they start at the position up to which the file was
+     * digested so far. The position of the given buffer will not be changed.
+     * @param filePosition Position of the first remaining byte of the buffer in the file
+     * @param buffer Bytes that will be written to the file
+     */
+    public synchronized void update(final long filePosition, final ByteBuffer buffer) {
+        if (null == messageDigest || filePosition != position) { return; }
+        final ByteBuffer view = buffer.duplicate();
+        position += view.remaining();
+        messageDigest.update(view);
+    }
+
+    /**
+     * Discards all bytes digested so far, e.g. when a download restarts from the beginning
+     */
+    public synchronized void reset() {
+        if (null == messageDigest) { return; }
+        messageDigest.reset();
+        position = 0;
+        checksum = "";
+    }
+
+    /**
+     * Digests the bytes of the file that were not seen in order and compares the result with the expected checksum.
+     * @param channel Channel of the downloaded file
+     * @param size Size of the file
+     * @return True if verification is disabled or the checksum matches
+     * @throws IOException If the missing bytes could not be read
+     */
+    public synchronized boolean finish(final FileChannel channel, final long size) throws IOException {
+        if (null == messageDigest) { return true; }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        while (position < size) {
+            buffer.clear();
+            final int count = channel.read(buffer, position);
+            if (count < 0) { break; }
+            buffer.flip();
+            messageDigest.update(buffer);
+            position += count;
+        }
+        return finish();
+    }
+    /**
+     * Compares the digest of the bytes seen so far with the expected checksum, used for sequential downloads.
+     * @return True if verification is disabled or the checksum matches
+     */
+    public synchronized boolean finish() {
+        if (null == messageDigest) { return true; }
+        checksum = Helper.bytesToHex(messageDigest.digest());
+        return checksum.equalsIgnoreCase(expectedChecksum);
+    }
+}
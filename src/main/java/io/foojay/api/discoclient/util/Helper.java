@@ -37,8 +37,20 @@ import java.net.http.HttpClient;
 import java.net.http.HttpClient.Redirect;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
@@ -51,6 +63,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 
 public class Helper {
+    public  static final String       CURRENT_SUFFIX = ".current";
     private static BodyHandlerWrapper handlerWrapper = null;
     private static HttpClient         httpClient;
 
@@ -125,6 +138,30 @@ public class Helper {
         return result;
     }
 
+    /**
+     * Returns a new MessageDigest for the given algorithm or null if the algorithm is not supported.
+     * @param hashAlgorithm Hash algorithm
+     * @return MessageDigest for the given algorithm or null
+     */
+    public static MessageDigest createMessageDigest(final HashAlgorithm hashAlgorithm) {
+        final String algorithm;
+        switch (hashAlgorithm) {
+            case MD5     : algorithm = "MD5"; break;
+            case SHA1    : algorithm = "SHA-1"; break;
+            case SHA224  : algorithm = "SHA-224"; break;
+            case SHA256  : algorithm = "SHA-256"; break;
+            case SHA384  : algorithm = "SHA-384"; break;
+            case SHA512  : algorithm = "SHA-512"; break;
+            case SHA3_256: algorithm = "SHA3-256"; break;
+            default      : return null;
+        }
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
     public static String bytesToHex(final byte[] bytes) {
         final StringBuilder builder = new StringBuilder();
         for (byte b : bytes) { builder.append(String.format("%02x", b)); }
@@ -142,6 +179,87 @@ public class Helper {
         return resultStringBuilder.toString();
     }
 
+    /**
+     * Writes the remaining bytes of the given buffer to a temporary file next to the given path
+     * and moves it in place afterwards, so readers never see a partially written file.
+     * @param path Path of the file
+     * @param buffer Buffer with the content of the file
+     * @throws IOException If the file could not be written
+     */
+    public static void writeAtomically(final Path path, final ByteBuffer buffer) throws IOException {
+        final Path parent = path.toAbsolutePath().getParent();
+        if (null != parent) { Files.createDirectories(parent); }
+        final Path tmpPath = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) { channel.write(buffer); }
+                channel.force(true);
+            }
+            try {
+                Files.move(tmpPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+    }
+
+    /**
+     * Writes the given buffer to the given path like {@link #writeAtomically(Path, ByteBuffer)}. Windows does not
+     * allow to replace a file while a view of it is mapped and the mapping is only released when the buffer is
+     * garbage collected. If the file cannot be replaced, the content is written to a new generation file next
+     * to it and the pointer file path.current is switched to that generation. Readers have to open the file
+     * returned by {@link #resolveGeneration(Path)}.
+     * @param path Path of the file
+     * @param buffer Buffer with the content of the file
+     * @throws IOException If neither the file nor a new generation could be written
+     */
+    public static void writeGeneration(final Path path, final ByteBuffer buffer) throws IOException {
+        final Path pointer = path.resolveSibling(path.getFileName() + CURRENT_SUFFIX);
+        try {
+            writeAtomically(path, buffer.duplicate());
+        } catch (FileSystemException e) {
+            final Path previous   = resolveGeneration(path);
+            Path       generation = path.resolveSibling(path.getFileName() + "." + System.currentTimeMillis());
+            while (Files.exists(generation)) { generation = path.resolveSibling(generation.getFileName() + "0"); }
+            writeAtomically(generation, buffer.duplicate());
+            writeAtomically(pointer, ByteBuffer.wrap(generation.getFileName().toString().getBytes(UTF_8)));
+            if (!previous.equals(path)) { deleteQuietly(previous); }
+            return;
+        }
+        // The file itself is current again, generations that are still mapped are removed with a later save
+        Files.deleteIfExists(pointer);
+        try (DirectoryStream<Path> generations = Files.newDirectoryStream(path.toAbsolutePath().getParent(), path.getFileName() + ".[0-9]*")) {
+            generations.forEach(Helper::deleteQuietly);
+        }
+    }
+
+    /**
+     * Returns the file that contains the current content of the given path, see {@link #writeGeneration(Path, ByteBuffer)}.
+     * @param path Path of the file
+     * @return The generation the pointer file points to or the given path if there is none
+     */
+    public static Path resolveGeneration(final Path path) {
+        final Path pointer = path.resolveSibling(path.getFileName() + CURRENT_SUFFIX);
+        if (!Files.exists(pointer)) { return path; }
+        try {
+            final Path name       = Paths.get(Files.readString(pointer, UTF_8).trim()).getFileName();
+            final Path generation = null == name ? path : path.resolveSibling(name);
+            return Files.exists(generation) ? generation : path;
+        } catch (IOException | InvalidPathException e) {
+            return path;
+        }
+    }
+
+    private static void deleteQuietly(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Still mapped, removed with a later save
+        }
+    }
+
     public static CompletableFuture<Map<String,Distribution>> preloadDistributions() {
         return CompletableFuture.supplyAsync(() -> {
             final Map<String,Distribution> distributions = new ConcurrentHashMap();
@@ -403,6 +521,11 @@ public class Helper {
                          .build();
     }
 
+    public static final HttpClient getHttpClient() {
+        if (null == httpClient) { httpClient = createHttpClient(); }
+        return httpClient;
+    }
+
     public static final HttpResponse<String> get(final String uri) { return get(uri, ""); }
     public static final HttpResponse<String> get(final String uri, final String userAgent) {
         if (null == httpClient) { httpClient = createHttpClient(); }
@@ -442,6 +565,18 @@ public class Helper {
         return httpClient.sendAsync(request, BodyHandlers.ofString());
     }
 
+    public static final <T> CompletableFuture<HttpResponse<T>> getAsync(final String uri, final BodyHandler<T> bodyHandler, final String userAgent) {
+        if (null == httpClient) { httpClient = createHttpClient(); }
+
+        final String userAgentText = (null == userAgent || userAgent.isEmpty()) ? "DiscoClient" : "DiscoClient (" + userAgent + ")";
+        final HttpRequest request = HttpRequest.newBuilder()
+                                               .GET()
+                                               .uri(URI.create(uri))
+                                               .setHeader("User-Agent", userAgentText)
+                                               .build();
+        return httpClient.sendAsync(request, bodyHandler);
+    }
+
     public static final void cancelRequest() {
         if (null != handlerWrapper) { handlerWrapper.cancel(); }
     }
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient.util;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Decides when a download progress update is worth reporting and keeps track of the throughput.
+ * An update is reported if at least the given interval passed and at least the given number of
+ * bytes were transferred since the last report, the final update is always reported.
+ * The throughput is an exponentially smoothed average over the reported intervals.
+ */
+public class ProgressThrottle {
+    private static final double SMOOTHING = 0.3;
+    private        final long   intervalNanos;
+    private        final long   minBytes;
+    private              long   lastNanos;
+    private              long   lastBytes;
+    private              double bytesPerSecond;
+
+
+    public ProgressThrottle(final long interval, final TimeUnit timeUnit, final long minBytes) {
+        this.intervalNanos  = timeUnit.toNanos(Math.max(0, interval));
+        this.minBytes       = Math.max(0, minBytes);
+        this.lastNanos      = System.nanoTime();
+        this.lastBytes      = 0;
+        this.bytesPerSecond = 0;
+    }
+
+
+    /**
+     * Starts a new measurement at the given number of bytes, e.g. when a download is resumed
+     * @param bytes Number of bytes that are already transferred
+     */
+    public synchronized void reset(final long bytes) {
+        lastNanos      = System.nanoTime();
+        lastBytes      = bytes;
+        bytesPerSecond = 0;
+    }
+
+    /**
+     * Returns true if an update for the given number of transferred bytes should be reported
+     * @param bytes Total number of bytes transferred so far
+     * @param size Total size of the download or -1 if unknown
+     * @return True if the update should be reported
+     */
+    public synchronized boolean update(final long bytes, final long size) {
+        final long    now     = System.nanoTime();
+        final long    elapsed = now - lastNanos;
+        final long    delta   = bytes - lastBytes;
+        final boolean last    = size > 0 && bytes >= size;
+        if (!last && (elapsed < intervalNanos || delta < minBytes)) { return false; }
+        if (elapsed > 0 && delta > 0) {
+            final double current = delta * 1_000_000_000d / elapsed;
+            bytesPerSecond = 0 == bytesPerSecond ? current : SMOOTHING * current + (1 - SMOOTHING) * bytesPerSecond;
+        }
+        lastNanos = now;
+        lastBytes = bytes;
+        return true;
+    }
+
+    /**
+     * Returns the smoothed throughput of the reported updates
+     * @return Bytes per second or 0 if not known yet
+     */
+    public synchronized long getBytesPerSecond() { return (long) bytesPerSecond; }
+
+    /**
+     * Returns the estimated number of seconds until the download is finished
+     * @param bytes Total number of bytes transferred so far
+     * @param size Total size of the download or -1 if unknown
+     * @return Estimated remaining seconds or -1 if unknown
+     */
+    public synchronized long getEta(final long bytes, final long size) {
+        if (size <= 0 || bytesPerSecond <= 0) { return -1; }
+        return (long) Math.ceil(Math.max(0, size - bytes) / bytesPerSecond);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient.util;
+
+/**
+ * Token bucket on bytes used to limit the bandwidth of downloads. The bucket holds at most one second
+ * worth of bytes. Instead of blocking, take() returns the time the caller should wait before it
+ * transfers more, so the limit can be applied by delaying the request of the next chunk.
+ * The rate can be changed at any time, a rate of 0 means unlimited.
+ */
+public class TokenBucket {
+    private long   rate;
+    private double tokens;
+    private long   lastNanos;
+
+
+    public TokenBucket() {
+        this(0);
+    }
+    public TokenBucket(final long bytesPerSecond) {
+        if (bytesPerSecond < 0) { throw new IllegalArgumentException("bytesPerSecond cannot be negative"); }
+        this.rate      = bytesPerSecond;
+        this.tokens    = bytesPerSecond;
+        this.lastNanos = System.nanoTime();
+    }
+
+
+    public synchronized long getRate() { return rate; }
+    /**
+     * Sets the number of bytes per second, 0 removes the limit
+     * @param bytesPerSecond Bytes per second or 0 for unlimited
+     */
+    public synchronized void setRate(final long bytesPerSecond) {
+        if (bytesPerSecond < 0) { throw new IllegalArgumentException("bytesPerSecond cannot be negative"); }
+        refill(System.nanoTime());
+        rate   = bytesPerSecond;
+        tokens = Math.min(tokens, bytesPerSecond);
+    }
+
+    public synchronized boolean isLimited() { return rate > 0; }
+
+    /**
+     * Takes the given number of bytes from the bucket, the bucket might go into debt.
+     * @param bytes Number of bytes that were transferred
+     * @return Nanoseconds to wait before more bytes should be transferred, 0 if no wait is needed
+     */
+    public synchronized long take(final long bytes) {
+        refill(System.nanoTime());
+        if (rate <= 0) { return 0; }
+        tokens -= bytes;
+        return tokens >= 0 ? 0 : (long) (-tokens * 1_000_000_000d / rate);
+    }
+
+    /**
+     * Returns the lowest of the given limits, ignoring unlimited buckets
+     * @param buckets Buckets, may contain null
+     * @return Lowest rate in bytes per second or 0 if all are unlimited
+     */
+    public static long effectiveRate(final TokenBucket... buckets) {
+        long effective = 0;
+        for (TokenBucket bucket : buckets) {
+            if (null == bucket) { continue; }
+            final long rate = bucket.getRate();
+            if (rate > 0 && (0 == effective || rate < effective)) { effective = rate; }
+        }
+        return effective;
+    }
+
+    private void refill(final long now) {
+        if (rate > 0) { tokens = Math.min(rate, tokens + (now - lastNanos) * rate / 1_000_000_000d); }
+        lastNanos = now;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient.util;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+
+/**
+ * Thread safe cache whose entries expire after a time to live. Loaders that return null are cached
+ * as misses with their own (usually shorter) time to live, so repeated lookups of unknown keys do not
+ * lead to repeated requests. Exceptions thrown by loaders are not cached.
+ * @param <K> Type of the keys
+ * @param <V> Type of the values
+ */
+public class TtlCache<K, V> {
+    private final    Map<K, Entry<V>> entries;
+    private final    int              maxSize;
+    private volatile long             ttlNanos;
+    private volatile long             negativeTtlNanos;
+
+
+    public TtlCache(final long ttl, final long negativeTtl, final TimeUnit timeUnit) {
+        this(ttl, negativeTtl, timeUnit, 1024);
+    }
+    public TtlCache(final long ttl, final long negativeTtl, final TimeUnit timeUnit, final int maxSize) {
+        if (ttl < 0 || negativeTtl < 0) { throw new IllegalArgumentException("Time to live cannot be negative"); }
+        if (maxSize <= 0) { throw new IllegalArgumentException("Max size must be larger than 0"); }
+        this.entries          = new ConcurrentHashMap<>();
+        this.maxSize          = maxSize;
+        this.ttlNanos         = timeUnit.toNanos(ttl);
+        this.negativeTtlNanos = timeUnit.toNanos(negativeTtl);
+    }
+
+
+    /**
+     * Returns the cached value for the given key or loads, caches and returns it if there is no
+     * valid entry. A cached miss will return null without calling the loader.
+     * @param key Key of the value
+     * @param loader Function that loads the value, may return null if there is no value for the key
+     * @return The cached or loaded value or null if there is no value for the key
+     */
+    public V get(final K key, final Function<K, V> loader) {
+        if (null == key) { return loader.apply(key); }
+        final Entry<V> entry = entries.get(key);
+        if (null != entry && !entry.isExpired()) { return entry.value; }
+        final V value = loader.apply(key);
+        put(key, value);
+        return value;
+    }
+
+    public CompletableFuture<V> getAsync(final K key, final Function<K, CompletableFuture<V>> loader) {
+        if (null == key) { return loader.apply(key); }
+        final Entry<V> entry = entries.get(key);
+        if (null != entry && !entry.isExpired()) { return CompletableFuture.completedFuture(entry.value); }
+        return loader.apply(key).thenApply(value -> {
+            put(key, value);
+            return value;
+        });
+    }
+
+    /**
+     * Returns the cached value for the given key without loading it.
+     * @param key Key of the value
+     * @return The cached value or null if there is no valid entry or a cached miss
+     */
+    public V getIfPresent(final K key) {
+        if (null == key) { return null; }
+        final Entry<V> entry = entries.get(key);
+        return null == entry || entry.isExpired() ? null : entry.value;
+    }
+
+    /**
+     * Returns all valid entries that are not cached misses.
+     * @return Copy of the cached values by key
+     */
+    public Map<K, V> getValues() {
+        final Map<K, V> values = new HashMap<>();
+        entries.forEach((key, entry) -> { if (null != entry.value && !entry.isExpired()) { values.put(key, entry.value); } });
+        return values;
+    }
+
+    /**
+     * Stores the given value, a null value will be stored as a miss.
+     * @param key Key of the value
+     * @param value Value to cache or null to cache a miss
+     */
+    public void put(final K key, final V value) {
+        if (null == key) { return; }
+        final long ttl = null == value ? negativeTtlNanos : ttlNanos;
+        if (0 == ttl) { entries.remove(key); return; }
+        if (entries.size() >= maxSize && !entries.containsKey(key)) { evict(); }
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttl));
+    }
+
+    public void invalidate(final K key) { if (null != key) { entries.remove(key); } }
+
+    public void clear() { entries.clear(); }
+
+    public int size() { return entries.size(); }
+
+    public long getTtl(final TimeUnit timeUnit) { return timeUnit.convert(ttlNanos, TimeUnit.NANOSECONDS); }
+    public void setTtl(final long ttl, final TimeUnit timeUnit) {
+        if (ttl < 0) { throw new IllegalArgumentException("Time to live cannot be negative"); }
+        this.ttlNanos = timeUnit.toNanos(ttl);
+    }
+
+    public long getNegativeTtl(final TimeUnit timeUnit) { return timeUnit.convert(negativeTtlNanos, TimeUnit.NANOSECONDS); }
+    public void setNegativeTtl(final long negativeTtl, final TimeUnit timeUnit) {
+        if (negativeTtl < 0) { throw new IllegalArgumentException("Time to live cannot be negative"); }
+        this.negativeTtlNanos = timeUnit.toNanos(negativeTtl);
+    }
+
+
+    private void evict() {
+        entries.entrySet().removeIf(entry -> entry.getValue().isExpired());
+        while (entries.size() >= maxSize) {
+            entries.entrySet().stream().min(Comparator.comparingLong(entry -> entry.getValue().expiresAt)).ifPresent(entry -> entries.remove(entry.getKey()));
+        }
+    }
+
+
+    private static class Entry<V> {
+        private final V    value;
+        private final long expiresAt;
+
+
+        Entry(final V value, final long expiresAt) {
+            this.value     = value;
+            this.expiresAt = expiresAt;
+        }
+
+
+        boolean isExpired() { return System.nanoTime() - expiresAt > 0; }
+    }
+}
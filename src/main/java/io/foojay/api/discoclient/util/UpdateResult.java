@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient.util;
+
+import io.foojay.api.discoclient.pkg.JdkInstallation;
+import io.foojay.api.discoclient.pkg.Pkg;
+
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Outcome of an update check for a batch of installations. Every installation ends up either
+ * in the updates, with an empty list if it is up to date, or in the failures if it could not be checked.
+ */
+public class UpdateResult {
+    private final Map<JdkInstallation, List<Pkg>> updates;
+    private final Map<JdkInstallation, Throwable> failures;
+
+
+    public UpdateResult(final Map<JdkInstallation, List<Pkg>> updates, final Map<JdkInstallation, Throwable> failures) {
+        this.updates  = null == updates  ? Map.of() : Map.copyOf(updates);
+        this.failures = null == failures ? Map.of() : Map.copyOf(failures);
+    }
+
+
+    public Map<JdkInstallation, List<Pkg>> getUpdates() { return updates; }
+
+    public Map<JdkInstallation, Throwable> getFailures() { return failures; }
+
+    public boolean hasFailures() { return !failures.isEmpty(); }
+
+    public int size() { return updates.size() + failures.size(); }
+
+    @Override public String toString() {
+        return new StringBuilder().append("{\"updates\":").append(updates.size())
+                                  .append(",\"failures\":").append(failures.size())
+                                  .append("}").toString();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import eu.hansolo.jdktools.ArchiveType;
+import eu.hansolo.jdktools.HashAlgorithm;
+import eu.hansolo.jdktools.versioning.Semver;
+import io.foojay.api.discoclient.util.Helper;
+import io.foojay.api.discoclient.util.PkgInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class ArchiveExtractorTest {
+
+    static byte[] createTarGz() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            writeTarEntry(out, "jdk/", '5', 0755, new byte[0]);
+            writeTarEntry(out, "jdk/bin/java", '0', 0755, "#!/bin/sh".getBytes(UTF_8));
+            writeTarEntry(out, "jdk/release", '0', 0644, new byte[70_000]);
+            out.write(new byte[1024]);
+        }
+        return bytes.toByteArray();
+    }
+
+    static byte[] createTarGz(final String[]... entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            for (String[] entry : entries) {
+                final char type = entry[1].charAt(0);
+                writeTarEntry(out, entry[0], type, 0644, '0' == type ? "pwn".getBytes(UTF_8) : new byte[0], '2' == type ? entry[2] : "");
+            }
+            out.write(new byte[1024]);
+        }
+        return bytes.toByteArray();
+    }
+
+    static void writeTarEntry(final GZIPOutputStream out, final String name, final char type, final int mode, final byte[] content) throws IOException {
+        writeTarEntry(out, name, type, mode, content, "");
+    }
+    static void writeTarEntry(final GZIPOutputStream out, final String name, final char type, final int mode, final byte[] content, final String link) throws IOException {
+        byte[] header = new byte[512];
+        put(header, 0, name);
+        put(header, 100, String.format("%07o", mode));
+        put(header, 108, "0000000");
+        put(header, 116, "0000000");
+        put(header, 124, String.format("%011o", content.length));
+        put(header, 136, "00000000000");
+        header[156] = (byte) type;
+        put(header, 157, link);
+        put(header, 257, "ustar");
+        put(header, 263, "00");
+        put(header, 148, "        ");
+        int checksum = 0;
+        for (byte b : header) { checksum += b & 0xFF; }
+        put(header, 148, String.format("%06o", checksum));
+        out.write(header);
+        out.write(content);
+        out.write(new byte[(512 - content.length % 512) % 512]);
+    }
+
+    static void put(final byte[] header, final int offset, final String text) {
+        byte[] bytes = text.getBytes(UTF_8);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+
+    static byte[] createZip(final String name) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            out.putNextEntry(new ZipEntry("jdk/"));
+            out.putNextEntry(new ZipEntry(name));
+            out.write("java".getBytes(UTF_8));
+            out.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void tarGzTest(@TempDir final Path folder) throws IOException {
+        byte[] archive = createTarGz();
+        try (ArtifactServer server = new ArtifactServer().serve("/plain/jdk.tar.gz", archive)) {
+            DiscoClient discoClient = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot"));
+            PkgInfo     pkgInfo     = new PkgInfo("jdk.tar.gz", Semver.fromText("17.0.2").getSemver1(), server.uri("/plain/jdk.tar.gz"), "", "", "", Helper.getSHA256(archive), HashAlgorithm.SHA256);
+            Path        target      = folder.resolve("jdk-17");
+            Files.createDirectories(target.resolve("stale"));
+
+            assertEquals(target.toAbsolutePath(), discoClient.extractPkgAsync(pkgInfo, target.toString()).join());
+            assertEquals("#!/bin/sh", Files.readString(target.resolve("jdk/bin/java")));
+            assertEquals(70_000, Files.size(target.resolve("jdk/release")));
+            assertTrue(Files.isExecutable(target.resolve("jdk/bin/java")));
+            assertFalse(Files.exists(target.resolve("stale")));
+            assertFalse(Files.exists(folder.resolve("jdk-17" + ArchiveExtractor.STAGING_SUFFIX)));
+        }
+    }
+
+    @Test
+    public void zipTest(@TempDir final Path folder) throws IOException {
+        byte[] archive = createZip("jdk/bin/java");
+        try (ArtifactServer server = new ArtifactServer().serve("/plain/jdk.zip", archive)) {
+            DiscoClient discoClient = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot"));
+            Path        target      = folder.resolve("jdk-17");
+            Path        result      = discoClient.getArchiveExtractor().downloadAndExtract(server.uri("/plain/jdk.zip"), target, ArchiveType.ZIP, HashAlgorithm.SHA256, Helper.getSHA256(archive)).join();
+            assertEquals(target.toAbsolutePath(), result);
+            assertEquals("java", Files.readString(target.resolve("jdk/bin/java")));
+        }
+    }
+
+    @Test
+    public void rejectedArchiveTest(@TempDir final Path folder) throws IOException {
+        byte[] archive = createZip("../evil");
+        byte[] valid   = createZip("jdk/bin/java");
+        try (ArtifactServer server = new ArtifactServer().serve("/plain/evil.zip", archive).serve("/plain/jdk.zip", valid)) {
+            ArchiveExtractor extractor = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot")).getArchiveExtractor();
+            Path             target    = folder.resolve("jdk-17");
+            assertNull(extractor.downloadAndExtract(server.uri("/plain/evil.zip"), target, ArchiveType.ZIP, HashAlgorithm.NONE, "").join());
+            assertFalse(Files.exists(folder.resolve("evil")));
+
+            // Checksum mismatch leaves neither the target nor the staging folder behind
+            assertNull(extractor.downloadAndExtract(server.uri("/plain/jdk.zip"), target, ArchiveType.ZIP, HashAlgorithm.SHA256, Helper.getSHA256(archive)).join());
+            assertFalse(Files.exists(target));
+            assertFalse(Files.exists(folder.resolve("jdk-17" + ArchiveExtractor.STAGING_SUFFIX)));
+        }
+
+        // The file f replaces the link f instead of being written through it
+        byte[] replaced = createTarGz(new String[] { "d/", "5" }, new String[] { "d/l", "2", ".." }, new String[] { "f", "2", "d/l/../escaped/pwn.txt" }, new String[] { "f", "0" });
+        // d/m points outside although both links look harmless on their own
+        byte[] escaped  = createTarGz(new String[] { "d/", "5" }, new String[] { "d/l", "2", ".." }, new String[] { "d/m", "2", "l/.." }, new String[] { "d/m/escaped/pwn.txt", "0" });
+        try (ArtifactServer server = new ArtifactServer().serve("/plain/replaced.tar.gz", replaced).serve("/plain/escaped.tar.gz", escaped)) {
+            ArchiveExtractor extractor = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot")).getArchiveExtractor();
+            Path             target    = folder.resolve("jdk-17");
+            assertEquals(target.toAbsolutePath(), extractor.downloadAndExtract(server.uri("/plain/replaced.tar.gz"), target, ArchiveType.TAR_GZ, HashAlgorithm.NONE, "").join());
+            assertTrue(Files.isRegularFile(target.resolve("f"), LinkOption.NOFOLLOW_LINKS));
+            assertEquals("pwn", Files.readString(target.resolve("f")));
+            assertFalse(Files.exists(folder.resolve("escaped")));
+
+            assertNull(extractor.downloadAndExtract(server.uri("/plain/escaped.tar.gz"), target, ArchiveType.TAR_GZ, HashAlgorithm.NONE, "").join());
+            assertFalse(Files.exists(folder.resolve("escaped")));
+            assertFalse(Files.exists(folder.resolve("jdk-17" + ArchiveExtractor.STAGING_SUFFIX)));
+        }
+    }
+}
\ No newline at end of file
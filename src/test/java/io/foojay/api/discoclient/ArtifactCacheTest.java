@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import eu.hansolo.jdktools.HashAlgorithm;
+import eu.hansolo.jdktools.versioning.Semver;
+import io.foojay.api.discoclient.util.Helper;
+import io.foojay.api.discoclient.util.PkgInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class ArtifactCacheTest {
+
+    @Test
+    public void lruEvictionTest(@TempDir final Path folder) throws IOException {
+        Path          cacheFolder = folder.resolve("cache");
+        ArtifactCache cache       = new ArtifactCache(cacheFolder, 250);
+        for (String name : new String[] { "a", "b", "c" }) {
+            Path source = folder.resolve(name);
+            Files.write(source, new byte[100]);
+            if ("c".equals(name)) { assertTrue(cache.get("a", folder.resolve("a-copy")).isPresent()); }
+            assertTrue(cache.put(name, source));
+        }
+        // b was the least recently used entry
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("a"));
+        assertTrue(cache.contains("c"));
+        assertEquals(200, cache.getTotalSize());
+        assertEquals(Optional.empty(), cache.get("b", folder.resolve("b-copy")));
+
+        ArtifactCache reopened = new ArtifactCache(cacheFolder, 250);
+        assertEquals(2, reopened.size());
+        assertEquals(200, reopened.getTotalSize());
+        assertEquals("sha256-abc1", ArtifactCache.key(HashAlgorithm.SHA256, "ABC1", "id"));
+        assertEquals("id-" + Helper.getSHA256("id"), ArtifactCache.key(HashAlgorithm.NONE, "", "id"));
+    }
+
+    @Test
+    public void sharedEntryTest(@TempDir final Path folder) throws IOException {
+        ArtifactCache cache  = new ArtifactCache(folder.resolve("cache"), 1024);
+        Path          source = folder.resolve("source");
+        Files.write(source, new byte[100]);
+        assertTrue(cache.put("a", source));
+
+        Path target = folder.resolve("target");
+        assertTrue(cache.get("a", target).isPresent());
+        FileTime modified = Files.getLastModifiedTime(target);
+        assertTrue(cache.get("a", folder.resolve("other")).isPresent());
+        assertEquals(modified, Files.getLastModifiedTime(target));
+        assertFalse(Files.getPosixFilePermissions(target).contains(PosixFilePermission.OWNER_WRITE));
+
+        // Only possible for privileged users, a modified entry must not be served again
+        try {
+            Files.write(target, new byte[10], StandardOpenOption.APPEND);
+        } catch (AccessDeniedException e) {
+            return;
+        }
+        assertEquals(Optional.empty(), cache.get("a", folder.resolve("third")));
+        assertFalse(cache.contains("a"));
+    }
+
+    @Test
+    public void cachedDownloadTest(@TempDir final Path folder) throws IOException {
+        byte[] content = new byte[256 * 1024];
+        try (ArtifactServer server = new ArtifactServer().serve("/plain/jdk.zip", content)) {
+            DiscoClient discoClient = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot"));
+            PkgInfo     pkgInfo     = new PkgInfo("jdk.zip", Semver.fromText("17.0.2").getSemver1(), server.uri("/plain/jdk.zip"), "", "", "", Helper.getSHA256(content), HashAlgorithm.SHA256);
+            discoClient.setArtifactCache(new ArtifactCache(folder.resolve("cache"), 1024 * 1024));
+
+            Path first = folder.resolve("first.zip");
+            assertEquals(first, discoClient.downloadPkgAsync(pkgInfo, first.toString()).join());
+            // A miss is written once into the cache and the target shares the entry
+            Path entry = folder.resolve("cache").resolve(ArtifactCache.key(HashAlgorithm.SHA256, Helper.getSHA256(content), ""));
+            assertTrue(Files.isSameFile(entry, first));
+            try (Stream<Path> files = Files.list(folder.resolve("cache"))) { assertTrue(files.noneMatch(file -> file.getFileName().toString().contains(".load"))); }
+            Path second = folder.resolve("second.zip");
+            assertEquals(second, discoClient.downloadPkgAsync(pkgInfo, second.toString()).join());
+            assertEquals(1, server.getRequests.get());
+            assertArrayEquals(content, Files.readAllBytes(second));
+        }
+    }
+
+    @Test
+    public void concurrentDownloadTest(@TempDir final Path folder) throws IOException {
+        byte[] content = new byte[256 * 1024];
+        try (ArtifactServer server = new ArtifactServer().serve("/plain/jdk.zip", content)) {
+            // Two clients with their own cache instance on the same folder, like two processes on a CI host
+            DiscoClient    first  = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot"));
+            DiscoClient    second = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot"));
+            PkgInfo        info   = new PkgInfo("jdk.zip", Semver.fromText("17.0.2").getSemver1(), server.uri("/plain/jdk.zip"), "", "", "", Helper.getSHA256(content), HashAlgorithm.SHA256);
+            CountDownLatch hold   = new CountDownLatch(1);
+            first.setArtifactCache(new ArtifactCache(folder.resolve("cache"), 1024 * 1024));
+            second.setArtifactCache(new ArtifactCache(folder.resolve("cache"), 1024 * 1024));
+            server.hold = hold;
+
+            CompletableFuture<Path> a = first.downloadPkgAsync(info, folder.resolve("a.zip").toString());
+            CompletableFuture<Path> b = first.downloadPkgAsync(info, folder.resolve("b.zip").toString());
+            CompletableFuture<Path> c = second.downloadPkgAsync(info, folder.resolve("c.zip").toString());
+            hold.countDown();
+            CompletableFuture.allOf(a, b, c).join();
+
+            assertEquals(1, server.getRequests.get());
+            for (CompletableFuture<Path> future : List.of(a, b, c)) { assertArrayEquals(content, Files.readAllBytes(future.join())); }
+        }
+    }
+}
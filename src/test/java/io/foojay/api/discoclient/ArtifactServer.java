@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+
+/**
+ * Minimal http/1.1 server on localhost that serves byte arrays, used to test downloads without network.
+ * Paths that start with /ranges accept range requests and carry an ETag, all other paths are served as a whole.
+ * With failAfter the next GET is cut off after the given number of bytes, with hold all GETs wait until the latch is released.
+ * Paths registered with fail are answered with the given status.
+ */
+class ArtifactServer implements Closeable {
+    private final ServerSocket         serverSocket;
+    private final ExecutorService      executor;
+    private final Map<String, byte[]>  artifacts;
+    private final Map<String, Integer> failures;
+    final         AtomicInteger        rangeRequests;
+    final         AtomicInteger        getRequests;
+    final         List<String>         ranges;
+    final         AtomicLong           failAfter;
+    volatile      CountDownLatch       hold;
+
+
+    ArtifactServer() throws IOException {
+        serverSocket  = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor      = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "artifact-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        artifacts     = new HashMap<>();
+        failures      = new HashMap<>();
+        rangeRequests = new AtomicInteger();
+        getRequests   = new AtomicInteger();
+        ranges        = new CopyOnWriteArrayList<>();
+        failAfter     = new AtomicLong(-1);
+        executor.execute(this::accept);
+    }
+
+
+    ArtifactServer serve(final String path, final byte[] content) {
+        artifacts.put(path, content);
+        return this;
+    }
+
+    ArtifactServer fail(final String path, final int status) {
+        failures.put(path, status);
+        return this;
+    }
+
+    String uri(final String path) { return "http://127.0.0.1:" + serverSocket.getLocalPort() + path; }
+
+    @Override public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                executor.execute(() -> handle(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(final Socket socket) {
+        try (socket) {
+            final BufferedReader reader      = new BufferedReader(new InputStreamReader(socket.getInputStream(), US_ASCII));
+            final String[]       requestLine = reader.readLine().split(" ");
+            String range = null;
+            String line;
+            while (null != (line = reader.readLine()) && !line.isEmpty()) {
+                if (line.toLowerCase().startsWith("range:")) { range = line.substring(6).trim(); }
+            }
+            final String       method       = requestLine[0];
+            final String       path         = requestLine[1];
+            final byte[]       content      = artifacts.get(path);
+            final boolean      acceptRanges = path.startsWith("/ranges");
+            final OutputStream out          = socket.getOutputStream();
+            if (failures.containsKey(path)) {
+                if ("GET".equals(method)) { getRequests.incrementAndGet(); }
+                out.write(("HTTP/1.1 " + failures.get(path) + " Failed\r\nContent-Length: 0\r\nConnection: close\r\n\r\n").getBytes(US_ASCII));
+                return;
+            }
+            if (null == content) {
+                out.write("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes(US_ASCII));
+                return;
+            }
+            int from = 0;
+            int to   = content.length - 1;
+            if (acceptRanges && null != range) {
+                final String[] bounds = range.substring("bytes=".length()).split("-");
+                from = Integer.parseInt(bounds[0]);
+                to   = bounds.length > 1 && !bounds[1].isEmpty() ? Math.min(Integer.parseInt(bounds[1]), content.length - 1) : content.length - 1;
+                rangeRequests.incrementAndGet();
+                ranges.add(range);
+            }
+            if ("GET".equals(method)) { getRequests.incrementAndGet(); }
+            final boolean       partial = acceptRanges && null != range;
+            final StringBuilder header  = new StringBuilder().append(partial ? "HTTP/1.1 206 Partial Content\r\n" : "HTTP/1.1 200 OK\r\n")
+                                                             .append("Content-Length: ").append(to - from + 1).append("\r\n")
+                                                             .append("Connection: close\r\n");
+            if (acceptRanges) { header.append("Accept-Ranges: bytes\r\n").append("ETag: \"").append(content.length).append("\"\r\n"); }
+            if (partial) { header.append("Content-Range: bytes ").append(from).append("-").append(to).append("/").append(content.length).append("\r\n"); }
+            out.write(header.append("\r\n").toString().getBytes(US_ASCII));
+            if ("GET".equals(method)) {
+                final CountDownLatch latch = hold;
+                if (null != latch) { latch.await(); }
+                final long limit = failAfter.getAndSet(-1);
+                out.write(content, from, limit < 0 ? to - from + 1 : (int) Math.min(limit, to - from + 1));
+            }
+            out.flush();
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            // Client went away
+        }
+    }
+}
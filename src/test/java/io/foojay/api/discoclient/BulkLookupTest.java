@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import eu.hansolo.jdktools.Architecture;
+import eu.hansolo.jdktools.OperatingSystem;
+import eu.hansolo.jdktools.versioning.Semver;
+import io.foojay.api.discoclient.pkg.Distribution;
+import io.foojay.api.discoclient.pkg.JdkInstallation;
+import io.foojay.api.discoclient.pkg.Pkg;
+import io.foojay.api.discoclient.util.BulkResult;
+import io.foojay.api.discoclient.util.Constants;
+import io.foojay.api.discoclient.util.PkgInfo;
+import io.foojay.api.discoclient.util.UpdateResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class BulkLookupTest {
+
+    @Test
+    public void bulkTest(@TempDir final Path folder) {
+        DiscoClient  discoClient = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot"));
+        List<String> ids         = new ArrayList<>();
+        for (int i = 0 ; i < 1_000 ; i++) { ids.add("id" + i); }
+        ids.addAll(Arrays.asList("id0", "", null));
+
+        BulkResult<Pkg> pkgs = discoClient.getPkgsAsync(ids).join();
+        assertEquals(1_000, pkgs.size());
+        assertTrue(pkgs.getResults().isEmpty());
+        assertTrue(pkgs.getFailures().get("id0") instanceof NoSuchElementException);
+
+        BulkResult<PkgInfo> pkgInfos = discoClient.getPkgInfosAsync(List.of("id0", "id1")).join();
+        assertEquals(2, pkgInfos.getFailures().size());
+
+        assertEquals(0, discoClient.getPkgsAsync(List.of()).join().size());
+    }
+
+    @Test
+    public void failedRequestTest(@TempDir final Path folder) throws IOException {
+        byte[] pkg     = (PkgTableTest.PACKAGES_JSON.substring(0, PkgTableTest.PACKAGES_JSON.indexOf("},") + 1) + "]}").getBytes(UTF_8);
+        byte[] pkgInfo = "{\"result\":[{\"filename\":\"zulu17.tar.gz\",\"direct_download_uri\":\"https://cdn.example.com/zulu17.tar.gz\",\"download_site_uri\":\"\",\"signature_uri\":\"\",\"checksum_uri\":\"\",\"checksum\":\"\",\"checksum_type\":\"sha256\"}]}".getBytes(UTF_8);
+        byte[] empty   = "{\"result\":[]}".getBytes(UTF_8);
+        String packages = PropertyManager.INSTANCE.getPackagesPath() + "/";
+        String infos    = PropertyManager.INSTANCE.getIdsPath() + "/";
+        String discoUrl = PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL);
+        try (ArtifactServer server = new ArtifactServer().serve(packages + "a1", pkg).serve(infos + "a1", pkgInfo)
+                                                         .serve(packages + "missing", empty).serve(infos + "missing", empty)
+                                                         .fail(packages + "broken", 503).fail(infos + "broken", 503)) {
+            PropertyManager.INSTANCE.setString(Constants.PROPERTY_KEY_DISCO_URL, server.uri(""));
+            DiscoClient discoClient = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot"));
+            discoClient.setOffline(false);
+            List<String> ids = List.of("a1", "missing", "broken");
+
+            // A failed request must not be reported as a missing id
+            BulkResult<Pkg> pkgs = discoClient.getPkgsAsync(ids).join();
+            assertEquals("a1", pkgs.getResults().get("a1").getId());
+            assertTrue(pkgs.getFailures().get("missing") instanceof NoSuchElementException);
+            assertTrue(pkgs.getFailures().get("broken") instanceof UncheckedIOException);
+
+            BulkResult<PkgInfo> pkgInfos = discoClient.getPkgInfosAsync(ids).join();
+            assertEquals("zulu17.tar.gz", pkgInfos.getResults().get("a1").getFileName());
+            assertEquals("17.0.1+12", pkgInfos.getResults().get("a1").getJavaVersion().toString());
+            assertTrue(pkgInfos.getFailures().get("missing") instanceof NoSuchElementException);
+            assertTrue(pkgInfos.getFailures().get("broken") instanceof UncheckedIOException);
+
+            // Misses are cached, failures are requested again
+            int requests = server.getRequests.get();
+            discoClient.getPkgInfosAsync(ids).join();
+            assertEquals(requests + 2, server.getRequests.get());
+        } finally {
+            PropertyManager.INSTANCE.setString(Constants.PROPERTY_KEY_DISCO_URL, discoUrl);
+        }
+    }
+
+    @Test
+    public void fleetUpdateTest(@TempDir final Path folder) {
+        DiscoClient           discoClient   = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot"));
+        Distribution          zulu          = new Distribution("ZULU", "Zulu", "zulu");
+        List<JdkInstallation> installations = List.of(new JdkInstallation(zulu, Semver.fromText("17.0.1+12").getSemver1(), OperatingSystem.LINUX, Architecture.X64),
+                                                      new JdkInstallation(zulu, Semver.fromText("17.0.1+12").getSemver1(), OperatingSystem.LINUX, Architecture.X64),
+                                                      new JdkInstallation(zulu, Semver.fromText("11.0.2+9").getSemver1(), OperatingSystem.LINUX, Architecture.X64));
+
+        UpdateResult updates = discoClient.updatesAvailableFor(installations).join();
+        assertEquals(2, updates.size());
+        assertFalse(updates.hasFailures());
+        assertTrue(updates.getUpdates().values().stream().allMatch(List::isEmpty));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import eu.hansolo.jdktools.HashAlgorithm;
+import eu.hansolo.jdktools.TermOfSupport;
+import eu.hansolo.jdktools.versioning.Semver;
+import io.foojay.api.discoclient.pkg.CatalogSnapshot;
+import io.foojay.api.discoclient.pkg.Distribution;
+import io.foojay.api.discoclient.pkg.MajorVersion;
+import io.foojay.api.discoclient.pkg.PkgTable;
+import io.foojay.api.discoclient.pkg.Scope;
+import io.foojay.api.discoclient.util.Helper;
+import io.foojay.api.discoclient.util.PkgInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class CatalogSnapshotTest {
+
+    static CatalogSnapshot createSnapshot() {
+        List<Distribution> distributions = List.of(new Distribution("ZULU", "Zulu", "zulu", List.of("zulu", "ZULU", "Zulu"), List.of(Scope.PUBLIC), true),
+                                                   new Distribution("TEMURIN", "Temurin", "temurin", List.of("temurin", "Temurin"), List.of(Scope.PUBLIC), true));
+        List<MajorVersion> majorVersions = List.of(new MajorVersion(17, TermOfSupport.LTS, true, Scope.PUBLIC, List.of(Semver.fromText("17.0.2+8").getSemver1(), Semver.fromText("17.0.1+12").getSemver1())),
+                                                   new MajorVersion(19, TermOfSupport.STS, true, Scope.PUBLIC, List.of(Semver.fromText("19-ea+25").getSemver1())));
+        Map<String, PkgInfo> pkgInfos    = Map.of("a1", new PkgInfo("zulu17.tar.gz", Semver.fromText("17.0.1+12").getSemver1(), "https://cdn.azul.com/zulu17.tar.gz", "https://www.azul.com", "", "", "abc123", HashAlgorithm.SHA256));
+        return new CatalogSnapshot(1_650_000_000L, distributions, majorVersions, PkgTable.fromJson(PkgTableTest.PACKAGES_JSON), pkgInfos);
+    }
+
+    @Test
+    public void saveAndLoadTest(@TempDir final Path folder) throws IOException {
+        CatalogSnapshot snapshot = createSnapshot();
+        Path            path     = folder.resolve("test.snapshot");
+        snapshot.save(path);
+
+        CatalogSnapshot loaded = CatalogSnapshot.load(path);
+        assertEquals(1_650_000_000L, loaded.getCreatedAt());
+        assertEquals(2, loaded.getDistributions().size());
+        assertEquals("Temurin", loaded.getDistributionsByApiString().get("temurin").getUiString());
+        assertTrue(loaded.getDistributions().get(0).getSynonyms().contains("ZULU"));
+        assertEquals(List.of(Scope.PUBLIC), loaded.getDistributions().get(0).getScopes());
+        assertEquals(2, loaded.getMajorVersions().size());
+        assertEquals(17, loaded.getMajorVersions().get(0).getAsInt());
+        assertEquals(TermOfSupport.LTS, loaded.getMajorVersions().get(0).getTermOfSupport());
+        assertTrue(loaded.getMajorVersions().get(0).isMaintained());
+        assertEquals(2, loaded.getMajorVersions().get(0).getVersions().size());
+        assertTrue(loaded.getMajorVersions().get(1).isEarlyAccessOnly());
+        assertEquals(3, loaded.getPkgTable().size());
+        assertEquals("a3", loaded.getPkgTable().getId(2));
+        assertEquals("https://cdn.azul.com/zulu17.tar.gz", loaded.getPkgInfo("a1").getDirectDownloadUri());
+        assertEquals(HashAlgorithm.SHA256, loaded.getPkgInfo("a1").getChecksumType());
+        assertNull(loaded.getPkgInfo("a2"));
+        assertSame(loaded.getFacetCounts(), loaded.getFacetCounts());
+        assertEquals(2, loaded.getFacetCounts().getDistributionCounts().get("zulu"));
+    }
+
+    @Test
+    public void corruptSnapshotTest(@TempDir final Path folder) throws IOException {
+        Path path = folder.resolve("test.snapshot");
+        createSnapshot().save(path);
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> CatalogSnapshot.load(path));
+    }
+
+    @Test
+    public void generationTest(@TempDir final Path folder) throws IOException {
+        // A non empty folder cannot be replaced either, like a mapped file on Windows
+        Path path = folder.resolve("test.snapshot");
+        Files.createDirectories(path.resolve("locked"));
+        createSnapshot().save(path);
+        Path generation = Helper.resolveGeneration(path);
+        assertNotEquals(path, generation);
+        assertEquals(1_650_000_000L, CatalogSnapshot.load(path).getCreatedAt());
+
+        // Once the file can be replaced again the pointer and the generations are removed
+        Files.delete(path.resolve("locked"));
+        Files.delete(path);
+        createSnapshot().save(path);
+        assertEquals(path, Helper.resolveGeneration(path));
+        assertFalse(Files.exists(generation));
+        assertFalse(Files.exists(folder.resolve("test.snapshot" + Helper.CURRENT_SUFFIX)));
+        assertEquals(3, CatalogSnapshot.load(path).getPkgTable().size());
+    }
+}
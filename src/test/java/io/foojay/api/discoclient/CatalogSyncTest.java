@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import io.foojay.api.discoclient.event.CatalogEvt;
+import io.foojay.api.discoclient.pkg.CatalogDelta;
+import io.foojay.api.discoclient.pkg.PkgTable;
+import io.foojay.api.discoclient.util.Constants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class CatalogSyncTest {
+
+    @Test
+    public void applyTest(@TempDir final Path folder) {
+        DiscoClient        discoClient = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot"));
+        CatalogSync        sync        = new CatalogSync(discoClient);
+        List<CatalogDelta> deltas      = new CopyOnWriteArrayList<>();
+        discoClient.setOnEvt(CatalogEvt.CATALOG_UPDATED, evt -> deltas.add(((CatalogEvt) evt).getDelta()));
+
+        CatalogDelta initial = sync.apply(PkgTable.fromJson(PkgTableTest.PACKAGES_JSON));
+        assertEquals(3, initial.getAdded().size());
+        assertEquals(2, sync.getPkgsOfDistribution("zulu").size());
+
+        CatalogDelta unchanged = sync.apply(PkgTable.fromJson(PkgTableTest.PACKAGES_JSON));
+        assertTrue(unchanged.isEmpty());
+
+        CatalogDelta delta = sync.apply(PkgTable.fromJson(PkgTableTest.PACKAGES_JSON.replace("\"id\":\"a1\"", "\"id\":\"a4\"")));
+        assertEquals("a4", delta.getAdded().get(0).getId());
+        assertEquals("a1", delta.getRemoved().get(0).getId());
+        assertNull(sync.getPkg("a1"));
+        assertEquals(3, sync.size());
+        assertEquals(2, sync.getPkgsOfMajorVersion(17).size());
+        assertEquals(2, deltas.size());
+
+        CatalogDelta silent = sync.apply(PkgTable.fromJson(PkgTableTest.PACKAGES_JSON), false);
+        assertEquals(1, silent.getAdded().size());
+        assertEquals(2, deltas.size());
+    }
+
+    @Test
+    public void removedPkgCacheTest(@TempDir final Path folder) throws IOException {
+        byte[] pkg      = (PkgTableTest.PACKAGES_JSON.substring(0, PkgTableTest.PACKAGES_JSON.indexOf("},") + 1) + "]}").getBytes(UTF_8);
+        String discoUrl = PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL);
+        try (ArtifactServer server = new ArtifactServer().serve(PropertyManager.INSTANCE.getPackagesPath() + "/a1", pkg)) {
+            PropertyManager.INSTANCE.setString(Constants.PROPERTY_KEY_DISCO_URL, server.uri(""));
+            DiscoClient discoClient = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot"));
+            CatalogSync sync        = new CatalogSync(discoClient);
+            discoClient.setOffline(false);
+            sync.apply(PkgTable.fromJson(PkgTableTest.PACKAGES_JSON));
+
+            assertEquals("a1", discoClient.getPkgAsync("a1").join().getId());
+            assertEquals("a1", discoClient.getPkgAsync("a1").join().getId());
+            assertEquals(1, server.getRequests.get());
+
+            // A package that left the catalog must not be served from the cache
+            sync.apply(PkgTable.fromJson(PkgTableTest.PACKAGES_JSON.replace("\"id\":\"a1\"", "\"id\":\"a4\"")));
+            discoClient.getPkgAsync("a1").join();
+            assertEquals(2, server.getRequests.get());
+        } finally {
+            PropertyManager.INSTANCE.setString(Constants.PROPERTY_KEY_DISCO_URL, discoUrl);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import io.foojay.api.discoclient.util.CompactIdSet;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class CompactIdSetTest {
+
+    @Test
+    public void addAndContainsTest() {
+        CompactIdSet idSet = new CompactIdSet();
+        for (int i = 0 ; i < 10_000 ; i++) {
+            assertTrue(idSet.add(String.format("%032x", i * 7_919L)));
+        }
+        assertFalse(idSet.add(String.format("%032x", 7_919L)));
+        assertTrue(idSet.contains("00000000000000000000000000000000"));
+        assertFalse(idSet.contains(String.format("%032x", 1L)));
+
+        assertTrue(idSet.add("a1"));
+        assertFalse(idSet.add("a1"));
+        assertTrue(idSet.contains("a1"));
+        assertEquals(10_001, idSet.size());
+    }
+}
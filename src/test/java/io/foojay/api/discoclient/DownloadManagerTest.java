@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import eu.hansolo.jdktools.HashAlgorithm;
+import io.foojay.api.discoclient.event.EvtPriority;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class DownloadManagerTest {
+
+    @Test
+    public void priorityAndCancelTest(@TempDir final Path folder) throws IOException {
+        byte[] content = new byte[64 * 1024];
+        try (ArtifactServer server = new ArtifactServer().serve("/plain/jdk.zip", content)) {
+            DownloadManager manager = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot")).getDownloadManager();
+            manager.setMaxDownloads(1);
+            CountDownLatch hold     = new CountDownLatch(1);
+            List<String>   finished = new CopyOnWriteArrayList<>();
+            server.hold = hold;
+
+            CompletableFuture<Path> first  = manager.submit(server.uri("/plain/jdk.zip"), folder.resolve("first.zip"));
+            CompletableFuture<Path> low    = manager.submit(server.uri("/plain/jdk.zip"), folder.resolve("low.zip"), HashAlgorithm.NONE, "", EvtPriority.LOW);
+            CompletableFuture<Path> high   = manager.submit(server.uri("/plain/jdk.zip"), folder.resolve("high.zip"), HashAlgorithm.NONE, "", EvtPriority.HIGH);
+            CompletableFuture<Path> cancel = manager.submit(server.uri("/plain/jdk.zip"), folder.resolve("cancel.zip"));
+            CompletableFuture<Void> all = CompletableFuture.allOf(first.thenRun(() -> finished.add("first")),
+                                                                  low.thenRun(() -> finished.add("low")),
+                                                                  high.thenRun(() -> finished.add("high")));
+            assertEquals(1, manager.getActiveDownloads());
+            assertEquals(3, manager.getQueuedDownloads());
+
+            cancel.cancel(true);
+            assertEquals(2, manager.getQueuedDownloads());
+            hold.countDown();
+
+            all.join();
+            assertEquals(List.of("first", "high", "low"), finished);
+            assertEquals(0, manager.getActiveDownloads());
+            assertTrue(Files.exists(folder.resolve("low.zip")));
+            assertFalse(Files.exists(folder.resolve("cancel.zip")));
+        }
+    }
+
+    @Test
+    public void cancelRunningTest(@TempDir final Path folder) throws IOException {
+        byte[] content = new byte[64 * 1024];
+        try (ArtifactServer server = new ArtifactServer().serve("/plain/jdk.zip", content)) {
+            DownloadManager manager = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot")).getDownloadManager();
+            CountDownLatch  hold    = new CountDownLatch(1);
+            Path            target  = folder.resolve("jdk.zip");
+            server.hold = hold;
+
+            // The cancelled transfer keeps its slot until it stopped, the next one of the same target waits for it
+            CompletableFuture<Path> cancelled = manager.submit(server.uri("/plain/jdk.zip"), target);
+            cancelled.cancel(true);
+            CompletableFuture<Path> next      = manager.submit(server.uri("/plain/jdk.zip"), target);
+            assertEquals(1, manager.getActiveDownloads());
+            assertFalse(next.isDone());
+            hold.countDown();
+
+            assertEquals(target, next.join());
+            assertEquals(content.length, Files.size(target));
+            assertEquals(0, manager.getActiveDownloads());
+
+            // A transfer that cannot be started frees its slot
+            CompletableFuture<Path> failed = manager.submit("http://127.0.0.1/broken", folder.resolve("broken"), EvtPriority.NORMAL, cancel -> { throw new IllegalStateException("broken"); });
+            assertTrue(assertThrows(CompletionException.class, failed::join).getCause() instanceof IllegalStateException);
+            assertNull(manager.submit("http://127.0.0.1/null", folder.resolve("null"), EvtPriority.NORMAL, cancel -> null).exceptionally(e -> null).join());
+            assertEquals(0, manager.getActiveDownloads());
+        }
+    }
+}
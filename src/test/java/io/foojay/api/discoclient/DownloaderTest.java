@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import eu.hansolo.jdktools.HashAlgorithm;
+import io.foojay.api.discoclient.event.DownloadEvt;
+import io.foojay.api.discoclient.util.Helper;
+import io.foojay.api.discoclient.util.TokenBucket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class DownloaderTest {
+    static final byte[] CONTENT = new byte[20 * 1024 * 1024 + 17];
+    static { new Random(42).nextBytes(CONTENT); }
+
+    ArtifactServer server;
+
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = new ArtifactServer().serve("/ranges/jdk.tar.gz", CONTENT).serve("/plain/jdk.tar.gz", CONTENT);
+    }
+
+    @AfterEach
+    public void stopServer() throws IOException { server.close(); }
+
+    @Test
+    public void segmentedDownloadTest(@TempDir final Path folder) throws IOException {
+        Downloader downloader = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot")).getDownloader();
+        Path       target     = folder.resolve("ranges.tar.gz");
+        assertEquals(target, downloader.download(server.uri("/ranges/jdk.tar.gz"), target).join());
+        assertEquals(2, server.rangeRequests.get());
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+    }
+
+    @Test
+    public void singleStreamFallbackTest(@TempDir final Path folder) throws IOException {
+        Downloader downloader = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot")).getDownloader();
+        Path       target     = folder.resolve("plain.tar.gz");
+        assertEquals(target, downloader.download(server.uri("/plain/jdk.tar.gz"), target).join());
+        assertEquals(0, server.rangeRequests.get());
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+        assertNull(downloader.download(server.uri("/missing"), folder.resolve("missing.tar.gz")).join());
+    }
+
+    @Test
+    public void resumeTest(@TempDir final Path folder) throws IOException {
+        Downloader downloader = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot")).getDownloader();
+        Path       target     = folder.resolve("resume.tar.gz");
+        downloader.setSegments(1);
+        server.failAfter.set(5 * 1024 * 1024);
+        assertNull(downloader.download(server.uri("/ranges/jdk.tar.gz"), target).join());
+        assertTrue(Files.exists(folder.resolve("resume.tar.gz" + Downloader.PART_SUFFIX)));
+        assertTrue(Files.exists(folder.resolve("resume.tar.gz" + Downloader.META_SUFFIX)));
+        assertFalse(Files.exists(target));
+
+        assertEquals(target, downloader.download(server.uri("/ranges/jdk.tar.gz"), target).join());
+        assertEquals(2, server.ranges.size());
+        assertFalse(server.ranges.get(1).startsWith("bytes=0-"));
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+        assertFalse(Files.exists(folder.resolve("resume.tar.gz" + Downloader.PART_SUFFIX)));
+        assertFalse(Files.exists(folder.resolve("resume.tar.gz" + Downloader.META_SUFFIX)));
+    }
+
+    @Test
+    public void checkpointTest(@TempDir final Path folder) throws Exception {
+        Downloader              downloader = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot")).getDownloader();
+        Path                    target     = folder.resolve("checkpoint.tar.gz");
+        Path                    meta       = folder.resolve("checkpoint.tar.gz" + Downloader.META_SUFFIX);
+        CompletableFuture<Path> download   = downloader.download(server.uri("/ranges/jdk.tar.gz"), target, HashAlgorithm.NONE, "", new TokenBucket(4 * 1024 * 1024));
+
+        // Progress has to show up in the sidecar while the download is still running
+        long recorded = 0;
+        for (int i = 0 ; i < 200 && 0 == recorded ; i++) {
+            Thread.sleep(50);
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(meta)) { properties.load(in); } catch (IOException e) { continue; }
+            byte[] part = Files.readAllBytes(folder.resolve("checkpoint.tar.gz" + Downloader.PART_SUFFIX));
+            for (String segment : properties.getProperty("segments").split(",")) {
+                int  start = Integer.parseInt(segment.substring(0, segment.indexOf('-')));
+                int  done  = Integer.parseInt(segment.substring(segment.indexOf(':') + 1));
+                assertArrayEquals(Arrays.copyOfRange(CONTENT, start, start + done), Arrays.copyOfRange(part, start, start + done));
+                recorded += done;
+            }
+        }
+        assertTrue(recorded > 0);
+        assertFalse(download.isDone());
+
+        assertEquals(target, download.join());
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+        assertFalse(Files.exists(meta));
+    }
+
+    @Test
+    public void checksumTest(@TempDir final Path folder) throws IOException {
+        DiscoClient             discoClient = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot"));
+        Downloader              downloader  = discoClient.getDownloader();
+        String                  sha256      = Helper.getSHA256(CONTENT);
+        AtomicReference<String> verified    = new AtomicReference<>();
+        discoClient.setOnEvt(DownloadEvt.DOWNLOAD_FINISHED, evt -> verified.set(((DownloadEvt) evt).getChecksum()));
+
+        Path segmented = folder.resolve("segmented.tar.gz");
+        assertEquals(segmented, downloader.download(server.uri("/ranges/jdk.tar.gz"), segmented, HashAlgorithm.SHA256, sha256.toUpperCase()).join());
+        assertEquals(sha256, verified.get());
+
+        Path plain = folder.resolve("plain.tar.gz");
+        assertEquals(plain, downloader.download(server.uri("/plain/jdk.tar.gz"), plain, HashAlgorithm.SHA256, sha256).join());
+        assertArrayEquals(CONTENT, Files.readAllBytes(plain));
+
+        Path corrupt = folder.resolve("corrupt.tar.gz");
+        assertNull(downloader.download(server.uri("/ranges/jdk.tar.gz"), corrupt, HashAlgorithm.SHA256, Helper.getSHA256("other")).join());
+        assertFalse(Files.exists(corrupt));
+        assertFalse(Files.exists(folder.resolve("corrupt.tar.gz" + Downloader.PART_SUFFIX)));
+        assertFalse(Files.exists(folder.resolve("corrupt.tar.gz" + Downloader.META_SUFFIX)));
+    }
+
+    @Test
+    public void throttledProgressTest(@TempDir final Path folder) {
+        DiscoClient       discoClient = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot"));
+        List<DownloadEvt> progress    = new CopyOnWriteArrayList<>();
+        discoClient.setOnEvt(DownloadEvt.DOWNLOAD_PROGRESS, evt -> progress.add((DownloadEvt) evt));
+        discoClient.getDownloader().setProgressMinBytes(4 * 1024 * 1024);
+
+        Path target = folder.resolve("progress.tar.gz");
+        assertEquals(target, discoClient.getDownloader().download(server.uri("/ranges/jdk.tar.gz"), target).join());
+        assertTrue(progress.size() <= CONTENT.length / (4 * 1024 * 1024) + 1);
+        DownloadEvt last = progress.get(progress.size() - 1);
+        assertEquals(CONTENT.length, last.getFraction());
+        assertEquals(0, last.getEta());
+        assertTrue(last.getBytesPerSecond() > 0);
+    }
+
+    @Test
+    public void bandwidthLimitTest(@TempDir final Path folder) throws IOException {
+        DiscoClient       discoClient = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot"));
+        List<DownloadEvt> progress    = new CopyOnWriteArrayList<>();
+        TokenBucket       limit       = new TokenBucket(512 * 1024);
+        byte[]            content     = new byte[1024 * 1024];
+        discoClient.setOnEvt(DownloadEvt.DOWNLOAD_PROGRESS, evt -> progress.add((DownloadEvt) evt));
+        server.serve("/plain/small.zip", content);
+
+        Path target = folder.resolve("limited.zip");
+        long start  = System.nanoTime();
+        assertEquals(target, discoClient.getDownloader().download(server.uri("/plain/small.zip"), target, HashAlgorithm.NONE, "", limit).join());
+        // The first second worth of bytes is a burst, the rest is transferred at the limit
+        assertTrue(System.nanoTime() - start >= 700_000_000L);
+        assertEquals(512 * 1024, progress.get(progress.size() - 1).getBandwidthLimit());
+        assertArrayEquals(content, Files.readAllBytes(target));
+
+        limit.setRate(0);
+        assertFalse(limit.isLimited());
+        assertEquals(0, limit.take(Long.MAX_VALUE / 2));
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import eu.hansolo.jdktools.Architecture;
+import eu.hansolo.jdktools.ArchiveType;
+import eu.hansolo.jdktools.Bitness;
+import eu.hansolo.jdktools.Latest;
+import eu.hansolo.jdktools.LibCType;
+import eu.hansolo.jdktools.Match;
+import eu.hansolo.jdktools.OperatingSystem;
+import eu.hansolo.jdktools.PackageType;
+import eu.hansolo.jdktools.ReleaseStatus;
+import eu.hansolo.jdktools.TermOfSupport;
+import eu.hansolo.jdktools.versioning.VersionNumber;
+import io.foojay.api.discoclient.pkg.Distribution;
+import io.foojay.api.discoclient.pkg.Pkg;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class LocalCatalogTest {
+
+    private static List<Pkg> query(final LocalCatalog catalog, final List<Distribution> distributions, final VersionNumber versionNumber, final Latest latest,
+                                   final OperatingSystem operatingSystem, final List<ReleaseStatus> releaseStatus, final List<String> features) {
+        return catalog.getPkgs(distributions, versionNumber, latest, operatingSystem, LibCType.NONE, Architecture.NONE, Bitness.NONE, ArchiveType.NONE, PackageType.JDK,
+                               null, null, releaseStatus, TermOfSupport.NONE, features, List.of(), Match.ANY);
+    }
+
+    @Test
+    public void pkgsTest() {
+        LocalCatalog       catalog = new LocalCatalog(CatalogSnapshotTest.createSnapshot());
+        List<Distribution> zulu    = List.of(catalog.getSnapshot().getDistributionsByApiString().get("zulu"));
+        assertEquals(3, catalog.getAllPackages().size());
+        assertEquals(2, query(catalog, zulu, new VersionNumber(17), Latest.NONE, OperatingSystem.NONE, List.of(), List.of()).size());
+        assertEquals(1, query(catalog, zulu, new VersionNumber(17), Latest.NONE, OperatingSystem.LINUX, List.of(), List.of()).size());
+        assertEquals(0, query(catalog, zulu, VersionNumber.fromText("17.0.3"), Latest.NONE, OperatingSystem.NONE, List.of(), List.of()).size());
+        assertEquals(1, query(catalog, zulu, VersionNumber.fromText("17.0.1"), Latest.AVAILABLE, OperatingSystem.NONE, List.of(), List.of()).size());
+        assertEquals(1, query(catalog, null, null, Latest.OVERALL, OperatingSystem.NONE, List.of(), List.of()).size());
+        assertEquals(2, query(catalog, null, null, Latest.NONE, OperatingSystem.NONE, List.of(ReleaseStatus.GA), List.of()).size());
+        assertEquals(1, query(catalog, null, null, Latest.NONE, OperatingSystem.NONE, List.of(), List.of("loom")).size());
+    }
+
+    @Test
+    public void majorVersionsAndDistributionsTest() {
+        LocalCatalog catalog = new LocalCatalog(CatalogSnapshotTest.createSnapshot());
+        assertEquals(17, catalog.getMajorVersion("latest_lts").getAsInt());
+        assertEquals(19, catalog.getMajorVersion("latest_ea").getAsInt());
+        assertEquals(2, catalog.getMajorVersion("17").getVersions().size());
+        assertNull(catalog.getMajorVersion(19, false));
+        assertEquals(1, catalog.getMajorVersions(null, false, true).size());
+        assertEquals(List.of("temurin"), catalog.getDistributionsForVersion(new VersionNumber(19), List.of(), Match.ANY).stream().map(Distribution::getApiString).collect(Collectors.toList()));
+        assertEquals("abc123", catalog.getPkgInfo("a1").getChecksum());
+    }
+}
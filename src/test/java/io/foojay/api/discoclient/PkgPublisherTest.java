@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import io.foojay.api.discoclient.pkg.Pkg;
+import io.foojay.api.discoclient.pkg.PkgPublisher;
+import io.foojay.api.discoclient.pkg.PkgReader;
+import io.foojay.api.discoclient.util.Constants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class PkgPublisherTest {
+
+    @Test
+    public void readerTest() {
+        PkgReader reader = new PkgReader(new ByteArrayInputStream(("{\"message\":\"\",\"result\":" + PkgTableTest.PACKAGES_JSON.substring(10)).getBytes(UTF_8)));
+        assertEquals("a1", reader.next().getId());
+        assertEquals("a2", reader.next().getId());
+        assertEquals("a3", reader.next().getId());
+        assertFalse(reader.hasNext());
+
+        assertFalse(new PkgReader(new ByteArrayInputStream("{\"message\":\"error\"}".getBytes(UTF_8))).hasNext());
+    }
+
+    @Test
+    public void backpressureAndCancelTest() throws InterruptedException {
+        AtomicBoolean  closed    = new AtomicBoolean(false);
+        PkgPublisher   publisher = new PkgPublisher(() -> new PkgReader(new ByteArrayInputStream(PkgTableTest.PACKAGES_JSON.getBytes(UTF_8))) {
+            @Override public void close() { closed.set(true); super.close(); }
+        });
+        List<Pkg>      received  = new CopyOnWriteArrayList<>();
+        CountDownLatch first     = new CountDownLatch(1);
+        Subscription[] holder    = new Subscription[1];
+        publisher.subscribe(new Subscriber<>() {
+            @Override public void onSubscribe(final Subscription subscription) { holder[0] = subscription; subscription.request(1); }
+            @Override public void onNext(final Pkg pkg) { received.add(pkg); first.countDown(); }
+            @Override public void onError(final Throwable throwable) { }
+            @Override public void onComplete() { }
+        });
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, received.size());
+        holder[0].cancel();
+        assertTrue(closed.get());
+
+        List<Pkg>      all      = new CopyOnWriteArrayList<>();
+        CountDownLatch complete = new CountDownLatch(1);
+        publisher.subscribe(new Subscriber<>() {
+            @Override public void onSubscribe(final Subscription subscription) { subscription.request(Long.MAX_VALUE); }
+            @Override public void onNext(final Pkg pkg) { all.add(pkg); }
+            @Override public void onError(final Throwable throwable) { }
+            @Override public void onComplete() { complete.countDown(); }
+        });
+        assertTrue(complete.await(5, TimeUnit.SECONDS));
+        assertEquals(3, all.size());
+    }
+
+    @Test
+    public void failedStreamTest(@TempDir final Path folder) throws IOException {
+        String discoUrl = PropertyManager.INSTANCE.getString(Constants.PROPERTY_KEY_DISCO_URL);
+        try (ArtifactServer server = new ArtifactServer().fail(PropertyManager.INSTANCE.getPackagesPath() + "?release_status=ea&release_status=ga", 503)) {
+            PropertyManager.INSTANCE.setString(Constants.PROPERTY_KEY_DISCO_URL, server.uri(""));
+            DiscoClient discoClient = new DiscoClient("", false, true, folder.resolve("discoclient.snapshot"));
+            discoClient.setOffline(false);
+            assertThrows(UncheckedIOException.class, discoClient::getAllPackagesStream);
+        } finally {
+            PropertyManager.INSTANCE.setString(Constants.PROPERTY_KEY_DISCO_URL, discoUrl);
+        }
+    }
+}
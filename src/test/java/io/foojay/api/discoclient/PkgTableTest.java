@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import eu.hansolo.jdktools.Architecture;
+import eu.hansolo.jdktools.OperatingSystem;
+import eu.hansolo.jdktools.ReleaseStatus;
+import eu.hansolo.jdktools.TermOfSupport;
+import eu.hansolo.jdktools.versioning.Semver;
+import io.foojay.api.discoclient.pkg.FacetCounts;
+import io.foojay.api.discoclient.pkg.Feature;
+import io.foojay.api.discoclient.pkg.PkgTable;
+import io.foojay.api.discoclient.pkg.PkgTable.Column;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class PkgTableTest {
+    static final String PACKAGES_JSON = "{\"result\":["
+        + "{\"id\":\"a1\",\"distribution\":\"zulu\",\"major_version\":17,\"java_version\":\"17.0.1+12\",\"distribution_version\":\"17.30.15\",\"architecture\":\"x64\",\"operating_system\":\"linux\",\"lib_c_type\":\"glibc\",\"package_type\":\"jdk\",\"release_status\":\"ga\",\"archive_type\":\"tar.gz\",\"term_of_support\":\"lts\",\"javafx_bundled\":false,\"directly_downloadable\":true,\"filename\":\"zulu17.tar.gz\",\"size\":190000000,\"feature\":[]},"
+        + "{\"id\":\"a2\",\"distribution\":\"zulu\",\"major_version\":17,\"java_version\":\"17.0.2+8\",\"distribution_version\":\"17.32.13\",\"architecture\":\"aarch64\",\"operating_system\":\"macos\",\"lib_c_type\":\"libc\",\"package_type\":\"jdk\",\"release_status\":\"ga\",\"archive_type\":\"zip\",\"term_of_support\":\"lts\",\"javafx_bundled\":true,\"directly_downloadable\":true,\"filename\":\"zulu17.zip\",\"size\":180000000,\"feature\":[]},"
+        + "{\"id\":\"a3\",\"distribution\":\"temurin\",\"major_version\":19,\"java_version\":\"19-ea+25\",\"distribution_version\":\"19\",\"architecture\":\"x64\",\"operating_system\":\"linux\",\"lib_c_type\":\"glibc\",\"package_type\":\"jdk\",\"release_status\":\"ea\",\"archive_type\":\"tar.gz\",\"term_of_support\":\"sts\",\"javafx_bundled\":false,\"directly_downloadable\":true,\"filename\":\"temurin19.tar.gz\",\"size\":200000000,\"feature\":[\"loom\"]}"
+        + "]}";
+
+
+    @Test
+    public void fromJsonTest() {
+        PkgTable table = PkgTable.fromJson(PACKAGES_JSON);
+        assertEquals(3, table.size());
+        assertEquals("a2", table.getId(1));
+        assertEquals(Architecture.AARCH64, table.getArchitecture(1));
+        assertEquals(OperatingSystem.MACOS, table.getOperatingSystem(1));
+        assertTrue(table.isJavaFXBundled(1));
+        assertFalse(table.isJavaFXBundled(0));
+        assertTrue(table.hasFeature(2, Feature.LOOM));
+        assertEquals("zulu", table.getDistributionName(0));
+        assertEquals(2, table.indexOf("a3"));
+        assertEquals(-1, table.indexOf("unknown"));
+    }
+
+    @Test
+    public void scanTest() {
+        PkgTable table = PkgTable.fromJson(PACKAGES_JSON);
+        int[] linux = table.select(Column.OPERATING_SYSTEM, OperatingSystem.LINUX);
+        assertArrayEquals(new int[] { 0, 2 }, linux);
+        assertEquals(2, table.countBy(Column.RELEASE_STATUS)[ReleaseStatus.GA.ordinal()]);
+        assertEquals(2, table.countByDistribution().get("zulu").intValue());
+        assertEquals(2, table.selectMajorVersion(17).length);
+        assertEquals(1, table.latest(table.selectDistribution("zulu")));
+        assertEquals(370000000L, table.totalSize(table.selectDistribution("zulu")));
+        assertArrayEquals(new int[] { 2, 1, 0 }, table.sortByVersion(new int[] { 0, 1, 2 }, true));
+    }
+
+    @Test
+    public void versionKeyTest() {
+        assertTrue(PkgTable.versionKey(Semver.fromText("17.0.2+8").getSemver1()) > PkgTable.versionKey(Semver.fromText("17.0.1+12").getSemver1()));
+        assertTrue(PkgTable.versionKey(Semver.fromText("19+36").getSemver1()) > PkgTable.versionKey(Semver.fromText("19-ea+25").getSemver1()));
+        assertArrayEquals(new int[] { 17, 0, 2, 0 }, PkgTable.versionComponents(PkgTable.versionKey(Semver.fromText("17.0.2+8").getSemver1())));
+        assertEquals(PkgTable.releaseKey(PkgTable.versionKey(Semver.fromText("17.0.2+8").getSemver1())), PkgTable.releaseKey(PkgTable.versionKey(Semver.fromText("17.0.2+9").getSemver1())));
+    }
+
+    @Test
+    public void largeTableLookupTest(@TempDir final Path folder) throws IOException {
+        StringBuilder json = new StringBuilder("{\"result\":[");
+        for (int i = 0 ; i < 10_000 ; i++) {
+            if (i > 0) { json.append(','); }
+            json.append("{\"id\":\"id").append(i).append("\",\"distribution\":\"zulu\",\"major_version\":17,\"java_version\":\"17.0.2+8\"}");
+        }
+        PkgTable table = PkgTable.fromJson(json.append("]}").toString());
+        Path     path  = folder.resolve("large.catalog");
+        table.save(path);
+
+        PkgTable mapped = PkgTable.map(path);
+        assertEquals(0, mapped.indexOf("id0"));
+        assertEquals(9_999, mapped.indexOf("id9999"));
+        assertEquals(-1, mapped.indexOf("id10000"));
+        assertEquals(10_000, mapped.selectDistribution("zulu").length);
+    }
+
+    @Test
+    public void saveAndMapTest(@TempDir final Path folder) throws IOException {
+        PkgTable table = PkgTable.fromJson(PACKAGES_JSON);
+        Path     path  = folder.resolve("test.catalog");
+        table.save(path);
+
+        PkgTable mapped = PkgTable.map(path);
+        assertEquals(table.size(), mapped.size());
+        for (int row = 0 ; row < table.size() ; row++) {
+            assertEquals(table.getId(row), mapped.getId(row));
+            assertEquals(table.getFileName(row), mapped.getFileName(row));
+            assertEquals(table.getArchitecture(row), mapped.getArchitecture(row));
+            assertEquals(table.getVersionKey(row), mapped.getVersionKey(row));
+            assertEquals(table.getSize(row), mapped.getSize(row));
+            assertEquals(table.isJavaFXBundled(row), mapped.isJavaFXBundled(row));
+        }
+        assertEquals(2, mapped.indexOf("a3"));
+        assertEquals(table.byteSize(), mapped.byteSize());
+    }
+
+    @Test
+    public void facetCountsTest() {
+        PkgTable    table  = PkgTable.fromJson(PACKAGES_JSON);
+        FacetCounts counts = table.facetCounts();
+        assertEquals(3, counts.getTotal());
+        assertEquals(2, counts.getDistributionCounts().get("zulu"));
+        assertEquals(2, counts.getCount(Column.OPERATING_SYSTEM, OperatingSystem.LINUX));
+        assertEquals(0, counts.getCount(Column.OPERATING_SYSTEM, Architecture.X64));
+        assertEquals(1, counts.getCounts(Column.TERM_OF_SUPPORT).get(TermOfSupport.STS));
+        assertEquals(2, counts.getMajorVersionCounts().get(17));
+
+        FacetCounts zuluCounts = table.facetCounts(table.selectDistribution("zulu"));
+        assertEquals(1, zuluCounts.getCount(Column.ARCHITECTURE, Architecture.AARCH64));
+        assertNull(zuluCounts.getMajorVersionCounts().get(19));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2022 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.foojay.api.discoclient;
+
+import io.foojay.api.discoclient.util.TtlCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class TtlCacheTest {
+
+    @Test
+    public void hitAndMissTest() {
+        TtlCache<String, String> cache = new TtlCache<>(1, 1, TimeUnit.HOURS);
+        AtomicInteger            loads = new AtomicInteger(0);
+        assertEquals("A", cache.get("a", key -> { loads.incrementAndGet(); return "A"; }));
+        assertEquals("A", cache.get("a", key -> { loads.incrementAndGet(); return "B"; }));
+        assertNull(cache.get("unknown", key -> { loads.incrementAndGet(); return null; }));
+        assertNull(cache.get("unknown", key -> { loads.incrementAndGet(); return "X"; }));
+        assertEquals(2, loads.get());
+
+        assertEquals("A", cache.getAsync("a", key -> CompletableFuture.completedFuture("B")).join());
+        cache.invalidate("a");
+        assertEquals("B", cache.getAsync("a", key -> CompletableFuture.completedFuture("B")).join());
+    }
+
+    @Test
+    public void expiryTest() {
+        TtlCache<String, String> cache = new TtlCache<>(1, 0, TimeUnit.HOURS, 2);
+        AtomicInteger            loads = new AtomicInteger(0);
+        cache.get("unknown", key -> { loads.incrementAndGet(); return null; });
+        cache.get("unknown", key -> { loads.incrementAndGet(); return null; });
+        assertEquals(2, loads.get());
+
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        assertEquals(2, cache.size());
+
+        assertThrows(IllegalStateException.class, () -> cache.get("d", key -> { throw new IllegalStateException(); }));
+        assertEquals("D", cache.get("d", key -> "D"));
+    }
+}